@@ -343,4 +343,52 @@ DROP COLUMN `name`;
 ALTER TABLE `dmitriysanko`.`country` 
 ADD INDEX `countryIndex` (`fullName` ASC, `idCountryCode` ASC);
 ALTER TABLE `dmitriysanko`.`contact`
-CHANGE COLUMN `zipCode` `zipCode` VARCHAR(10) NULL DEFAULT NULL ;
\ No newline at end of file
+CHANGE COLUMN `zipCode` `zipCode` VARCHAR(10) NULL DEFAULT NULL ;
+ALTER TABLE `dmitriysanko`.`contact`
+ADD COLUMN `birthdayMonthDay` SMALLINT(4) NOT NULL DEFAULT 0 AFTER `birthday`,
+ADD INDEX `Contact_available_birthdayMonthDay_idx` (`available` ASC, `birthdayMonthDay` ASC);
+UPDATE `dmitriysanko`.`contact` SET `birthdayMonthDay` = MONTH(`birthday`) * 100 + DAYOFMONTH(`birthday`);
+ALTER TABLE `dmitriysanko`.`contact`
+ADD COLUMN `deletedAt` DATETIME NULL DEFAULT NULL AFTER `available`,
+ADD INDEX `Contact_available_deletedAt_idx` (`available` ASC, `deletedAt` ASC);
+ALTER TABLE `dmitriysanko`.`phone`
+ADD COLUMN `deletedAt` DATETIME NULL DEFAULT NULL AFTER `available`,
+ADD INDEX `Phone_available_deletedAt_idx` (`available` ASC, `deletedAt` ASC);
+ALTER TABLE `dmitriysanko`.`attachment`
+ADD COLUMN `deletedAt` DATETIME NULL DEFAULT NULL AFTER `available`,
+ADD INDEX `Attachment_available_deletedAt_idx` (`available` ASC, `deletedAt` ASC);
+UPDATE `dmitriysanko`.`contact` SET `deletedAt` = NOW() WHERE `available` = 0;
+UPDATE `dmitriysanko`.`phone` SET `deletedAt` = NOW() WHERE `available` = 0;
+UPDATE `dmitriysanko`.`attachment` SET `deletedAt` = NOW() WHERE `available` = 0;
+CREATE TABLE IF NOT EXISTS `dmitriysanko`.`contactArchive` LIKE `dmitriysanko`.`contact`;
+CREATE TABLE IF NOT EXISTS `dmitriysanko`.`phoneArchive` LIKE `dmitriysanko`.`phone`;
+CREATE TABLE IF NOT EXISTS `dmitriysanko`.`attachmentArchive` LIKE `dmitriysanko`.`attachment`;
+ALTER TABLE `dmitriysanko`.`contact`
+ADD COLUMN `version` INT(11) NOT NULL DEFAULT 0 AFTER `deletedAt`;
+ALTER TABLE `dmitriysanko`.`contactArchive`
+ADD COLUMN `version` INT(11) NOT NULL DEFAULT 0 AFTER `deletedAt`;
+CREATE TABLE IF NOT EXISTS `dmitriysanko`.`idSequence` (
+  `name` VARCHAR(45) NOT NULL,
+  `nextValue` BIGINT(20) NOT NULL,
+  PRIMARY KEY (`name`))
+ENGINE = InnoDB;
+INSERT IGNORE INTO `dmitriysanko`.`idSequence` (`name`, `nextValue`)
+SELECT 'contact', GREATEST(IFNULL(MAX(`idContact`), 0), IFNULL((SELECT MAX(`idContact`) FROM `dmitriysanko`.`contactArchive`), 0)) + 1
+FROM `dmitriysanko`.`contact`;
+ALTER TABLE `dmitriysanko`.`phone`
+ADD COLUMN `phoneKey` VARCHAR(15) NULL DEFAULT NULL AFTER `phoneNumber`,
+ADD INDEX `Phone_available_phoneKey_idx` (`available` ASC, `phoneKey` ASC);
+ALTER TABLE `dmitriysanko`.`phoneArchive`
+ADD COLUMN `phoneKey` VARCHAR(15) NULL DEFAULT NULL AFTER `phoneNumber`;
+UPDATE `dmitriysanko`.`phone`
+SET `phoneKey` = LEFT(CONCAT(IF(IFNULL(`countryCode`, 0) = 0, '', `countryCode`),
+                             IF(IFNULL(`operatorCode`, 0) = 0, '', `operatorCode`), `phoneNumber`), 15);
+UPDATE `dmitriysanko`.`phoneArchive`
+SET `phoneKey` = LEFT(CONCAT(IF(IFNULL(`countryCode`, 0) = 0, '', `countryCode`),
+                             IF(IFNULL(`operatorCode`, 0) = 0, '', `operatorCode`), `phoneNumber`), 15);
+ALTER TABLE `dmitriysanko`.`contact`
+ADD INDEX `Contact_available_id_idx` (`available` ASC, `idContact` ASC),
+ADD INDEX `Contact_available_surname_idx` (`available` ASC, `surname` ASC, `idContact` ASC),
+ADD INDEX `Contact_available_birthday_idx` (`available` ASC, `birthday` ASC, `idContact` ASC),
+ADD INDEX `Contact_available_company_idx` (`available` ASC, `company` ASC, `idContact` ASC),
+ADD INDEX `Contact_available_city_idx` (`available` ASC, `city` ASC, `idContact` ASC);
@@ -13,6 +13,7 @@ import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
+import java.util.Collections;
 import java.util.List;
 
 public class BirthdayNotificationController implements Job {
@@ -22,7 +23,7 @@ public class BirthdayNotificationController implements Job {
     public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
         EmailAttributes emailAttributes = new EmailAttributes();
         emailAttributes.setEmailTitle("Birthday contacts");
-        emailAttributes.setRecipientEmails(MainUtils.getEmail());
+        emailAttributes.setRecipients(Collections.singletonList(MainUtils.getEmail()));
         emailAttributes.setFromEmail(MainUtils.getEmail());
         try {
             List<Contact> contacts = FindContactService.getBirthdayContacts();
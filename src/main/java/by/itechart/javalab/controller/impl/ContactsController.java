@@ -3,12 +3,16 @@ package by.itechart.javalab.controller.impl;
 
 import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.entity.Address;
-import by.itechart.javalab.entity.Contact;
 import by.itechart.javalab.entity.Gender;
 import by.itechart.javalab.entity.MaritalStatus;
+import by.itechart.javalab.service.ContactPage;
 import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.ContactSortOrder;
+import by.itechart.javalab.service.DeletionCounts;
+import by.itechart.javalab.service.DeletionProgress;
 import by.itechart.javalab.service.FindContactService;
 import by.itechart.javalab.service.ModificationContactService;
+import by.itechart.javalab.service.PageRequest;
 import by.itechart.javalab.service.ServiceException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -20,24 +24,22 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 public class ContactsController implements Controller {
     private static Logger log = LogManager.getLogger(ContactsController.class.getName());
-    private final Integer CONTACTS_PER_PAGE = 10;
 
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response) {
         log.debug("doGet: ");
-        List<Contact> contacts = new ArrayList<>();
+        String splittedURL[] = request.getPathInfo().split("/");
+        if (splittedURL.length > 3 && "deletion".equals(splittedURL[2])) {
+            writeDeletionProgress(response, splittedURL[3]);
+            return;
+        }
         try {
-            boolean isLowerIds = false;
-            contacts = FindContactService.getContacts(0, isLowerIds);
-            checkIfPaginationPossible(request, contacts, isLowerIds);
-            request.setAttribute("hasPrevious", false);
-            request.setAttribute("contacts", contacts);
+            ContactPage page = FindContactService.getContacts(parseFirstPageRequest(request));
+            setPageAttributes(request, page);
             request.getServletContext().getRequestDispatcher("/WEB-INF/pages/contacts.jsp").forward(request, response);
         } catch (ServiceException | ServletException | IOException | NumberFormatException e) {
             log.error(e);
@@ -61,38 +63,59 @@ public class ContactsController implements Controller {
         for (int i = 0; i < checkedContactIds.length; i++) {
             contactsId[i] = Long.parseLong(checkedContactIds[i]);
         }
-        List<Contact> contacts = new ArrayList<>();
         try {
-            ModificationContactService.deleteContacts(contactsId);
-            contacts = FindContactService.getContacts(0, false);
-            request.setAttribute("contacts", contacts);
+            if (ModificationContactService.isBackgroundDeletion(contactsId.length)) {
+                request.setAttribute("deletionProgress", ModificationContactService.deleteContactsInBackground(contactsId));
+            } else {
+                request.setAttribute("deletionCounts", ModificationContactService.deleteContacts(contactsId));
+            }
+            ContactPage page = FindContactService.getContacts(parseFirstPageRequest(request));
+            setPageAttributes(request, page);
             request.getServletContext().getRequestDispatcher("/WEB-INF/pages/contacts.jsp").forward(request, response);
         } catch (ServletException | ServiceException | IOException | NumberFormatException e) {
             log.error(e);
         }
     }
 
+    private void writeDeletionProgress(HttpServletResponse response, String id) {
+        DeletionProgress progress = ModificationContactService.getDeletionProgress(id);
+        try {
+            if (progress == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            DeletionCounts counts = progress.getCounts();
+            response.setContentType("application/json; charset=UTF-8");
+            response.getWriter().write("{\"status\":\"" + progress.getStatus() + "\"" +
+                    ",\"total\":" + progress.getTotal() +
+                    ",\"processed\":" + progress.getProcessed() +
+                    ",\"percent\":" + progress.getPercent() +
+                    ",\"contacts\":" + counts.getContacts() +
+                    ",\"phones\":" + counts.getPhones() +
+                    ",\"attachments\":" + counts.getAttachments() + "}");
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+
     private void findContacts(HttpServletRequest request, HttpServletResponse response) {
         String isSearchParameter = request.getParameter("isSearch");
-        Integer offset = Integer.parseInt(request.getParameter("startContactIdForPage"));
-        Boolean isLowerIds = Boolean.parseBoolean(request.getParameter("isLowerIds"));
-        if (StringUtils.isNotEmpty(isSearchParameter)) {
+        PageRequest pageRequest = parsePageRequest(request);
+        if (Boolean.parseBoolean(isSearchParameter)) {
             ContactSearchAttributes searchAttributes = getSearchAttributes(request, response);
             try {
-                List<Contact> contacts = FindContactService.getSearchContacts(searchAttributes, offset, isLowerIds);
-                checkIfPaginationPossible(request, contacts, isLowerIds);
-                request.setAttribute("contacts", contacts);
+                ContactPage page = FindContactService.getSearchContacts(searchAttributes, pageRequest);
+                setPageAttributes(request, page);
+                request.setAttribute("isSearch", true);
                 request.setAttribute("searchAttributes", searchAttributes);
                 request.getServletContext().getRequestDispatcher("/WEB-INF/pages/contacts.jsp").forward(request, response);
             } catch (ServletException | IOException | ServiceException e) {
                 log.error(e);
             }
         } else {
-            List<Contact> contacts = new ArrayList<>();
             try {
-                contacts = FindContactService.getContacts(offset, isLowerIds);
-                checkIfPaginationPossible(request, contacts, isLowerIds);
-                request.setAttribute("contacts", contacts);
+                ContactPage page = FindContactService.getContacts(pageRequest);
+                setPageAttributes(request, page);
                 request.getServletContext().getRequestDispatcher("/WEB-INF/pages/contacts.jsp").forward(request, response);
             } catch (ServiceException | ServletException | IOException | NumberFormatException e) {
                 log.error(e);
@@ -100,26 +123,33 @@ public class ContactsController implements Controller {
         }
     }
 
-    private void checkIfPaginationPossible(HttpServletRequest request, List<Contact> contacts, Boolean isLowerIds) {
-        if (isLowerIds) {
-            if (contacts.size() > CONTACTS_PER_PAGE) {
-                request.setAttribute("hasPrevious", true);
-                request.setAttribute("hasNext", true);
-                contacts.remove(0);
-            } else {
-                request.setAttribute("hasPrevious", false);
-                request.setAttribute("hasNext", true);
-            }
-        } else {
-            if (contacts.size() > CONTACTS_PER_PAGE) {
-                request.setAttribute("hasNext", true);
-                request.setAttribute("hasPrevious", true);
-                contacts.remove(contacts.size() - 1);
-            } else {
-                request.setAttribute("hasNext", false);
-                request.setAttribute("hasPrevious", true);
-            }
+    private PageRequest parseFirstPageRequest(HttpServletRequest request) {
+        ContactSortOrder sortOrder = ContactSortOrder.parse(request.getParameter("sortOrder"));
+        return new PageRequest(sortOrder, parsePageSize(request));
+    }
+
+    private PageRequest parsePageRequest(HttpServletRequest request) {
+        ContactSortOrder sortOrder = ContactSortOrder.parse(request.getParameter("sortOrder"));
+        String cursorIdParameter = request.getParameter("cursorId");
+        Long cursorId = StringUtils.isNotEmpty(cursorIdParameter) && StringUtils.isNumeric(cursorIdParameter)
+                ? Long.parseLong(cursorIdParameter) : null;
+        boolean backward = Boolean.parseBoolean(request.getParameter("backward"));
+        return new PageRequest(sortOrder, parsePageSize(request), request.getParameter("cursorValue"), cursorId, backward);
+    }
+
+    private int parsePageSize(HttpServletRequest request) {
+        String pageSize = request.getParameter("pageSize");
+        if (StringUtils.isNotEmpty(pageSize) && StringUtils.isNumeric(pageSize)) {
+            return Integer.parseInt(pageSize);
         }
+        return PageRequest.DEFAULT_PAGE_SIZE;
+    }
+
+    private void setPageAttributes(HttpServletRequest request, ContactPage page) {
+        request.setAttribute("page", page);
+        request.setAttribute("contacts", page.getContacts());
+        request.setAttribute("hasNext", page.isHasNext());
+        request.setAttribute("hasPrevious", page.isHasPrevious());
     }
 
     private ContactSearchAttributes getSearchAttributes(HttpServletRequest request, HttpServletResponse response) {
@@ -138,6 +168,8 @@ public class ContactsController implements Controller {
         searchAttributes.setMaritalStatus(maritalStatus);
         Address address = parseAddress(request);
         searchAttributes.setAddress(address);
+        searchAttributes.setPhone(request.getParameter("phone"));
+        searchAttributes.setPhonePrefix(Boolean.parseBoolean(request.getParameter("phonePrefix")));
         return searchAttributes;
     }
 
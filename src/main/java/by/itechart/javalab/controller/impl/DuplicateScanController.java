@@ -0,0 +1,25 @@
+package by.itechart.javalab.controller.impl;
+
+
+import by.itechart.javalab.service.DuplicateDetector;
+import by.itechart.javalab.service.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+@DisallowConcurrentExecution
+public class DuplicateScanController implements Job {
+    private static Logger log = LogManager.getLogger(DuplicateScanController.class.getName());
+
+    @Override
+    public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+        try {
+            DuplicateDetector.scanDuplicates();
+        } catch (ServiceException e) {
+            log.error(e);
+        }
+    }
+}
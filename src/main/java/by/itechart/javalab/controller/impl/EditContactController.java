@@ -5,7 +5,10 @@ import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.controller.ControllerException;
 import by.itechart.javalab.entity.*;
 import by.itechart.javalab.service.ContactAttributesService;
+import by.itechart.javalab.service.ContactConflictException;
+import by.itechart.javalab.service.ContactFilesWriter;
 import by.itechart.javalab.service.FindContactService;
+import by.itechart.javalab.service.LookupExecutor;
 import by.itechart.javalab.service.ModificationContactService;
 import by.itechart.javalab.service.ServiceException;
 import org.apache.commons.fileupload.FileItem;
@@ -22,9 +25,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Future;
 
 
 public class EditContactController implements Controller {
@@ -39,15 +46,17 @@ public class EditContactController implements Controller {
         log.debug("doGet: " + request.getPathInfo());
         String splittedURL[] = request.getPathInfo().split("/");
         if (splittedURL.length != 3) return;
-        Contact contact = null;
+        Future<Contact> contact = null;
+        Future<List<String>> countries = null;
         try {
             Long contactId = Long.parseLong(splittedURL[2]);
-            contact = FindContactService.getContact(contactId);
-            request.setAttribute("contact", contact);
-            List<String> countries = ContactAttributesService.getAllCountries();
-            request.setAttribute("countries", countries);
+            contact = FindContactService.getContactAsync(contactId);
+            countries = ContactAttributesService.getAllCountriesAsync();
+            request.setAttribute("contact", LookupExecutor.await(contact));
+            request.setAttribute("countries", LookupExecutor.await(countries));
             request.getServletContext().getRequestDispatcher("/WEB-INF/pages/editContact.jsp").forward(request, response);
         } catch (ServiceException | ServletException | IOException | NumberFormatException e) {
+            LookupExecutor.cancel(contact, countries);
             log.error(e);
         }
     }
@@ -69,14 +78,7 @@ public class EditContactController implements Controller {
             log.error(e);
         }
         List<FileItem> fileItems = parseFormFieldValues(items);
-        Contact contact = updateContact(request, response);
-        try {
-            saveAttachmentsOnDisk(fileItems, contact);
-            ModificationContactService.updateContactAttachments(contact);
-            response.sendRedirect(request.getContextPath() + "/pages/contacts");
-        } catch (Exception ex) {
-            log.error(ex);
-        }
+        updateContact(request, response, fileItems);
     }
 
 
@@ -109,7 +111,7 @@ public class EditContactController implements Controller {
     }
 
 
-    private Contact updateContact(HttpServletRequest request, HttpServletResponse response) {
+    private void updateContact(HttpServletRequest request, HttpServletResponse response, final List<FileItem> fileItems) {
         Contact contact = null;
         try {
             contact = new Contact();
@@ -117,21 +119,45 @@ public class EditContactController implements Controller {
             setAddressToContact(contact);
             Map<String, List<ContactPhone>> phoneGroups = getContactPhoneGroups(contact);
             Map<String, List<ContactAttachment>> attachmentGroups = getContactAttachmentGroups(contact);
-            ModificationContactService.updateContact(contact, phoneGroups, attachmentGroups);
-            contact = FindContactService.getContact(contact.getIdContact());
+            ModificationContactService.updateContact(contact, phoneGroups, attachmentGroups, new ContactFilesWriter() {
+                @Override
+                public void writeFiles(Contact updatedContact, List<File> writtenFiles) throws Exception {
+                    saveAttachmentsOnDisk(fileItems, updatedContact, writtenFiles);
+                }
+            });
+            response.sendRedirect(request.getContextPath() + "/pages/contacts");
         } catch (ParseException | ControllerException e) {
             log.error(e);
             request.setAttribute("invalidInput", "Invalid input.");
             returnPage(request, response);
+        } catch (ContactConflictException e) {
+            log.error(e);
+            request.setAttribute("conflict", "Contact has been changed by another user.");
+            returnCurrentContact(request, response, contact.getIdContact());
         } catch (ServiceException e) {
             log.error(e);
             request.setAttribute("error", "Sorry, contact hasn't been updated.");
             returnPage(request, response);
+        } catch (IOException e) {
+            log.error(e);
         }
-        return contact;
     }
 
 
+    // the page is rendered again with the stored contact, the user reapplies the edit on top of it
+    private void returnCurrentContact(HttpServletRequest request, HttpServletResponse response, Long contactId) {
+        Future<Contact> contact = FindContactService.getContactAsync(contactId);
+        Future<List<String>> countries = ContactAttributesService.getAllCountriesAsync();
+        try {
+            request.setAttribute("contact", LookupExecutor.await(contact));
+            request.setAttribute("countries", LookupExecutor.await(countries));
+        } catch (ServiceException e) {
+            LookupExecutor.cancel(contact, countries);
+            log.error(e);
+        }
+        returnPage(request, response);
+    }
+
     private void returnPage(HttpServletRequest request, HttpServletResponse response) {
         try {
             request.getServletContext().getRequestDispatcher("/WEB-INF/pages/editContact.jsp").forward(request, response);
@@ -148,6 +174,16 @@ public class EditContactController implements Controller {
         return attachmentsDirectory;
     }
 
+    // copied from the upload's stream rather than moved by FileItem.write, so a replayed transaction can write it again
+    private void writeFile(FileItem item, File file) throws IOException {
+        InputStream inputStream = item.getInputStream();
+        try {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            inputStream.close();
+        }
+    }
+
     private ServletContext getServletContext() {
         return servletContext;
     }
@@ -170,7 +206,7 @@ public class EditContactController implements Controller {
         }
     }
 
-    private void saveAttachmentsOnDisk(List<FileItem> fileItems, Contact contact) throws Exception {
+    private void saveAttachmentsOnDisk(List<FileItem> fileItems, Contact contact, List<File> writtenFiles) throws Exception {
         Iterator<FileItem> iterator = fileItems.iterator();
         while (iterator.hasNext()) {
             FileItem item = iterator.next();
@@ -183,7 +219,8 @@ public class EditContactController implements Controller {
                     filePath = imagesDirectory + File.separator + contact.getIdContact() +
                             realFileName.substring(realFileName.lastIndexOf("."));
                     File uploadedFile = new File(filePath);
-                    item.write(uploadedFile);
+                    writeFile(item, uploadedFile);
+                    writtenFiles.add(uploadedFile);
                 }
             } else {
                 Long attachmentId = null;
@@ -194,9 +231,11 @@ public class EditContactController implements Controller {
                 attachmentId = attachment.getIdAttachment();
                 attachment.setRealFileName(realFileName);
                 String attachmentsDirectory = getDirectoryPath("attachmentsDirectory");
-                filePath = attachmentsDirectory + File.separator + attachmentId + "_" + realFileName;
+                filePath = attachmentsDirectory + File.separator + contact.getIdContact() + "_" + attachmentId + "_"
+                        + realFileName;
                 File uploadedFile = new File(filePath);
-                item.write(uploadedFile);
+                writeFile(item, uploadedFile);
+                writtenFiles.add(uploadedFile);
             }
         }
     }
@@ -211,6 +250,12 @@ public class EditContactController implements Controller {
     private void setPersonalData(Contact contact) throws ParseException, ControllerException {
         checkCorrectness("idContact");
         contact.setIdContact(Long.parseLong(formFields.get("idContact")));
+        checkCorrectness("version");
+        try {
+            contact.setVersion(Integer.valueOf(formFields.get("version")));
+        } catch (NumberFormatException e) {
+            throw new ControllerException("Invalid input.", e);
+        }
         checkCorrectness("name");
         contact.setName(formFields.get("name"));
         checkCorrectness("surname");
@@ -2,7 +2,7 @@ package by.itechart.javalab.controller.impl;
 
 import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.service.EmailAttributes;
-import by.itechart.javalab.service.FindContactService;
+import by.itechart.javalab.service.RecipientResolver;
 import by.itechart.javalab.service.SendEmailService;
 import by.itechart.javalab.service.ServiceException;
 import by.itechart.javalab.util.MainUtils;
@@ -17,6 +17,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -44,7 +45,7 @@ public class EmailController implements Controller {
         setEncoding(request, "UTF-8");
         EmailAttributes emailAttributes = new EmailAttributes();
         emailAttributes.setEmailTitle(request.getParameter("subject"));
-        emailAttributes.setRecipientEmails(request.getParameter("recipients"));
+        emailAttributes.setRecipients(RecipientResolver.parse(request.getParameter("recipients")));
         emailAttributes.setFromEmail(MainUtils.getEmail());
         setEmailText(request, emailAttributes);
         try {
@@ -98,20 +99,14 @@ public class EmailController implements Controller {
 
     private void setRecipientsAttribute(HttpServletRequest request, String emailContactsId) throws ServiceException {
         if (emailContactsId != null) {
-            String contactIds[] = emailContactsId.split(",");
-            Long contactId[] = new Long[contactIds.length];
-            for (int i = 0; i < contactIds.length; i++) {
-                contactId[i] = Long.parseLong(contactIds[i]);
+            List<Long> contactIds = new ArrayList<>();
+            for (String contactId : emailContactsId.split(",")) {
+                if (StringUtils.isNotBlank(contactId)) {
+                    contactIds.add(Long.parseLong(contactId.trim()));
+                }
             }
-            List<String> emailsList = FindContactService.getEmails(contactId);
-            StringBuilder emails = new StringBuilder();
-            for (String email : emailsList) {
-                emails.append(email);
-                emails.append(",");
-            }
-            String contactEmails = emails.toString();
-            contactEmails = contactEmails.substring(0, contactEmails.length() - 1);
-            request.setAttribute("recipients", contactEmails);
+            List<String> recipients = RecipientResolver.resolve(contactIds);
+            request.setAttribute("recipients", StringUtils.join(recipients, ","));
             request.setAttribute("emailContactsId", request.getParameter("emailContactsId"));
         }
     }
@@ -0,0 +1,123 @@
+package by.itechart.javalab.controller.impl;
+
+import by.itechart.javalab.controller.Controller;
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Gender;
+import by.itechart.javalab.entity.MaritalStatus;
+import by.itechart.javalab.service.ContactExportFormat;
+import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.ExportContactService;
+import by.itechart.javalab.service.ServiceException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+
+public class ExportController implements Controller {
+    private static Logger log = LogManager.getLogger(ExportController.class.getName());
+
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) {
+        log.debug("doGet: {}", request.getPathInfo());
+        export(request, response, null);
+    }
+
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response) {
+        log.debug("doPost: {}", request.getPathInfo());
+        setEncoding(request, "UTF-8");
+        ContactSearchAttributes searchAttributes = null;
+        if (Boolean.parseBoolean(request.getParameter("isSearch"))) {
+            try {
+                searchAttributes = parseSearchAttributes(request);
+            } catch (ParseException | IllegalArgumentException e) {
+                log.error(e);
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+        }
+        export(request, response, searchAttributes);
+    }
+
+    private void export(HttpServletRequest request, HttpServletResponse response, ContactSearchAttributes searchAttributes) {
+        String splittedURL[] = request.getPathInfo().split("/");
+        ContactExportFormat format = splittedURL.length > 2 ? ContactExportFormat.parse(splittedURL[2]) : ContactExportFormat.CSV;
+        if (format == null) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType(format.getContentType() + "; charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"contacts." + format.getExtension() + "\"");
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), "UTF-8"));
+            ExportContactService.exportContacts(searchAttributes, format, writer);
+        } catch (ServiceException | IOException e) {
+            log.error(e);
+            if (!response.isCommitted()) {
+                response.reset();
+                sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    private ContactSearchAttributes parseSearchAttributes(HttpServletRequest request) throws ParseException {
+        ContactSearchAttributes searchAttributes = new ContactSearchAttributes();
+        searchAttributes.setName(request.getParameter("name"));
+        searchAttributes.setSurname(request.getParameter("surname"));
+        searchAttributes.setPatronymic(request.getParameter("patronymic"));
+        searchAttributes.setCitizenship(request.getParameter("citizenship"));
+        searchAttributes.setBirthdayDateFrom(parseDate(request.getParameter("lowerBirthday")));
+        searchAttributes.setBirthdayDateTo(parseDate(request.getParameter("upperBirthday")));
+        String gender = request.getParameter("gender");
+        searchAttributes.setGender(StringUtils.isEmpty(gender) || "NONE".equals(gender) ? null : Gender.valueOf(gender));
+        String maritalStatus = request.getParameter("marital");
+        searchAttributes.setMaritalStatus(StringUtils.isEmpty(maritalStatus) || "NONE".equals(maritalStatus)
+                ? null : MaritalStatus.valueOf(maritalStatus));
+        Address address = new Address();
+        String country = request.getParameter("country");
+        address.setCountry("NONE".equals(country) ? null : country);
+        address.setCity(request.getParameter("city"));
+        address.setStreet(request.getParameter("street"));
+        address.setHouseNumber(request.getParameter("houseNumber"));
+        address.setApartmentNumber(request.getParameter("apartmentNumber"));
+        address.setZipCode(request.getParameter("zipCode"));
+        searchAttributes.setAddress(address);
+        searchAttributes.setPhone(request.getParameter("phone"));
+        searchAttributes.setPhonePrefix(Boolean.parseBoolean(request.getParameter("phonePrefix")));
+        return searchAttributes;
+    }
+
+    private Date parseDate(String value) throws ParseException {
+        if (StringUtils.isEmpty(value)) {
+            return null;
+        }
+        return new SimpleDateFormat("dd.MM.yyyy").parse(value);
+    }
+
+    private void setEncoding(HttpServletRequest request, String encoding) {
+        try {
+            request.setCharacterEncoding(encoding);
+        } catch (UnsupportedEncodingException e) {
+            log.error(e);
+        }
+    }
+
+    private void sendError(HttpServletResponse response, int status) {
+        try {
+            response.sendError(status);
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+}
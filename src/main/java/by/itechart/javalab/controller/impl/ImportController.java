@@ -0,0 +1,85 @@
+package by.itechart.javalab.controller.impl;
+
+import by.itechart.javalab.controller.Controller;
+import by.itechart.javalab.service.ContactExportFormat;
+import by.itechart.javalab.service.ImportContactService;
+import by.itechart.javalab.service.ImportReport;
+import by.itechart.javalab.service.ServiceException;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class ImportController implements Controller {
+    private static Logger log = LogManager.getLogger(ImportController.class.getName());
+    private static final long MAX_REQUEST_SIZE = 1024L * 1024 * 512;
+
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) {
+        log.debug("doGet:");
+        returnPage(request, response);
+    }
+
+    @Override
+    public void doPost(HttpServletRequest request, HttpServletResponse response) {
+        log.debug("doPost:");
+        if (!ServletFileUpload.isMultipartContent(request)) {
+            log.debug("Not multipart type request: {}, {}", request.getRequestURI(), request.getContentType());
+            request.setAttribute("error", "File hasn't been uploaded.");
+            returnPage(request, response);
+            return;
+        }
+        // the file is parsed straight from the request stream, nothing is buffered on disk or in memory
+        ServletFileUpload upload = new ServletFileUpload();
+        upload.setSizeMax(MAX_REQUEST_SIZE);
+        upload.setHeaderEncoding("UTF-8");
+        ContactExportFormat format = null;
+        ImportReport report = null;
+        try {
+            FileItemIterator iterator = upload.getItemIterator(request);
+            while (iterator.hasNext() && report == null) {
+                FileItemStream item = iterator.next();
+                InputStream stream = item.openStream();
+                if (item.isFormField()) {
+                    if ("format".equals(item.getFieldName())) {
+                        format = ContactExportFormat.parse(Streams.asString(stream, "UTF-8"));
+                    }
+                } else if (StringUtils.isNotEmpty(item.getName())) {
+                    if (format == null) {
+                        format = ContactExportFormat.parse(StringUtils.substringAfterLast(item.getName(), "."));
+                    }
+                    report = ImportContactService.importContacts(stream,
+                            format == null ? ContactExportFormat.CSV : format);
+                }
+                stream.close();
+            }
+            if (report == null) {
+                request.setAttribute("error", "File hasn't been uploaded.");
+            }
+            request.setAttribute("report", report);
+        } catch (FileUploadException | IOException | ServiceException e) {
+            log.error(e);
+            request.setAttribute("error", "Sorry, contacts haven't been imported.");
+        }
+        returnPage(request, response);
+    }
+
+    private void returnPage(HttpServletRequest request, HttpServletResponse response) {
+        try {
+            request.getServletContext().getRequestDispatcher("/WEB-INF/pages/import.jsp").forward(request, response);
+        } catch (ServletException | IOException e) {
+            log.error(e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.controller.ControllerException;
 import by.itechart.javalab.entity.*;
 import by.itechart.javalab.service.ContactAttributesService;
+import by.itechart.javalab.service.ContactFilesWriter;
 import by.itechart.javalab.service.ModificationContactService;
 import by.itechart.javalab.service.ServiceException;
 import org.apache.commons.fileupload.FileItem;
@@ -20,6 +21,9 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -62,14 +66,7 @@ public class NewContactController implements Controller {
             log.error(e);
         }
         List<FileItem> fileItems = parseFormFieldValues(items);
-        Contact savedContact = saveContact(request, response);
-        try {
-            saveAttachmentsOnDisk(fileItems, savedContact);
-            ModificationContactService.updateContactAttachments(savedContact);
-            response.sendRedirect(request.getContextPath() + "/pages/contacts");
-        } catch (Exception ex) {
-            log.error(ex);
-        }
+        saveContact(request, response, fileItems);
     }
 
 
@@ -102,12 +99,17 @@ public class NewContactController implements Controller {
     }
 
 
-    private Contact saveContact(HttpServletRequest request, HttpServletResponse response) {
+    private void saveContact(HttpServletRequest request, HttpServletResponse response, final List<FileItem> fileItems) {
         Contact contact = null;
-        Contact savedContact = null;
         try {
             contact = createContact();
-            savedContact = ModificationContactService.addNewContact(contact);
+            ModificationContactService.addNewContact(contact, new ContactFilesWriter() {
+                @Override
+                public void writeFiles(Contact savedContact, List<File> writtenFiles) throws Exception {
+                    saveAttachmentsOnDisk(fileItems, savedContact, writtenFiles);
+                }
+            });
+            response.sendRedirect(request.getContextPath() + "/pages/contacts");
         } catch (ParseException | ControllerException e) {
             log.error(e);
             request.setAttribute("invalidInput", "Invalid input.");
@@ -116,8 +118,9 @@ public class NewContactController implements Controller {
             log.error(e);
             request.setAttribute("error", "Sorry, contact hasn't been saved.");
             returnPage(request, response);
+        } catch (IOException e) {
+            log.error(e);
         }
-        return savedContact;
     }
 
 
@@ -143,7 +146,7 @@ public class NewContactController implements Controller {
         }
     }
 
-    private void saveAttachmentsOnDisk(List<FileItem> fileItems, Contact savedContact) throws Exception {
+    private void saveAttachmentsOnDisk(List<FileItem> fileItems, Contact savedContact, List<File> writtenFiles) throws Exception {
         Iterator<FileItem> iterator = fileItems.iterator();
         while (iterator.hasNext()) {
             FileItem item = iterator.next();
@@ -155,7 +158,8 @@ public class NewContactController implements Controller {
                 if (realFileName.lastIndexOf(".") != -1) {
                     filePath = imagesDirectory + File.separator + savedContact.getIdContact() + realFileName.substring(realFileName.lastIndexOf("."));
                     File uploadedFile = new File(filePath);
-                    item.write(uploadedFile);
+                    writeFile(item, uploadedFile);
+                    writtenFiles.add(uploadedFile);
                 }
             } else {
                 Long attachmentId = null;
@@ -166,13 +170,26 @@ public class NewContactController implements Controller {
                 attachmentId = attachment.getIdAttachment();
                 attachment.setRealFileName(realFileName);
                 String attachmentsDirectory = getDirectoryPath("attachmentsDirectory");
-                filePath = attachmentsDirectory + File.separator + attachmentId + "_" + realFileName;
+                // attachment ids are only unique within a shard, the contact id keeps the name unique in the directory
+                filePath = attachmentsDirectory + File.separator + savedContact.getIdContact() + "_" + attachmentId + "_"
+                        + realFileName;
                 File uploadedFile = new File(filePath);
-                item.write(uploadedFile);
+                writeFile(item, uploadedFile);
+                writtenFiles.add(uploadedFile);
             }
         }
     }
 
+    // copied from the upload's stream rather than moved by FileItem.write, so a replayed transaction can write it again
+    private void writeFile(FileItem item, File file) throws IOException {
+        InputStream inputStream = item.getInputStream();
+        try {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            inputStream.close();
+        }
+    }
+
     private ServletContext getServletContext() {
         return servletContext;
     }
@@ -0,0 +1,28 @@
+package by.itechart.javalab.controller.impl;
+
+
+import by.itechart.javalab.service.PurgeService;
+import by.itechart.javalab.service.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+@DisallowConcurrentExecution
+public class PurgeDeletedContactsController implements Job {
+    private static Logger log = LogManager.getLogger(PurgeDeletedContactsController.class.getName());
+
+    @Override
+    public void execute(JobExecutionContext jobExecutionContext) throws JobExecutionException {
+        JobDataMap dataMap = jobExecutionContext.getMergedJobDataMap();
+        try {
+            PurgeService.purgeDeletedContacts(dataMap.getString("attachmentsDirectory"),
+                    dataMap.getString("imagesDirectory"));
+        } catch (ServiceException e) {
+            log.error(e);
+        }
+    }
+}
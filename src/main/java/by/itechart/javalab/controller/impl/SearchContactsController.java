@@ -2,12 +2,17 @@ package by.itechart.javalab.controller.impl;
 
 import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.entity.Address;
-import by.itechart.javalab.entity.Contact;
 import by.itechart.javalab.entity.Gender;
 import by.itechart.javalab.entity.MaritalStatus;
 import by.itechart.javalab.service.ContactAttributesService;
+import by.itechart.javalab.service.ContactPage;
 import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.ContactSortOrder;
+import by.itechart.javalab.service.FacetCounts;
+import by.itechart.javalab.service.FacetService;
 import by.itechart.javalab.service.FindContactService;
+import by.itechart.javalab.service.LookupExecutor;
+import by.itechart.javalab.service.PageRequest;
 import by.itechart.javalab.service.ServiceException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -22,11 +27,11 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Future;
 
 
 public class SearchContactsController implements Controller {
     private static Logger log = LogManager.getLogger(SearchContactsController.class.getName());
-    private final Integer CONTACTS_PER_PAGE = 10;
 
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response) {
@@ -46,11 +51,26 @@ public class SearchContactsController implements Controller {
         log.debug("doPost:");
         ContactSearchAttributes searchAttributes = parseSearchAttributes(request, response);
         try {
-            List<Contact> contacts = FindContactService.getSearchContacts(searchAttributes, 0, false);
+            ContactSortOrder sortOrder = ContactSortOrder.parse(request.getParameter("sortOrder"));
+            Future<FacetCounts> facets = FacetService.isEnabled()
+                    ? FacetService.getFacetCountsAsync(searchAttributes)
+                    : null;
+            ContactPage page;
+            try {
+                page = FindContactService.getSearchContacts(searchAttributes,
+                        new PageRequest(sortOrder, PageRequest.DEFAULT_PAGE_SIZE));
+            } catch (ServiceException e) {
+                LookupExecutor.cancel(facets);
+                throw e;
+            }
+            if (facets != null) {
+                request.setAttribute("facets", getFacetCounts(facets));
+            }
             request.setAttribute("isSearch", true);
-            resolvePagination(request, contacts);
-            request.setAttribute("contacts", contacts);
-            request.setAttribute("startContactIdForPreviousPage", 1);
+            request.setAttribute("page", page);
+            request.setAttribute("contacts", page.getContacts());
+            request.setAttribute("hasNext", page.isHasNext());
+            request.setAttribute("hasPrevious", page.isHasPrevious());
             request.setAttribute("searchAttributes", searchAttributes);
             request.getServletContext().getRequestDispatcher("/WEB-INF/pages/contacts.jsp").forward(request, response);
         } catch (ServletException | IOException | ServiceException e) {
@@ -58,6 +78,16 @@ public class SearchContactsController implements Controller {
         }
     }
 
+    // the results are still shown when the counts fail
+    private FacetCounts getFacetCounts(Future<FacetCounts> facets) {
+        try {
+            return LookupExecutor.await(facets);
+        } catch (ServiceException e) {
+            log.warn("Facet counts are not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private void setEncoding(HttpServletRequest request, String encoding) {
         try {
             request.setCharacterEncoding(encoding);
@@ -66,16 +96,6 @@ public class SearchContactsController implements Controller {
         }
     }
 
-    private void resolvePagination(HttpServletRequest request, List<Contact> contacts) {
-        request.setAttribute("hasPrevious", false);
-        if (contacts.size() > CONTACTS_PER_PAGE) {
-            request.setAttribute("hasNext", true);
-            contacts.remove(contacts.size() - 1);
-        } else {
-            request.setAttribute("hasNext", false);
-        }
-    }
-
     private ContactSearchAttributes parseSearchAttributes(HttpServletRequest request, HttpServletResponse response) {
         ContactSearchAttributes searchAttributes = new ContactSearchAttributes();
         searchAttributes.setName(request.getParameter("name"));
@@ -92,6 +112,8 @@ public class SearchContactsController implements Controller {
         searchAttributes.setMaritalStatus(maritalStatus);
         Address address = parseAddress(request);
         searchAttributes.setAddress(address);
+        searchAttributes.setPhone(request.getParameter("phone"));
+        searchAttributes.setPhonePrefix(Boolean.parseBoolean(request.getParameter("phonePrefix")));
         return searchAttributes;
     }
 
@@ -3,6 +3,8 @@ package by.itechart.javalab.controller.impl;
 
 import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.DuplicateDetector;
+import by.itechart.javalab.service.DuplicateMatch;
 import by.itechart.javalab.service.FindContactService;
 import by.itechart.javalab.service.ServiceException;
 import org.apache.logging.log4j.LogManager;
@@ -12,6 +14,8 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 public class ViewContactController implements Controller {
     private static Logger log = LogManager.getLogger(ViewContactController.class.getName());
@@ -26,12 +30,23 @@ public class ViewContactController implements Controller {
             Long contactId = Long.parseLong(splittedURL[2]);
             contact = FindContactService.getContact(contactId);
             request.setAttribute("contact", contact);
+            request.setAttribute("duplicates", getDuplicates(contact));
             request.getServletContext().getRequestDispatcher("/WEB-INF/pages/contact.jsp").forward(request, response);
         } catch (ServiceException | ServletException | IOException | NumberFormatException e) {
             log.error(e);
         }
     }
 
+    // the contact is shown even when the duplicate index can't be loaded
+    private List<DuplicateMatch> getDuplicates(Contact contact) {
+        try {
+            return DuplicateDetector.findDuplicates(contact);
+        } catch (ServiceException e) {
+            log.warn("Duplicates are not available: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
     @Override
     public void doPost(HttpServletRequest request, HttpServletResponse response) {
 
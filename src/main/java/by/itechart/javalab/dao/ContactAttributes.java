@@ -1,8 +1,9 @@
 package by.itechart.javalab.dao;
 
+import by.itechart.javalab.entity.Country;
 
 import java.util.List;
 
 public interface ContactAttributes {
-    List<String> getCountries() throws DaoException;
+    List<Country> getCountries() throws DaoException;
 }
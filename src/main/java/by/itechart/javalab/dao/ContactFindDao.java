@@ -1,15 +1,24 @@
 package by.itechart.javalab.dao;
 
 import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.ContactPage;
+import by.itechart.javalab.service.ContactProjection;
+import by.itechart.javalab.service.ContactRowHandler;
 import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.PageRequest;
 
+import java.util.Collection;
 import java.util.List;
 
 
 public interface ContactFindDao {
-    List<Contact> getContacts(Integer offset, boolean isLowerIds) throws DaoException;
-    List<Contact> getContacts(ContactSearchAttributes searchAttributes, Integer offset, boolean isLowerIds) throws DaoException;
+    ContactPage getContacts(PageRequest pageRequest) throws DaoException;
+    ContactPage getContacts(ContactSearchAttributes searchAttributes, PageRequest pageRequest) throws DaoException;
     Contact getContact(Long contactId) throws DaoException;
-    List <String> getEmails(Long contactId[]) throws DaoException;
+    List<Contact> getContacts(Collection<Long> contactIds, ContactProjection projection) throws DaoException;
+    List<Long> getContactIds(ContactSearchAttributes searchAttributes) throws DaoException;
+    void exportContacts(ContactSearchAttributes searchAttributes, ContactRowHandler handler) throws DaoException;
+    List<String> getEmails(Collection<Long> contactIds) throws DaoException;
     List<Contact> getBirthdayContacts() throws DaoException;
+    List<Contact> getUpcomingBirthdayContacts(int days) throws DaoException;
 }
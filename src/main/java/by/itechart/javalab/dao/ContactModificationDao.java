@@ -3,14 +3,19 @@ package by.itechart.javalab.dao;
 import by.itechart.javalab.entity.Contact;
 import by.itechart.javalab.entity.ContactAttachment;
 import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.service.ContactChanges;
+import by.itechart.javalab.service.DeletionCounts;
 
 import java.util.List;
 
 
 public interface ContactModificationDao {
     Contact addNewContact(Contact contact) throws DaoException;
-    Contact updateContact(Contact contact) throws DaoException;
-    void deleteContacts(Long contactsId[]) throws DaoException;
+    void addNewContacts(List<Contact> contacts) throws DaoException;
+    // the stored contact as the transaction reads it, without locking it; null if there is none
+    Contact getStoredContact(Long contactId) throws DaoException;
+    Contact updateContact(Contact contact, ContactChanges changes) throws DaoException;
+    DeletionCounts deleteContacts(Long contactsId[]) throws DaoException;
     void saveContactPhones(List<ContactPhone> phones) throws DaoException;
     void deleteContactPhones(List<ContactPhone> phones) throws DaoException;
     List<ContactAttachment> saveContactAttachments(List<ContactAttachment> attachments) throws DaoException;
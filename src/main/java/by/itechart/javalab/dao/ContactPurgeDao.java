@@ -0,0 +1,14 @@
+package by.itechart.javalab.dao;
+
+import by.itechart.javalab.entity.ContactAttachment;
+
+import java.util.Date;
+import java.util.List;
+
+
+public interface ContactPurgeDao {
+    List<Long> getDeletedContactIds(Date deletedBefore, int limit) throws DaoException;
+    List<ContactAttachment> purgeContacts(List<Long> contactIds) throws DaoException;
+    List<ContactAttachment> purgeAttachments(Date deletedBefore, int limit) throws DaoException;
+    int purgePhones(Date deletedBefore, int limit) throws DaoException;
+}
@@ -1,7 +1,9 @@
 package by.itechart.javalab.dao;
 
 
+import by.itechart.javalab.dao.factoryimpl.MemoryDaoFactory;
 import by.itechart.javalab.dao.factoryimpl.MysqlDaoFactory;
+import by.itechart.javalab.dao.factoryimpl.ShardedDaoFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -26,6 +28,10 @@ public abstract class DaoFactory {
 		switch (DAO_TYPE){
 		case "mysql":
 			return MysqlDaoFactory.getInstance();
+		case "memory":
+			return MemoryDaoFactory.getInstance();
+		case "sharded":
+			return ShardedDaoFactory.getInstance();
 		}
 		throw new DaoException("Can't find storage type.");
 	}
@@ -33,4 +39,7 @@ public abstract class DaoFactory {
 	public abstract ContactFindDao getContactFindDao();
 	public abstract ContactModificationDao getContactModificationDao();
 	public abstract ContactAttributes getContactAttributes();
+	public abstract ContactPurgeDao getContactPurgeDao();
+
+	public void shutdown() {}
 }
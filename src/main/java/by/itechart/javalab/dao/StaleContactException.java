@@ -0,0 +1,11 @@
+package by.itechart.javalab.dao;
+
+
+public class StaleContactException extends DaoException {
+
+	private static final long serialVersionUID = 1L;
+
+	public StaleContactException(String message){
+		super(message);
+	}
+}
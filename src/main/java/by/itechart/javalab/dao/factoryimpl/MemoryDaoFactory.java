@@ -0,0 +1,48 @@
+package by.itechart.javalab.dao.factoryimpl;
+
+
+import by.itechart.javalab.dao.ContactAttributes;
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.ContactModificationDao;
+import by.itechart.javalab.dao.ContactPurgeDao;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.dao.memory.ContactAttributesMemoryDao;
+import by.itechart.javalab.dao.memory.ContactFindMemoryDao;
+import by.itechart.javalab.dao.memory.ContactModificationMemoryDao;
+import by.itechart.javalab.dao.memory.ContactPurgeMemoryDao;
+import by.itechart.javalab.dao.memory.MemoryContactStore;
+
+public final class MemoryDaoFactory extends DaoFactory {
+	private final static MemoryDaoFactory instance = new MemoryDaoFactory();
+
+	private MemoryDaoFactory(){}
+
+	public final static MemoryDaoFactory getInstance(){
+		return instance;
+	}
+
+    @Override
+    public ContactFindDao getContactFindDao() {
+        return ContactFindMemoryDao.getInstance();
+    }
+
+    @Override
+    public ContactModificationDao getContactModificationDao() {
+        return ContactModificationMemoryDao.getInstance();
+    }
+
+    @Override
+    public ContactAttributes getContactAttributes() {
+        return ContactAttributesMemoryDao.getInstance();
+    }
+
+    @Override
+    public ContactPurgeDao getContactPurgeDao() {
+        return ContactPurgeMemoryDao.getInstance();
+    }
+
+    @Override
+    public void shutdown() {
+        MemoryContactStore.getInstance().saveSnapshot();
+    }
+}
@@ -4,10 +4,12 @@ package by.itechart.javalab.dao.factoryimpl;
 import by.itechart.javalab.dao.ContactAttributes;
 import by.itechart.javalab.dao.ContactFindDao;
 import by.itechart.javalab.dao.ContactModificationDao;
+import by.itechart.javalab.dao.ContactPurgeDao;
 import by.itechart.javalab.dao.DaoFactory;
 import by.itechart.javalab.dao.mysql.ContactAttributesMysqlDao;
 import by.itechart.javalab.dao.mysql.ContactFindMysqlDao;
 import by.itechart.javalab.dao.mysql.ContactModificationMysqlDao;
+import by.itechart.javalab.dao.mysql.ContactPurgeMysqlDao;
 
 public final class MysqlDaoFactory extends DaoFactory {
 	private final static MysqlDaoFactory instance = new MysqlDaoFactory();
@@ -32,4 +34,9 @@ public final class MysqlDaoFactory extends DaoFactory {
     public ContactAttributes getContactAttributes() {
         return ContactAttributesMysqlDao.getInstance();
     }
+
+    @Override
+    public ContactPurgeDao getContactPurgeDao() {
+        return ContactPurgeMysqlDao.getInstance();
+    }
 }
@@ -0,0 +1,42 @@
+package by.itechart.javalab.dao.factoryimpl;
+
+
+import by.itechart.javalab.dao.ContactAttributes;
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.ContactModificationDao;
+import by.itechart.javalab.dao.ContactPurgeDao;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.dao.sharded.ContactAttributesShardedDao;
+import by.itechart.javalab.dao.sharded.ContactFindShardedDao;
+import by.itechart.javalab.dao.sharded.ContactModificationShardedDao;
+import by.itechart.javalab.dao.sharded.ContactPurgeShardedDao;
+
+public final class ShardedDaoFactory extends DaoFactory {
+	private final static ShardedDaoFactory instance = new ShardedDaoFactory();
+
+	private ShardedDaoFactory(){}
+
+	public final static ShardedDaoFactory getInstance(){
+		return instance;
+	}
+
+    @Override
+    public ContactFindDao getContactFindDao() {
+        return ContactFindShardedDao.getInstance();
+    }
+
+    @Override
+    public ContactModificationDao getContactModificationDao() {
+        return ContactModificationShardedDao.getInstance();
+    }
+
+    @Override
+    public ContactAttributes getContactAttributes() {
+        return ContactAttributesShardedDao.getInstance();
+    }
+
+    @Override
+    public ContactPurgeDao getContactPurgeDao() {
+        return ContactPurgeShardedDao.getInstance();
+    }
+}
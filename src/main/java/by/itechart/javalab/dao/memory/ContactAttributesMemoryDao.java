@@ -0,0 +1,29 @@
+package by.itechart.javalab.dao.memory;
+
+import by.itechart.javalab.dao.ContactAttributes;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.entity.Country;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+public final class ContactAttributesMemoryDao implements ContactAttributes {
+    private final static ContactAttributesMemoryDao instance = new ContactAttributesMemoryDao();
+    private final MemoryContactStore store = MemoryContactStore.getInstance();
+
+    private ContactAttributesMemoryDao() {}
+
+    public static ContactAttributesMemoryDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public List<Country> getCountries() throws DaoException {
+        List<Country> countries = new ArrayList<>();
+        for (Country country : store.getCountries()) {
+            countries.add(new Country(country.getIdCountryCode(), country.getFullName()));
+        }
+        return countries;
+    }
+}
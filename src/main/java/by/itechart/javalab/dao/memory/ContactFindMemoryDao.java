@@ -0,0 +1,379 @@
+package by.itechart.javalab.dao.memory;
+
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.service.ContactPage;
+import by.itechart.javalab.service.ContactProjection;
+import by.itechart.javalab.service.ContactRowHandler;
+import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.PageRequest;
+import by.itechart.javalab.util.BirthdayCalendar;
+import by.itechart.javalab.util.PhoneKeys;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+public final class ContactFindMemoryDao implements ContactFindDao {
+    private final static ContactFindMemoryDao instance = new ContactFindMemoryDao();
+    private static Logger log = LogManager.getLogger(ContactFindMemoryDao.class.getName());
+    private final MemoryContactStore store = MemoryContactStore.getInstance();
+
+    private ContactFindMemoryDao() {}
+
+    public static ContactFindMemoryDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public ContactPage getContacts(PageRequest pageRequest) throws DaoException {
+        return getContacts(null, pageRequest);
+    }
+
+    @Override
+    public ContactPage getContacts(ContactSearchAttributes searchAttributes, PageRequest pageRequest) throws DaoException {
+        log.debug("getContacts: {}", pageRequest);
+        Set<Long> candidates = findCandidates(searchAttributes);
+        IndexedField sortField = IndexedField.forSortOrder(pageRequest.getSortOrder());
+        int limit = pageRequest.getPageSize() + 1;
+        List<Long> ids;
+        if (candidates != null) {
+            ids = getSortedIds(candidates, sortField, pageRequest, limit);
+        } else if (sortField == null) {
+            ids = getIdsById(pageRequest, limit);
+        } else {
+            ids = getIdsByIndex(sortField, pageRequest, limit);
+        }
+        List<Contact> contacts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Contact stored = store.getContact(id);
+            if (stored != null) {
+                contacts.add(project(stored, ContactProjection.SUMMARY));
+            }
+        }
+        return toPage(contacts, pageRequest);
+    }
+
+    // null when nothing is searched for; every criterion is an index lookup, the postings are intersected
+    private Set<Long> findCandidates(ContactSearchAttributes attributes) {
+        if (attributes == null) {
+            return null;
+        }
+        Set<Long> candidates = null;
+        for (IndexedField field : IndexedField.values()) {
+            if (!field.isSet(attributes)) {
+                continue;
+            }
+            String key = IndexedField.toKey(field.getCriterion(attributes));
+            // an unknown country compares with NULL in SQL and matches nothing
+            candidates = key == null ? new HashSet<Long>() : intersect(candidates, store.getIndex(field).get(key));
+        }
+        Date from = attributes.getBirthdayDateFrom();
+        Date to = attributes.getBirthdayDateTo();
+        if (from != null || to != null) {
+            Set<Long> birthdays = new HashSet<>();
+            for (NavigableSet<Long> ids : store.getIndex(IndexedField.BIRTHDAY)
+                    .range(IndexedField.toKey(from), IndexedField.toKey(to)).values()) {
+                birthdays.addAll(ids);
+            }
+            candidates = intersect(candidates, birthdays);
+        }
+        String phoneKey = PhoneKeys.normalize(attributes.getPhone());
+        if (phoneKey != null) {
+            MemoryIndex<String> phoneKeys = store.getPhoneKeys();
+            if (attributes.isPhonePrefix()) {
+                // keys are digits, ':' sorts right after '9'
+                Set<Long> phones = new HashSet<>();
+                for (NavigableSet<Long> ids : phoneKeys.range(phoneKey, phoneKey + ':').values()) {
+                    phones.addAll(ids);
+                }
+                candidates = intersect(candidates, phones);
+            } else {
+                candidates = intersect(candidates, phoneKeys.get(phoneKey));
+            }
+        }
+        return candidates;
+    }
+
+    private Set<Long> intersect(Set<Long> candidates, Set<Long> ids) {
+        if (candidates == null) {
+            return new HashSet<>(ids);
+        }
+        candidates.retainAll(ids);
+        return candidates;
+    }
+
+    private List<Long> getIdsById(PageRequest pageRequest, int limit) {
+        NavigableMap<Long, Contact> contacts = store.getContacts();
+        if (pageRequest.hasCursor()) {
+            contacts = pageRequest.isBackward()
+                    ? contacts.headMap(pageRequest.getCursorId(), false).descendingMap()
+                    : contacts.tailMap(pageRequest.getCursorId(), false);
+        }
+        List<Long> ids = new ArrayList<>(limit);
+        addIds(ids, contacts.keySet(), limit);
+        return ids;
+    }
+
+    // walks the sort index from the cursor, the same (column, idContact) keyset the SQL query seeks by
+    private List<Long> getIdsByIndex(IndexedField sortField, PageRequest pageRequest, int limit) {
+        MemoryIndex<String> index = store.getIndex(sortField);
+        List<Long> ids = new ArrayList<>(limit);
+        if (!pageRequest.hasCursor()) {
+            if (addIds(ids, index.getNullIds(), limit)) {
+                for (NavigableSet<Long> keyIds : index.getEntries().values()) {
+                    if (!addIds(ids, keyIds, limit)) {
+                        break;
+                    }
+                }
+            }
+            return ids;
+        }
+        boolean backward = pageRequest.isBackward();
+        String cursorKey = IndexedField.toKey(pageRequest.getCursorValue());
+        Long cursorId = pageRequest.getCursorId();
+        NavigableMap<String, NavigableSet<Long>> entries = backward
+                ? index.getEntries().headMap(cursorKey, true).descendingMap()
+                : index.getEntries().tailMap(cursorKey, true);
+        for (Map.Entry<String, NavigableSet<Long>> entry : entries.entrySet()) {
+            NavigableSet<Long> keyIds = entry.getValue();
+            if (entry.getKey().equals(cursorKey)) {
+                keyIds = backward ? keyIds.headSet(cursorId, false).descendingSet() : keyIds.tailSet(cursorId, false);
+            } else if (backward) {
+                keyIds = keyIds.descendingSet();
+            }
+            if (!addIds(ids, keyIds, limit)) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    private List<Long> getSortedIds(Set<Long> candidates, final IndexedField sortField, PageRequest pageRequest,
+                                    int limit) {
+        List<Contact> rows = new ArrayList<>(candidates.size());
+        for (Long id : candidates) {
+            Contact stored = store.getContact(id);
+            if (stored != null) {
+                rows.add(stored);
+            }
+        }
+        Collections.sort(rows, new Comparator<Contact>() {
+            @Override
+            public int compare(Contact first, Contact second) {
+                return compareKeys(getSortKey(sortField, first), first.getIdContact(),
+                        getSortKey(sortField, second), second.getIdContact());
+            }
+        });
+        if (pageRequest.isBackward()) {
+            Collections.reverse(rows);
+        }
+        String cursorKey = sortField == null ? null : IndexedField.toKey(pageRequest.getCursorValue());
+        List<Long> ids = new ArrayList<>(limit);
+        for (Contact row : rows) {
+            if (ids.size() == limit) {
+                break;
+            }
+            if (pageRequest.hasCursor()) {
+                String key = getSortKey(sortField, row);
+                // a cursor comparison is never true for NULL, those rows only show up on the first page
+                if (sortField != null && key == null) {
+                    continue;
+                }
+                int comparison = compareKeys(key, row.getIdContact(), cursorKey, pageRequest.getCursorId());
+                if (pageRequest.isBackward() ? comparison >= 0 : comparison <= 0) {
+                    continue;
+                }
+            }
+            ids.add(row.getIdContact());
+        }
+        return ids;
+    }
+
+    private String getSortKey(IndexedField sortField, Contact contact) {
+        return sortField == null ? null : sortField.getKey(contact);
+    }
+
+    private static int compareKeys(String key, Long id, String otherKey, Long otherId) {
+        if (key == null ? otherKey != null : !key.equals(otherKey)) {
+            if (key == null) {
+                return -1;
+            }
+            return otherKey == null ? 1 : key.compareTo(otherKey);
+        }
+        return id.compareTo(otherId);
+    }
+
+    private boolean addIds(List<Long> ids, Collection<Long> source, int limit) {
+        for (Long id : source) {
+            if (ids.size() == limit) {
+                return false;
+            }
+            ids.add(id);
+        }
+        return ids.size() < limit;
+    }
+
+    private ContactPage toPage(List<Contact> contacts, PageRequest pageRequest) {
+        boolean hasMore = contacts.size() > pageRequest.getPageSize();
+        if (hasMore) {
+            contacts.remove(contacts.size() - 1);
+        }
+        if (pageRequest.isBackward()) {
+            Collections.reverse(contacts);
+            return new ContactPage(contacts, pageRequest, true, hasMore);
+        }
+        return new ContactPage(contacts, pageRequest, hasMore, pageRequest.hasCursor());
+    }
+
+    @Override
+    public Contact getContact(Long contactId) throws DaoException {
+        log.debug("getContact: {}", contactId);
+        Contact stored = store.getContact(contactId);
+        if (stored == null) {
+            Contact contact = new Contact();
+            contact.setIdContact(contactId);
+            contact.setPhoneList(new ArrayList<ContactPhone>());
+            contact.setAttachmentList(new ArrayList<ContactAttachment>());
+            return contact;
+        }
+        return new Contact(stored);
+    }
+
+    @Override
+    public List<Contact> getContacts(Collection<Long> contactIds, ContactProjection projection) throws DaoException {
+        log.debug("getContacts: {} ids, {}", contactIds.size(), projection);
+        Set<Long> uniqueIds = new LinkedHashSet<>(contactIds);
+        uniqueIds.remove(null);
+        List<Contact> contacts = new ArrayList<>(uniqueIds.size());
+        for (Long id : uniqueIds) {
+            Contact stored = store.getContact(id);
+            if (stored != null) {
+                contacts.add(project(stored, projection));
+            }
+        }
+        return contacts;
+    }
+
+    // copies only what the matching SQL query selects, so callers can't come to rely on more
+    private Contact project(Contact stored, ContactProjection projection) {
+        if (projection == ContactProjection.FULL) {
+            return new Contact(stored);
+        }
+        Contact contact = new Contact();
+        contact.setIdContact(stored.getIdContact());
+        contact.setName(stored.getName());
+        contact.setSurname(stored.getSurname());
+        if (projection == ContactProjection.EMAIL) {
+            contact.setPatronymic(stored.getPatronymic());
+            contact.setEmail(stored.getEmail());
+            return contact;
+        }
+        contact.setBirthday(stored.getBirthday());
+        contact.setCompany(stored.getCompany());
+        Address address = new Address();
+        if (stored.getAddress() != null) {
+            address.setCity(stored.getAddress().getCity());
+            address.setStreet(stored.getAddress().getStreet());
+            address.setHouseNumber(stored.getAddress().getHouseNumber());
+            address.setApartmentNumber(stored.getAddress().getApartmentNumber());
+        }
+        contact.setAddress(address);
+        return contact;
+    }
+
+    @Override
+    public List<Long> getContactIds(ContactSearchAttributes searchAttributes) throws DaoException {
+        log.debug("getContactIds: ");
+        Set<Long> candidates = findCandidates(searchAttributes);
+        return new ArrayList<>(candidates == null ? store.getContacts().keySet() : candidates);
+    }
+
+    @Override
+    public void exportContacts(ContactSearchAttributes searchAttributes, ContactRowHandler handler) throws DaoException {
+        log.debug("exportContacts: ");
+        Set<Long> candidates = findCandidates(searchAttributes);
+        Collection<Long> ids = candidates == null ? store.getContacts().keySet() : new TreeSet<>(candidates);
+        try {
+            for (Long id : ids) {
+                Contact stored = store.getContact(id);
+                if (stored == null) {
+                    continue;
+                }
+                Contact contact = new Contact(stored);
+                contact.setAttachmentList(new ArrayList<ContactAttachment>());
+                handler.handle(contact);
+            }
+        } catch (Exception ex) {
+            log.error(ex);
+            throw new DaoException("Can't export contacts.", ex);
+        }
+    }
+
+    @Override
+    public List<String> getEmails(Collection<Long> contactIds) throws DaoException {
+        log.debug("getEmails: {}", contactIds.size());
+        List<String> emails = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(contactIds)) {
+            Contact stored = store.getContact(id);
+            if (stored != null) {
+                emails.add(stored.getEmail());
+            }
+        }
+        return emails;
+    }
+
+    @Override
+    public List<Contact> getBirthdayContacts() throws DaoException {
+        return getUpcomingBirthdayContacts(0);
+    }
+
+    @Override
+    public List<Contact> getUpcomingBirthdayContacts(int days) throws DaoException {
+        log.debug("getUpcomingBirthdayContacts: {}", days);
+        List<int[]> ranges = BirthdayCalendar.getMonthDayRanges(new Date(), days);
+        final int start = ranges.get(0)[0];
+        List<Contact> contacts = new ArrayList<>();
+        for (int[] range : ranges) {
+            for (NavigableSet<Long> ids : store.getBirthdayMonthDays().range(range[0], range[1]).values()) {
+                for (Long id : ids) {
+                    Contact stored = store.getContact(id);
+                    if (stored != null) {
+                        Contact contact = project(stored, ContactProjection.EMAIL);
+                        contact.setBirthday(stored.getBirthday());
+                        contacts.add(contact);
+                    }
+                }
+            }
+        }
+        // same order as the SQL query
+        Collections.sort(contacts, new Comparator<Contact>() {
+            @Override
+            public int compare(Contact first, Contact second) {
+                int comparison = BirthdayCalendar.compareUpcoming(first.getBirthday(), second.getBirthday(), start);
+                if (comparison != 0) {
+                    return comparison;
+                }
+                return first.getIdContact().compareTo(second.getIdContact());
+            }
+        });
+        return contacts;
+    }
+}
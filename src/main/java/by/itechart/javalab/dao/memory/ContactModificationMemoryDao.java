@@ -0,0 +1,346 @@
+package by.itechart.javalab.dao.memory;
+
+import by.itechart.javalab.dao.ContactModificationDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.StaleContactException;
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.service.ContactChanges;
+import by.itechart.javalab.service.ContactField;
+import by.itechart.javalab.service.DeletionCounts;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+public final class ContactModificationMemoryDao implements ContactModificationDao {
+    private final static ContactModificationMemoryDao instance = new ContactModificationMemoryDao();
+    private static Logger log = LogManager.getLogger(ContactModificationMemoryDao.class.getName());
+    private final MemoryContactStore store = MemoryContactStore.getInstance();
+
+    private ContactModificationMemoryDao() {}
+
+    public static ContactModificationMemoryDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public Contact addNewContact(Contact contact) throws DaoException {
+        log.debug("addNewContact: {}, {}", contact.getSurname(), contact.getEmail());
+        store.beginWrite();
+        insert(contact, true);
+        return contact;
+    }
+
+    // like the batched insert, only phones are written along with the contacts
+    @Override
+    public void addNewContacts(List<Contact> contacts) throws DaoException {
+        log.debug("addNewContacts: {}", contacts.size());
+        if (contacts.isEmpty()) {
+            return;
+        }
+        store.beginWrite();
+        for (Contact contact : contacts) {
+            insert(contact, false);
+        }
+    }
+
+    private void insert(Contact contact, boolean withAttachments) {
+        contact.setIdContact(store.nextContactId());
+        contact.setVersion(0);
+        Contact stored = new Contact(contact);
+        stored.setPhoneList(new ArrayList<ContactPhone>());
+        stored.setAttachmentList(new ArrayList<ContactAttachment>());
+        if (contact.getPhoneList() != null) {
+            for (ContactPhone phone : contact.getPhoneList()) {
+                phone.setIdContact(contact.getIdContact());
+                phone.setIdPhone(store.nextPhoneId());
+                stored.getPhoneList().add(new ContactPhone(phone));
+            }
+        }
+        if (withAttachments && contact.getAttachmentList() != null) {
+            for (ContactAttachment attachment : contact.getAttachmentList()) {
+                attachment.setIdContact(contact.getIdContact());
+                attachment.setIdAttachment(store.nextAttachmentId());
+                stored.getAttachmentList().add(new ContactAttachment(attachment));
+            }
+        }
+        store.putContact(stored);
+    }
+
+    @Override
+    public Contact getStoredContact(Long contactId) throws DaoException {
+        log.debug("getStoredContact: {}", contactId);
+        Contact stored = store.getContact(contactId);
+        return stored == null ? null : new Contact(stored);
+    }
+
+    @Override
+    public Contact updateContact(final Contact contact, ContactChanges changes) throws DaoException {
+        log.debug("updateContact: {}, {}", contact.getIdContact(), changes);
+        if (changes.isEmpty()) {
+            return contact;
+        }
+        store.beginWrite();
+        Contact stored = store.getContact(contact.getIdContact());
+        if (stored == null || !Objects.equals(stored.getVersion(), contact.getVersion())) {
+            throw new StaleContactException("Contact " + contact.getIdContact() + " has been changed since version "
+                    + contact.getVersion() + ".");
+        }
+        Contact updated = new Contact(stored);
+        for (ContactField field : changes.getFields()) {
+            copyField(field, contact, updated);
+        }
+        for (ContactPhone phone : changes.getPhones()) {
+            ContactPhone copy = new ContactPhone(phone);
+            copy.setIdContact(contact.getIdContact());
+            replacePhone(updated, copy);
+        }
+        for (ContactAttachment attachment : changes.getAttachments()) {
+            ContactAttachment current = findAttachment(updated, attachment.getIdAttachment());
+            if (current != null) {
+                current.setFileName(attachment.getFileName());
+                current.setComment(attachment.getComment());
+            }
+        }
+        updated.setVersion(stored.getVersion() + 1);
+        store.putContact(updated);
+        // the store undoes its row on rollback, the entity gets its version back the same way
+        final Integer version = contact.getVersion();
+        contact.setVersion(updated.getVersion());
+        PersistenceManager.runOnRollback(new Runnable() {
+            @Override
+            public void run() {
+                contact.setVersion(version);
+            }
+        });
+        return contact;
+    }
+
+    private void copyField(ContactField field, Contact source, Contact target) {
+        Address from = source.getAddress() == null ? new Address() : source.getAddress();
+        if (target.getAddress() == null) {
+            target.setAddress(new Address());
+        }
+        Address to = target.getAddress();
+        switch (field) {
+            case NAME:
+                target.setName(source.getName());
+                break;
+            case SURNAME:
+                target.setSurname(source.getSurname());
+                break;
+            case PATRONYMIC:
+                target.setPatronymic(source.getPatronymic());
+                break;
+            case BIRTHDAY:
+                target.setBirthday(source.getBirthday());
+                break;
+            case GENDER:
+                target.setGender(source.getGender());
+                break;
+            case MARITAL_STATUS:
+                target.setMaritalStatus(source.getMaritalStatus());
+                break;
+            case CITIZENSHIP:
+                target.setCitizenship(source.getCitizenship());
+                break;
+            case WEBSITE:
+                target.setWebsite(source.getWebsite());
+                break;
+            case EMAIL:
+                target.setEmail(source.getEmail());
+                break;
+            case COMPANY:
+                target.setCompany(source.getCompany());
+                break;
+            case CITY:
+                to.setCity(from.getCity());
+                break;
+            case STREET:
+                to.setStreet(from.getStreet());
+                break;
+            case HOUSE_NUMBER:
+                to.setHouseNumber(from.getHouseNumber());
+                break;
+            case APARTMENT_NUMBER:
+                to.setApartmentNumber(from.getApartmentNumber());
+                break;
+            case ZIP_CODE:
+                to.setZipCode(from.getZipCode());
+                break;
+            case COUNTRY:
+                to.setIdCountry(from.getIdCountry());
+                break;
+        }
+    }
+
+    private void replacePhone(Contact contact, ContactPhone phone) {
+        List<ContactPhone> phones = contact.getPhoneList();
+        for (int i = 0; i < phones.size(); i++) {
+            if (phones.get(i).getIdPhone().equals(phone.getIdPhone())) {
+                phones.set(i, phone);
+                return;
+            }
+        }
+    }
+
+    private ContactAttachment findAttachment(Contact contact, Long attachmentId) {
+        for (ContactAttachment attachment : contact.getAttachmentList()) {
+            if (attachment.getIdAttachment().equals(attachmentId)) {
+                return attachment;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public DeletionCounts deleteContacts(Long[] contactsId) throws DaoException {
+        log.debug("deleteContacts: {}", contactsId.length);
+        DeletionCounts counts = new DeletionCounts();
+        store.beginWrite();
+        Date deletedAt = new Date();
+        for (Long id : new LinkedHashSet<>(Arrays.asList(contactsId))) {
+            Contact stored = store.getContact(id);
+            if (stored == null) {
+                continue;
+            }
+            store.removeContact(id);
+            store.putDeletedContact(id, new DeletedRow<>(stored, deletedAt));
+            counts.add(new DeletionCounts(1, stored.getPhoneList().size(), stored.getAttachmentList().size()));
+        }
+        return counts;
+    }
+
+    @Override
+    public void saveContactPhones(List<ContactPhone> phones) throws DaoException {
+        log.debug("saveContactPhones: {}", phones);
+        if (phones.isEmpty()) {
+            return;
+        }
+        store.beginWrite();
+        Map<Long, Contact> updated = new LinkedHashMap<>();
+        for (ContactPhone phone : phones) {
+            Contact contact = getCopy(updated, phone.getIdContact());
+            if (contact == null) {
+                throw new DaoException("Can't save contact phones.");
+            }
+            phone.setIdPhone(store.nextPhoneId());
+            contact.getPhoneList().add(new ContactPhone(phone));
+        }
+        putAll(updated);
+    }
+
+    @Override
+    public void deleteContactPhones(List<ContactPhone> phones) throws DaoException {
+        log.debug("deleteContactPhones: {}", phones);
+        if (phones.isEmpty()) {
+            return;
+        }
+        store.beginWrite();
+        Date deletedAt = new Date();
+        Map<Long, Contact> updated = new LinkedHashMap<>();
+        for (ContactPhone phone : phones) {
+            Contact contact = getCopy(updated, store.getPhoneOwner(phone.getIdPhone()));
+            if (contact == null) {
+                continue;
+            }
+            Iterator<ContactPhone> iterator = contact.getPhoneList().iterator();
+            while (iterator.hasNext()) {
+                ContactPhone stored = iterator.next();
+                if (stored.getIdPhone().equals(phone.getIdPhone())) {
+                    iterator.remove();
+                    store.putDeletedPhone(stored.getIdPhone(), new DeletedRow<>(stored, deletedAt));
+                }
+            }
+        }
+        putAll(updated);
+    }
+
+    @Override
+    public List<ContactAttachment> saveContactAttachments(List<ContactAttachment> attachments) throws DaoException {
+        log.debug("saveContactAttachments: {}", attachments);
+        if (attachments.isEmpty()) {
+            return attachments;
+        }
+        store.beginWrite();
+        Map<Long, Contact> updated = new LinkedHashMap<>();
+        for (ContactAttachment attachment : attachments) {
+            Contact contact = getCopy(updated, attachment.getIdContact());
+            if (contact == null) {
+                throw new DaoException("Can't save contact attachments.");
+            }
+            attachment.setIdAttachment(store.nextAttachmentId());
+            contact.getAttachmentList().add(new ContactAttachment(attachment));
+        }
+        putAll(updated);
+        return attachments;
+    }
+
+    @Override
+    public void updateContactAttachments(Contact contact) throws DaoException {
+        log.debug("updateContactAttachments: {}, {}", contact.getEmail(), contact.getAttachmentList());
+        store.beginWrite();
+        Map<Long, Contact> updated = new LinkedHashMap<>();
+        for (ContactAttachment attachment : contact.getAttachmentList()) {
+            Contact owner = getCopy(updated, store.getAttachmentOwner(attachment.getIdAttachment()));
+            ContactAttachment stored = owner == null ? null : findAttachment(owner, attachment.getIdAttachment());
+            if (stored != null) {
+                stored.setRealFileName(attachment.getRealFileName());
+            }
+        }
+        putAll(updated);
+    }
+
+    @Override
+    public void deleteContactAttachments(List<ContactAttachment> attachments) throws DaoException {
+        log.debug("deleteContactAttachments: {}", attachments);
+        if (attachments.isEmpty()) {
+            return;
+        }
+        store.beginWrite();
+        Date deletedAt = new Date();
+        Map<Long, Contact> updated = new LinkedHashMap<>();
+        for (ContactAttachment attachment : attachments) {
+            Contact contact = getCopy(updated, store.getAttachmentOwner(attachment.getIdAttachment()));
+            ContactAttachment stored = contact == null ? null : findAttachment(contact, attachment.getIdAttachment());
+            if (stored != null) {
+                contact.getAttachmentList().remove(stored);
+                store.putDeletedAttachment(stored.getIdAttachment(), new DeletedRow<>(stored, deletedAt));
+            }
+        }
+        putAll(updated);
+    }
+
+    // one copy per touched contact, written back once all rows of the call are applied
+    private Contact getCopy(Map<Long, Contact> updated, Long contactId) {
+        Contact contact = updated.get(contactId);
+        if (contact == null) {
+            Contact stored = store.getContact(contactId);
+            if (stored == null) {
+                return null;
+            }
+            contact = new Contact(stored);
+            updated.put(contactId, contact);
+        }
+        return contact;
+    }
+
+    private void putAll(Map<Long, Contact> updated) {
+        for (Contact contact : updated.values()) {
+            store.putContact(contact);
+        }
+    }
+}
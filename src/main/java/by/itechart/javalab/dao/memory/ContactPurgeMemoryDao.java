@@ -0,0 +1,138 @@
+package by.itechart.javalab.dao.memory;
+
+import by.itechart.javalab.dao.ContactPurgeDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+// There are no archive tables in memory, purged rows are dropped.
+public final class ContactPurgeMemoryDao implements ContactPurgeDao {
+    private final static ContactPurgeMemoryDao instance = new ContactPurgeMemoryDao();
+    private static Logger log = LogManager.getLogger(ContactPurgeMemoryDao.class.getName());
+    private final MemoryContactStore store = MemoryContactStore.getInstance();
+
+    private ContactPurgeMemoryDao() {}
+
+    public static ContactPurgeMemoryDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public List<Long> getDeletedContactIds(Date deletedBefore, int limit) throws DaoException {
+        log.debug("getDeletedContactIds: {}, {}", deletedBefore, limit);
+        return getDeletedIds(store.getDeletedContacts(), deletedBefore, limit);
+    }
+
+    @Override
+    public List<ContactAttachment> purgeContacts(List<Long> contactIds) throws DaoException {
+        log.debug("purgeContacts: {}", contactIds.size());
+        List<ContactAttachment> attachments = new ArrayList<>();
+        if (contactIds.isEmpty()) {
+            return attachments;
+        }
+        store.beginWrite();
+        Set<Long> ids = new HashSet<>(contactIds);
+        for (Long id : ids) {
+            DeletedRow<Contact> row = store.getDeletedContacts().get(id);
+            if (row != null) {
+                for (ContactAttachment attachment : row.getRow().getAttachmentList()) {
+                    attachments.add(toPurged(attachment));
+                }
+                store.removeDeletedContact(id);
+            }
+        }
+        for (DeletedRow<ContactAttachment> row : new ArrayList<>(store.getDeletedAttachments().values())) {
+            if (ids.contains(row.getRow().getIdContact())) {
+                attachments.add(toPurged(row.getRow()));
+                store.removeDeletedAttachment(row.getRow().getIdAttachment());
+            }
+        }
+        for (DeletedRow<ContactPhone> row : new ArrayList<>(store.getDeletedPhones().values())) {
+            if (ids.contains(row.getRow().getIdContact())) {
+                store.removeDeletedPhone(row.getRow().getIdPhone());
+            }
+        }
+        return attachments;
+    }
+
+    @Override
+    public List<ContactAttachment> purgeAttachments(Date deletedBefore, int limit) throws DaoException {
+        log.debug("purgeAttachments: {}, {}", deletedBefore, limit);
+        List<ContactAttachment> attachments = new ArrayList<>();
+        List<Long> ids = getDeletedIds(store.getDeletedAttachments(), deletedBefore, limit);
+        if (ids.isEmpty()) {
+            return attachments;
+        }
+        store.beginWrite();
+        for (Long id : ids) {
+            DeletedRow<ContactAttachment> row = store.getDeletedAttachments().get(id);
+            if (row != null) {
+                attachments.add(toPurged(row.getRow()));
+                store.removeDeletedAttachment(id);
+            }
+        }
+        return attachments;
+    }
+
+    @Override
+    public int purgePhones(Date deletedBefore, int limit) throws DaoException {
+        log.debug("purgePhones: {}, {}", deletedBefore, limit);
+        List<Long> ids = getDeletedIds(store.getDeletedPhones(), deletedBefore, limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        store.beginWrite();
+        int count = 0;
+        for (Long id : ids) {
+            if (store.getDeletedPhones().containsKey(id)) {
+                store.removeDeletedPhone(id);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private <T extends Serializable> List<Long> getDeletedIds(Map<Long, DeletedRow<T>> rows, Date deletedBefore,
+                                                              int limit) {
+        List<Map.Entry<Long, DeletedRow<T>>> deleted = new ArrayList<>();
+        for (Map.Entry<Long, DeletedRow<T>> entry : rows.entrySet()) {
+            if (entry.getValue().getDeletedAt().before(deletedBefore)) {
+                deleted.add(entry);
+            }
+        }
+        Collections.sort(deleted, new Comparator<Map.Entry<Long, DeletedRow<T>>>() {
+            @Override
+            public int compare(Map.Entry<Long, DeletedRow<T>> first, Map.Entry<Long, DeletedRow<T>> second) {
+                int comparison = first.getValue().getDeletedAt().compareTo(second.getValue().getDeletedAt());
+                return comparison != 0 ? comparison : first.getKey().compareTo(second.getKey());
+            }
+        });
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, DeletedRow<T>> entry : deleted.subList(0, Math.min(limit, deleted.size()))) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+
+    private ContactAttachment toPurged(ContactAttachment stored) {
+        ContactAttachment attachment = new ContactAttachment();
+        attachment.setIdAttachment(stored.getIdAttachment());
+        attachment.setRealFileName(stored.getRealFileName());
+        attachment.setIdContact(stored.getIdContact());
+        return attachment;
+    }
+}
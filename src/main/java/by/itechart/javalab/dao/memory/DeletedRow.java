@@ -0,0 +1,24 @@
+package by.itechart.javalab.dao.memory;
+
+import java.io.Serializable;
+import java.util.Date;
+
+
+final class DeletedRow<T extends Serializable> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final T row;
+    private final Date deletedAt;
+
+    DeletedRow(T row, Date deletedAt) {
+        this.row = row;
+        this.deletedAt = deletedAt;
+    }
+
+    T getRow() {
+        return row;
+    }
+
+    Date getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -0,0 +1,159 @@
+package by.itechart.javalab.dao.memory;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.ContactField;
+import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.ContactSortOrder;
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+
+enum IndexedField {
+    NAME(ContactField.NAME) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getName();
+        }
+    },
+    SURNAME(ContactField.SURNAME) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getSurname();
+        }
+    },
+    PATRONYMIC(ContactField.PATRONYMIC) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getPatronymic();
+        }
+    },
+    CITIZENSHIP(ContactField.CITIZENSHIP) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getCitizenship();
+        }
+    },
+    GENDER(ContactField.GENDER) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getGender();
+        }
+    },
+    MARITAL_STATUS(ContactField.MARITAL_STATUS) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getMaritalStatus();
+        }
+    },
+    COUNTRY(ContactField.COUNTRY) {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getCountry());
+        }
+
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return getAddress(attributes).getIdCountry();
+        }
+    },
+    CITY(ContactField.CITY) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return getAddress(attributes).getCity();
+        }
+    },
+    STREET(ContactField.STREET) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return getAddress(attributes).getStreet();
+        }
+    },
+    HOUSE_NUMBER(ContactField.HOUSE_NUMBER) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return getAddress(attributes).getHouseNumber();
+        }
+    },
+    APARTMENT_NUMBER(ContactField.APARTMENT_NUMBER) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return getAddress(attributes).getApartmentNumber();
+        }
+    },
+    ZIP_CODE(ContactField.ZIP_CODE) {
+        @Override
+        Object getCriterion(ContactSearchAttributes attributes) {
+            return getAddress(attributes).getZipCode();
+        }
+    },
+    // birthday is searched by range and company is only sorted on, neither is an equality criterion
+    BIRTHDAY(ContactField.BIRTHDAY) {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return false;
+        }
+    },
+    COMPANY(ContactField.COMPANY) {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return false;
+        }
+    };
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private final ContactField field;
+
+    IndexedField(ContactField field) {
+        this.field = field;
+    }
+
+    String getKey(Contact contact) {
+        return toKey(field.getValue(contact));
+    }
+
+    boolean isSet(ContactSearchAttributes attributes) {
+        Object criterion = getCriterion(attributes);
+        return criterion != null && !"".equals(criterion);
+    }
+
+    Object getCriterion(ContactSearchAttributes attributes) {
+        return null;
+    }
+
+    static IndexedField forSortOrder(ContactSortOrder sortOrder) {
+        switch (sortOrder) {
+            case SURNAME:
+                return SURNAME;
+            case BIRTHDAY:
+                return BIRTHDAY;
+            case COMPANY:
+                return COMPANY;
+            case CITY:
+                return CITY;
+            default:
+                return null;
+        }
+    }
+
+    // keys compare like the case insensitive collation of the contact table, dates sort as yyyy-MM-dd
+    static String toKey(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return new SimpleDateFormat(DATE_PATTERN).format((Date) value);
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static Address getAddress(ContactSearchAttributes attributes) {
+        return attributes.getAddress() == null ? new Address() : attributes.getAddress();
+    }
+}
@@ -0,0 +1,409 @@
+package by.itechart.javalab.dao.memory;
+
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.entity.Country;
+import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.util.BirthdayCalendar;
+import by.itechart.javalab.util.PhoneKeys;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+// Rows of the in-memory storage. Stored contacts are never changed in place: a write puts a new copy and
+// registers its undo with the current transaction. Writers hold one lock until their transaction completes,
+// readers don't lock and may see rows of a transaction that is still open.
+public final class MemoryContactStore {
+    private static Logger log = LogManager.getLogger(MemoryContactStore.class.getName());
+    private static final IndexedField[] FIELDS = IndexedField.values();
+    // created after the fields above, the constructor already loads the snapshot
+    private final static MemoryContactStore instance = new MemoryContactStore();
+    private final ConcurrentSkipListMap<Long, Contact> contacts = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, DeletedRow<Contact>> deletedContacts = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, DeletedRow<ContactPhone>> deletedPhones = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, DeletedRow<ContactAttachment>> deletedAttachments = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Long> phoneOwners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> attachmentOwners = new ConcurrentHashMap<>();
+    private final Map<IndexedField, MemoryIndex<String>> indexes = new EnumMap<>(IndexedField.class);
+    private final MemoryIndex<Integer> birthdayMonthDays = new MemoryIndex<>();
+    // a contact is listed once under each of its phone keys
+    private final MemoryIndex<String> phoneKeys = new MemoryIndex<>();
+    private final AtomicLong contactSequence = new AtomicLong();
+    private final AtomicLong phoneSequence = new AtomicLong();
+    private final AtomicLong attachmentSequence = new AtomicLong();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Country> countries = new ArrayList<>();
+    private final Map<Integer, String> countryNames = new HashMap<>();
+    private final String snapshotFile;
+
+    private MemoryContactStore() {
+        for (IndexedField field : FIELDS) {
+            indexes.put(field, new MemoryIndex<String>());
+        }
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        snapshotFile = properties.getProperty("memory.snapshotFile");
+        loadCountries();
+        loadSnapshot();
+    }
+
+    public static MemoryContactStore getInstance() {
+        return instance;
+    }
+
+    // the lock is released by the transaction, so a rolled back transaction undoes its rows before anyone else writes
+    void beginWrite() throws DaoException {
+        if (!PersistenceManager.isTransactionActive()) {
+            throw new DaoException("Method should be called into transaction.");
+        }
+        writeLock.lock();
+        PersistenceManager.runAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                writeLock.unlock();
+            }
+        });
+    }
+
+    long nextContactId() {
+        return contactSequence.incrementAndGet();
+    }
+
+    long nextPhoneId() {
+        return phoneSequence.incrementAndGet();
+    }
+
+    long nextAttachmentId() {
+        return attachmentSequence.incrementAndGet();
+    }
+
+    NavigableMap<Long, Contact> getContacts() {
+        return contacts;
+    }
+
+    Contact getContact(Long contactId) {
+        return contactId == null ? null : contacts.get(contactId);
+    }
+
+    Long getPhoneOwner(Long phoneId) {
+        return phoneId == null ? null : phoneOwners.get(phoneId);
+    }
+
+    Long getAttachmentOwner(Long attachmentId) {
+        return attachmentId == null ? null : attachmentOwners.get(attachmentId);
+    }
+
+    MemoryIndex<String> getIndex(IndexedField field) {
+        return indexes.get(field);
+    }
+
+    MemoryIndex<Integer> getBirthdayMonthDays() {
+        return birthdayMonthDays;
+    }
+
+    MemoryIndex<String> getPhoneKeys() {
+        return phoneKeys;
+    }
+
+    NavigableMap<Long, DeletedRow<Contact>> getDeletedContacts() {
+        return deletedContacts;
+    }
+
+    NavigableMap<Long, DeletedRow<ContactPhone>> getDeletedPhones() {
+        return deletedPhones;
+    }
+
+    NavigableMap<Long, DeletedRow<ContactAttachment>> getDeletedAttachments() {
+        return deletedAttachments;
+    }
+
+    List<Country> getCountries() {
+        return countries;
+    }
+
+    String getCountryName(Integer countryId) {
+        return countryId == null ? null : countryNames.get(countryId);
+    }
+
+    void putContact(Contact contact) {
+        if (contact.getAddress() != null) {
+            contact.getAddress().setCountry(getCountryName(contact.getAddress().getIdCountry()));
+        }
+        final Long contactId = contact.getIdContact();
+        final Contact previous = replaceContact(contactId, contact);
+        PersistenceManager.runOnRollback(new Runnable() {
+            @Override
+            public void run() {
+                replaceContact(contactId, previous);
+            }
+        });
+    }
+
+    void removeContact(final Long contactId) {
+        final Contact previous = replaceContact(contactId, null);
+        PersistenceManager.runOnRollback(new Runnable() {
+            @Override
+            public void run() {
+                replaceContact(contactId, previous);
+            }
+        });
+    }
+
+    void putDeletedContact(Long contactId, DeletedRow<Contact> row) {
+        replaceWithUndo(deletedContacts, contactId, row);
+    }
+
+    void removeDeletedContact(Long contactId) {
+        replaceWithUndo(deletedContacts, contactId, null);
+    }
+
+    void putDeletedPhone(Long phoneId, DeletedRow<ContactPhone> row) {
+        replaceWithUndo(deletedPhones, phoneId, row);
+    }
+
+    void removeDeletedPhone(Long phoneId) {
+        replaceWithUndo(deletedPhones, phoneId, null);
+    }
+
+    void putDeletedAttachment(Long attachmentId, DeletedRow<ContactAttachment> row) {
+        replaceWithUndo(deletedAttachments, attachmentId, row);
+    }
+
+    void removeDeletedAttachment(Long attachmentId) {
+        replaceWithUndo(deletedAttachments, attachmentId, null);
+    }
+
+    private <T> void replaceWithUndo(final ConcurrentSkipListMap<Long, T> rows, final Long id, T row) {
+        final T previous = replace(rows, id, row);
+        PersistenceManager.runOnRollback(new Runnable() {
+            @Override
+            public void run() {
+                replace(rows, id, previous);
+            }
+        });
+    }
+
+    private static <T> T replace(ConcurrentSkipListMap<Long, T> rows, Long id, T row) {
+        return row == null ? rows.remove(id) : rows.put(id, row);
+    }
+
+    private Contact replaceContact(Long contactId, Contact contact) {
+        Contact previous = replace(contacts, contactId, contact);
+        for (IndexedField field : FIELDS) {
+            reindex(indexes.get(field), contactId,
+                    previous == null ? null : field.getKey(previous),
+                    contact == null ? null : field.getKey(contact), previous != null, contact != null);
+        }
+        reindex(birthdayMonthDays, contactId,
+                previous == null ? null : BirthdayCalendar.toMonthDay(previous.getBirthday()),
+                contact == null ? null : BirthdayCalendar.toMonthDay(contact.getBirthday()),
+                previous != null, contact != null);
+        reindexPhones(contactId, previous == null ? Collections.<String>emptySet() : getPhoneKeys(previous),
+                contact == null ? Collections.<String>emptySet() : getPhoneKeys(contact));
+        if (previous != null) {
+            for (ContactPhone phone : nullToEmpty(previous.getPhoneList())) {
+                phoneOwners.remove(phone.getIdPhone());
+            }
+            for (ContactAttachment attachment : nullToEmpty(previous.getAttachmentList())) {
+                attachmentOwners.remove(attachment.getIdAttachment());
+            }
+        }
+        if (contact != null) {
+            for (ContactPhone phone : nullToEmpty(contact.getPhoneList())) {
+                phoneOwners.put(phone.getIdPhone(), contactId);
+            }
+            for (ContactAttachment attachment : nullToEmpty(contact.getAttachmentList())) {
+                attachmentOwners.put(attachment.getIdAttachment(), contactId);
+            }
+        }
+        return previous;
+    }
+
+    // the new key is added before the old one is dropped, so a reader never misses a row that stays in the index
+    private static <K extends Comparable<K>> void reindex(MemoryIndex<K> index, Long contactId, K previousKey, K key,
+                                                           boolean wasIndexed, boolean isIndexed) {
+        if (wasIndexed && isIndexed && Objects.equals(previousKey, key)) {
+            return;
+        }
+        if (isIndexed) {
+            index.add(key, contactId);
+        }
+        if (wasIndexed) {
+            index.remove(previousKey, contactId);
+        }
+    }
+
+    private void reindexPhones(Long contactId, Set<String> previousKeys, Set<String> keys) {
+        for (String key : keys) {
+            phoneKeys.add(key, contactId);
+        }
+        for (String key : previousKeys) {
+            if (!keys.contains(key)) {
+                phoneKeys.remove(key, contactId);
+            }
+        }
+    }
+
+    private static Set<String> getPhoneKeys(Contact contact) {
+        Set<String> keys = new HashSet<>();
+        for (ContactPhone phone : nullToEmpty(contact.getPhoneList())) {
+            String key = PhoneKeys.of(phone);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+
+    private void loadCountries() {
+        InputStream stream = Thread.currentThread().getContextClassLoader().getResourceAsStream("countries.properties");
+        if (stream == null) {
+            log.warn("countries.properties isn't found, the in-memory storage has no countries.");
+            return;
+        }
+        Properties properties = new Properties();
+        try {
+            properties.load(new InputStreamReader(stream, "UTF-8"));
+        } catch (IOException e) {
+            log.error(e);
+        } finally {
+            closeStream(stream);
+        }
+        for (String code : properties.stringPropertyNames()) {
+            Country country = new Country(Integer.valueOf(code), properties.getProperty(code));
+            countries.add(country);
+            countryNames.put(country.getIdCountryCode(), country.getFullName());
+        }
+        Collections.sort(countries, new Comparator<Country>() {
+            @Override
+            public int compare(Country first, Country second) {
+                return first.getFullName().compareTo(second.getFullName());
+            }
+        });
+    }
+
+    private void loadSnapshot() {
+        if (StringUtils.isEmpty(snapshotFile) || !new File(snapshotFile).isFile()) {
+            return;
+        }
+        ObjectInputStream input = null;
+        try {
+            input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+            Snapshot snapshot = (Snapshot) input.readObject();
+            for (Contact contact : snapshot.contacts) {
+                replaceContact(contact.getIdContact(), contact);
+            }
+            deletedContacts.putAll(snapshot.deletedContacts);
+            deletedPhones.putAll(snapshot.deletedPhones);
+            deletedAttachments.putAll(snapshot.deletedAttachments);
+            contactSequence.set(snapshot.contactSequence);
+            phoneSequence.set(snapshot.phoneSequence);
+            attachmentSequence.set(snapshot.attachmentSequence);
+            log.info("Loaded {} contacts from snapshot {}.", contacts.size(), snapshotFile);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.error("Can't load snapshot " + snapshotFile, e);
+        } finally {
+            closeStream(input);
+        }
+    }
+
+    // taken under the write lock, so only committed rows get into the snapshot
+    public void saveSnapshot() {
+        if (StringUtils.isEmpty(snapshotFile)) {
+            return;
+        }
+        Snapshot snapshot = new Snapshot();
+        writeLock.lock();
+        try {
+            snapshot.contacts.addAll(contacts.values());
+            snapshot.deletedContacts.putAll(deletedContacts);
+            snapshot.deletedPhones.putAll(deletedPhones);
+            snapshot.deletedAttachments.putAll(deletedAttachments);
+            snapshot.contactSequence = contactSequence.get();
+            snapshot.phoneSequence = phoneSequence.get();
+            snapshot.attachmentSequence = attachmentSequence.get();
+        } finally {
+            writeLock.unlock();
+        }
+        File target = new File(snapshotFile);
+        File temporary = new File(snapshotFile + ".tmp");
+        ObjectOutputStream output = null;
+        try {
+            output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+            output.writeObject(snapshot);
+            output.close();
+            output = null;
+            Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} contacts to snapshot {}.", snapshot.contacts.size(), snapshotFile);
+        } catch (IOException e) {
+            log.error("Can't save snapshot " + snapshotFile, e);
+        } finally {
+            closeStream(output);
+        }
+    }
+
+    private void closeStream(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                log.error(e);
+            }
+        }
+    }
+
+
+    private static class Snapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final ArrayList<Contact> contacts = new ArrayList<>();
+        private final HashMap<Long, DeletedRow<Contact>> deletedContacts = new HashMap<>();
+        private final HashMap<Long, DeletedRow<ContactPhone>> deletedPhones = new HashMap<>();
+        private final HashMap<Long, DeletedRow<ContactAttachment>> deletedAttachments = new HashMap<>();
+        private long contactSequence;
+        private long phoneSequence;
+        private long attachmentSequence;
+    }
+}
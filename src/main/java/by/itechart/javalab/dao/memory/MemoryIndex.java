@@ -0,0 +1,76 @@
+package by.itechart.javalab.dao.memory;
+
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+
+// Sorted secondary index: key -> ids in ascending order. Rows without a value are kept apart,
+// they sort before every key like NULLs do in MySQL.
+final class MemoryIndex<K extends Comparable<K>> {
+    private final ConcurrentSkipListMap<K, NavigableSet<Long>> entries = new ConcurrentSkipListMap<>();
+    private final NavigableSet<Long> nullIds = new ConcurrentSkipListSet<>();
+
+    void add(K key, Long id) {
+        if (key == null) {
+            nullIds.add(id);
+            return;
+        }
+        NavigableSet<Long> ids = entries.get(key);
+        if (ids == null) {
+            NavigableSet<Long> created = new ConcurrentSkipListSet<>();
+            ids = entries.putIfAbsent(key, created);
+            if (ids == null) {
+                ids = created;
+            }
+        }
+        ids.add(id);
+    }
+
+    void remove(K key, Long id) {
+        if (key == null) {
+            nullIds.remove(id);
+            return;
+        }
+        NavigableSet<Long> ids = entries.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            // writers are serialized by the store lock, so nobody adds to the set between these two calls
+            if (ids.isEmpty()) {
+                entries.remove(key, ids);
+            }
+        }
+    }
+
+    NavigableSet<Long> get(K key) {
+        NavigableSet<Long> ids = key == null ? nullIds : entries.get(key);
+        return ids == null ? new TreeSet<Long>() : ids;
+    }
+
+    NavigableSet<Long> getNullIds() {
+        return nullIds;
+    }
+
+    NavigableMap<K, NavigableSet<Long>> getEntries() {
+        return entries;
+    }
+
+    NavigableMap<K, NavigableSet<Long>> range(K from, K to) {
+        if (from == null && to == null) {
+            return entries;
+        }
+        if (from == null) {
+            return entries.headMap(to, true);
+        }
+        if (to == null) {
+            return entries.tailMap(from, true);
+        }
+        if (from.compareTo(to) > 0) {
+            return new TreeMap<>();
+        }
+        return entries.subMap(from, true, to, true);
+    }
+}
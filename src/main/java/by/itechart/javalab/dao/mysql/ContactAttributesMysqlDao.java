@@ -3,6 +3,7 @@ package by.itechart.javalab.dao.mysql;
 
 import by.itechart.javalab.dao.ContactAttributes;
 import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.entity.Country;
 import by.itechart.javalab.persistence.PersistenceManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,17 +25,17 @@ public final class ContactAttributesMysqlDao implements ContactAttributes {
     }
 
     @Override
-    public List<String> getCountries() throws DaoException{
+    public List<Country> getCountries() throws DaoException{
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
-        List<String> countries = new ArrayList<>();
+        List<Country> countries = new ArrayList<>();
         try {
-            connection = PersistenceManager.createConnection();
-            statement = connection.prepareStatement("SELECT `fullName` FROM `country`");
+            connection = PersistenceManager.createReadConnection();
+            statement = connection.prepareStatement("SELECT `idCountryCode`, `fullName` FROM `country`");
             resultSet = statement.executeQuery();
             while (resultSet.next()) {
-                countries.add(resultSet.getString(1));
+                countries.add(new Country(resultSet.getInt(1), resultSet.getString(2)));
             }
         } catch (NamingException | SQLException ex) {
             log.error(ex);
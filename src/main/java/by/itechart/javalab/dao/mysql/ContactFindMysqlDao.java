@@ -5,7 +5,12 @@ import by.itechart.javalab.dao.ContactFindDao;
 import by.itechart.javalab.dao.DaoException;
 import by.itechart.javalab.entity.*;
 import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.service.ContactPage;
+import by.itechart.javalab.service.ContactProjection;
+import by.itechart.javalab.service.ContactRowHandler;
 import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.PageRequest;
+import by.itechart.javalab.util.BirthdayCalendar;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,7 +23,60 @@ import java.util.*;
 public final class ContactFindMysqlDao implements ContactFindDao {
     private final static ContactFindMysqlDao instance = new ContactFindMysqlDao();
     private static Logger log = LogManager.getLogger(ContactFindMysqlDao.class.getName());
-    private final int MAX_CONTACTS_NUMBER = 11;
+    // Phones and attachments are stacked with UNION ALL rather than joined side by side,
+    // so the contact columns repeat once per child row instead of once per phone/attachment pair.
+    private static final String SELECT_CONTACT_WITH_DETAILS = "SELECT contact.idContact, contact.name, " +
+            "contact.surname, contact.patronymic, contact.birthday, contact.gender, " +
+            "contact.citizenship, contact.website, contact.email, contact.company, contact.maritalStatus, " +
+            "country.fullName, contact.city, contact.street, contact.houseNumber, contact.apartmentNumber, contact.zipCode, " +
+            "details.kind, details.id, details.comment, details.countryCode, details.operatorCode, " +
+            "details.phoneNumber, details.phoneType, details.fileName, details.uploadDate, details.realFileName, " +
+            "contact.Country_idCountryCode, contact.version " +
+            "FROM contact " +
+            "JOIN country " +
+            "ON contact.Country_idCountryCode = country.idCountryCode " +
+            "LEFT JOIN (" +
+            "SELECT 1 AS kind, idPhone AS id, Contact_idContact AS idContact, comment, countryCode, operatorCode, " +
+            "phoneNumber, phoneType, NULL AS fileName, NULL AS uploadDate, NULL AS realFileName " +
+            "FROM phone WHERE Contact_idContact = ? AND available = ? " +
+            "UNION ALL " +
+            "SELECT 2, idAttachment, Contact_idContact, comment, NULL, NULL, NULL, NULL, fileName, uploadDate, realFileName " +
+            "FROM attachment WHERE Contact_idContact = ? AND available = ?" +
+            ") details ON details.idContact = contact.idContact " +
+            "WHERE contact.idContact = ? AND contact.available = ? " +
+            "ORDER BY details.kind, details.id";
+    private static final int CONTACT_ID = 1;
+    private static final int CONTACT_NAME = 2;
+    private static final int CONTACT_SURNAME = 3;
+    private static final int CONTACT_PATRONYMIC = 4;
+    private static final int CONTACT_BIRTHDAY = 5;
+    private static final int CONTACT_GENDER = 6;
+    private static final int CONTACT_CITIZENSHIP = 7;
+    private static final int CONTACT_WEBSITE = 8;
+    private static final int CONTACT_EMAIL = 9;
+    private static final int CONTACT_COMPANY = 10;
+    private static final int CONTACT_MARITAL_STATUS = 11;
+    private static final int CONTACT_COUNTRY = 12;
+    private static final int CONTACT_CITY = 13;
+    private static final int CONTACT_STREET = 14;
+    private static final int CONTACT_HOUSE_NUMBER = 15;
+    private static final int CONTACT_APARTMENT_NUMBER = 16;
+    private static final int CONTACT_ZIP_CODE = 17;
+    private static final int DETAIL_KIND = 18;
+    private static final int DETAIL_ID = 19;
+    private static final int DETAIL_COMMENT = 20;
+    private static final int PHONE_COUNTRY_CODE = 21;
+    private static final int PHONE_OPERATOR_CODE = 22;
+    private static final int PHONE_NUMBER = 23;
+    private static final int PHONE_TYPE = 24;
+    private static final int ATTACHMENT_FILE_NAME = 25;
+    private static final int ATTACHMENT_UPLOAD_DATE = 26;
+    private static final int ATTACHMENT_REAL_FILE_NAME = 27;
+    private static final int CONTACT_COUNTRY_ID = 28;
+    private static final int CONTACT_VERSION = 29;
+    private static final int PHONE_KIND = 1;
+    private static final int ATTACHMENT_KIND = 2;
+    private static final int IN_CHUNK_SIZE = 500;
 
     private ContactFindMysqlDao() {}
 
@@ -27,24 +85,24 @@ public final class ContactFindMysqlDao implements ContactFindDao {
     }
 
     @Override
-    public List<Contact> getContacts(Integer offset, boolean isLowerIds) throws DaoException {
-        log.debug("getContacts: {}", offset);
+    public ContactPage getContacts(PageRequest pageRequest) throws DaoException {
+        return getContacts(null, pageRequest);
+    }
+
+    @Override
+    public ContactPage getContacts(ContactSearchAttributes searchAttributes, PageRequest pageRequest) throws DaoException {
+        log.debug("getContacts: {}", pageRequest);
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         List<Contact> contacts = new ArrayList<>();
         try {
-            connection = PersistenceManager.createConnection();
-            StringBuilder preparedStatementSQL = new StringBuilder("select idContact, name, surname, birthday, " +
-                    " company, city, street, houseNumber, apartmentNumber from contact where ");
-            if (isLowerIds)
-                preparedStatementSQL.append("idContact < ? AND available = ? ORDER BY idContact DESC LIMIT ?");
-            else
-                preparedStatementSQL.append("idContact > ? AND available = ? ORDER BY idContact ASC LIMIT ?");
-            statement = connection.prepareStatement(preparedStatementSQL.toString());
-            statement.setInt(1, offset);
-            statement.setBoolean(2, true);
-            statement.setInt(3, MAX_CONTACTS_NUMBER);
+            connection = PersistenceManager.createReadConnection();
+            int mask = ContactSearchField.getMask(searchAttributes);
+            String sql = ContactSearchQuery.getSql(mask, pageRequest);
+            log.debug(sql);
+            statement = connection.prepareStatement(sql);
+            ContactSearchQuery.bind(statement, mask, searchAttributes, pageRequest);
             resultSet = statement.executeQuery();
             while (resultSet.next()) {
                 Contact contact = new Contact();
@@ -68,296 +126,432 @@ public final class ContactFindMysqlDao implements ContactFindDao {
             closeStatement(statement);
             PersistenceManager.closeConnection(connection);
         }
-        if (isLowerIds)
+        return toPage(contacts, pageRequest);
+    }
+
+    private ContactPage toPage(List<Contact> contacts, PageRequest pageRequest) {
+        boolean hasMore = contacts.size() > pageRequest.getPageSize();
+        if (hasMore) {
+            contacts.remove(contacts.size() - 1);
+        }
+        if (pageRequest.isBackward()) {
             Collections.reverse(contacts);
-        return contacts;
+            return new ContactPage(contacts, pageRequest, true, hasMore);
+        }
+        return new ContactPage(contacts, pageRequest, hasMore, pageRequest.hasCursor());
     }
 
     @Override
-    public List<Contact> getContacts(ContactSearchAttributes searchAttributes, Integer offset, boolean isLowerIds) throws DaoException {
-        log.debug("getContacts: {}, {}", offset, isLowerIds);
+    public Contact getContact(Long contactId) throws DaoException {
+        log.debug("getContact: {}", contactId);
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
-        List<Contact> contacts = new ArrayList<>();
+        Contact contact = new Contact();
+        contact.setIdContact(contactId);
         try {
-            connection = PersistenceManager.createConnection();
-            StringBuilder preparedStatementSQL = new StringBuilder("select idContact, name, surname, birthday, " +
-                    " company, city, street, houseNumber, apartmentNumber from contact where " +
-                    "available = ? ");
-            Map<Integer, Object> preparedStatementParameters = new HashMap<>();
-            int parameterPosition = 2;
-            if (StringUtils.isNotEmpty(searchAttributes.getName())) {
-                preparedStatementSQL.append("AND name = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getName());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getSurname())) {
-                preparedStatementSQL.append("AND surname = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getSurname());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getPatronymic())) {
-                preparedStatementSQL.append("AND patronymic = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getPatronymic());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getCitizenship())) {
-                preparedStatementSQL.append("AND citizenship = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getCitizenship());
-                parameterPosition++;
-            }
-            if (searchAttributes.getGender() != null) {
-                preparedStatementSQL.append("AND gender = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getGender().name());
-                parameterPosition++;
-            }
-            if (searchAttributes.getMaritalStatus() != null) {
-                preparedStatementSQL.append("AND maritalStatus = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getMaritalStatus().name());
-                parameterPosition++;
-            }
-            if (searchAttributes.getBirthdayDateFrom() != null) {
-                preparedStatementSQL.append("AND birthday >= ? ");
-                preparedStatementParameters.put(parameterPosition, new Date(searchAttributes.getBirthdayDateFrom().getTime()));
-                parameterPosition++;
-            }
-            if (searchAttributes.getBirthdayDateTo() != null) {
-                preparedStatementSQL.append("AND birthday <= ? ");
-                preparedStatementParameters.put(parameterPosition, new Date(searchAttributes.getBirthdayDateTo().getTime()));
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getAddress().getCountry())) {
-                preparedStatementSQL.append("AND Country_idCountryCode = (SELECT idCountryCode from country where fullName = ?) ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getAddress().getCountry());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getAddress().getCity())) {
-                preparedStatementSQL.append("AND city = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getAddress().getCity());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getAddress().getStreet())) {
-                preparedStatementSQL.append("AND street = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getAddress().getStreet());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getAddress().getHouseNumber())) {
-                preparedStatementSQL.append("AND houseNumber = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getAddress().getHouseNumber());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getAddress().getApartmentNumber())) {
-                preparedStatementSQL.append("AND apartmentNumber = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getAddress().getApartmentNumber());
-                parameterPosition++;
-            }
-            if (StringUtils.isNotEmpty(searchAttributes.getAddress().getZipCode())) {
-                preparedStatementSQL.append("AND zipCode = ? ");
-                preparedStatementParameters.put(parameterPosition, searchAttributes.getAddress().getZipCode());
-                parameterPosition++;
-            }
-            if (isLowerIds)
-                preparedStatementSQL.append("AND idContact < ? ORDER BY idContact DESC LIMIT ?");
-            else
-                preparedStatementSQL.append("AND idContact > ? ORDER BY idContact ASC LIMIT ?");
-            statement = connection.prepareStatement(preparedStatementSQL.toString());
-            log.debug(preparedStatementSQL.toString());
-            statement.setBoolean(1, true);
-            statement.setInt(parameterPosition, offset);
-            statement.setInt(++parameterPosition, MAX_CONTACTS_NUMBER);
-            for (Integer position : preparedStatementParameters.keySet()) {
-                if (preparedStatementParameters.get(position) instanceof String) {
-                    statement.setString(position, (String) preparedStatementParameters.get(position));
-                    continue;
-                }
-                if (preparedStatementParameters.get(position) instanceof Integer) {
-                    statement.setInt(position, (Integer) preparedStatementParameters.get(position));
-                    continue;
-                }
-                if (preparedStatementParameters.get(position) instanceof Date) {
-                    statement.setDate(position, (Date) preparedStatementParameters.get(position));
-                }
-            }
+            connection = PersistenceManager.createReadConnection();
+            statement = connection.prepareStatement(SELECT_CONTACT_WITH_DETAILS);
+            statement.setLong(1, contactId);
+            statement.setBoolean(2, true);
+            statement.setLong(3, contactId);
+            statement.setBoolean(4, true);
+            statement.setLong(5, contactId);
+            statement.setBoolean(6, true);
             resultSet = statement.executeQuery();
+            List<ContactPhone> phones = new ArrayList<>();
+            List<ContactAttachment> attachments = new ArrayList<>();
+            boolean isFirstRow = true;
             while (resultSet.next()) {
-                Contact contact = new Contact();
-                contact.setIdContact(resultSet.getLong("idContact"));
-                contact.setName(resultSet.getString("name"));
-                contact.setSurname(resultSet.getString("surname"));
-                contact.setBirthday(resultSet.getDate("birthday"));
-                contact.setCompany(resultSet.getString("company"));
-                Address address = new Address();
-                address.setCity(resultSet.getString("city"));
-                address.setStreet(resultSet.getString("street"));
-                address.setHouseNumber(resultSet.getString("houseNumber"));
-                address.setApartmentNumber(resultSet.getString("apartmentNumber"));
-                contact.setAddress(address);
-                contacts.add(contact);
+                if (isFirstRow) {
+                    mapContactDetails(contact, resultSet);
+                    isFirstRow = false;
+                }
+                int kind = resultSet.getInt(DETAIL_KIND);
+                if (kind == PHONE_KIND) {
+                    phones.add(mapPhone(resultSet));
+                } else if (kind == ATTACHMENT_KIND) {
+                    attachments.add(mapAttachment(resultSet));
+                }
             }
+            contact.setPhoneList(phones);
+            contact.setAttachmentList(attachments);
         } catch (NamingException | SQLException ex) {
             log.error(ex);
-            throw new DaoException("Can't get contacts.", ex);
+            throw new DaoException("Can't get contact.", ex);
         } finally {
             closeStatement(statement);
             PersistenceManager.closeConnection(connection);
         }
-        if (isLowerIds)
-            Collections.reverse(contacts);
-        return contacts;
+        return contact;
+    }
+
+    private void mapContactDetails(Contact contact, ResultSet resultSet) throws SQLException {
+        contact.setIdContact(resultSet.getLong(CONTACT_ID));
+        contact.setName(resultSet.getString(CONTACT_NAME));
+        contact.setSurname(resultSet.getString(CONTACT_SURNAME));
+        contact.setPatronymic(resultSet.getString(CONTACT_PATRONYMIC));
+        contact.setBirthday(resultSet.getDate(CONTACT_BIRTHDAY));
+        String gender = resultSet.getString(CONTACT_GENDER);
+        Gender genderValue = StringUtils.isNoneEmpty(gender) ? Gender.valueOf(gender) : null;
+        contact.setGender(genderValue);
+        contact.setCitizenship(resultSet.getString(CONTACT_CITIZENSHIP));
+        contact.setWebsite(resultSet.getString(CONTACT_WEBSITE));
+        contact.setEmail(resultSet.getString(CONTACT_EMAIL));
+        contact.setCompany(resultSet.getString(CONTACT_COMPANY));
+        String status = resultSet.getString(CONTACT_MARITAL_STATUS);
+        MaritalStatus maritalStatus = StringUtils.isNotEmpty(status) ? MaritalStatus.valueOf(status) : null;
+        contact.setMaritalStatus(maritalStatus);
+        Address address = new Address();
+        address.setCountry(resultSet.getString(CONTACT_COUNTRY));
+        address.setCity(resultSet.getString(CONTACT_CITY));
+        address.setStreet(resultSet.getString(CONTACT_STREET));
+        address.setHouseNumber(resultSet.getString(CONTACT_HOUSE_NUMBER));
+        address.setApartmentNumber(resultSet.getString(CONTACT_APARTMENT_NUMBER));
+        address.setZipCode(resultSet.getString(CONTACT_ZIP_CODE));
+        address.setIdCountry(resultSet.getInt(CONTACT_COUNTRY_ID));
+        contact.setAddress(address);
+        contact.setVersion(resultSet.getInt(CONTACT_VERSION));
+    }
+
+    private ContactPhone mapPhone(ResultSet resultSet) throws SQLException {
+        ContactPhone phone = new ContactPhone();
+        phone.setIdPhone(resultSet.getLong(DETAIL_ID));
+        phone.setCountryCode(resultSet.getInt(PHONE_COUNTRY_CODE));
+        phone.setOperatorCode(resultSet.getInt(PHONE_OPERATOR_CODE));
+        phone.setPhoneNumber(resultSet.getInt(PHONE_NUMBER));
+        String phoneType = resultSet.getString(PHONE_TYPE);
+        PhoneType phoneTypeValue = StringUtils.isNotEmpty(phoneType) ? PhoneType.valueOf(phoneType) : null;
+        phone.setPhoneType(phoneTypeValue);
+        phone.setComment(resultSet.getString(DETAIL_COMMENT));
+        return phone;
+    }
+
+    private ContactAttachment mapAttachment(ResultSet resultSet) throws SQLException {
+        ContactAttachment attachment = new ContactAttachment();
+        attachment.setIdAttachment(resultSet.getLong(DETAIL_ID));
+        attachment.setFileName(resultSet.getString(ATTACHMENT_FILE_NAME));
+        attachment.setUploadDate(resultSet.getDate(ATTACHMENT_UPLOAD_DATE));
+        attachment.setRealFileName(resultSet.getString(ATTACHMENT_REAL_FILE_NAME));
+        attachment.setComment(resultSet.getString(DETAIL_COMMENT));
+        return attachment;
     }
 
     @Override
-    public Contact getContact(Long contactId) throws DaoException {
-        log.debug("getContact: {}", contactId);
+    public List<Contact> getContacts(Collection<Long> contactIds, ContactProjection projection) throws DaoException {
+        log.debug("getContacts: {} ids, {}", contactIds.size(), projection);
+        Set<Long> uniqueIds = new LinkedHashSet<>(contactIds);
+        uniqueIds.remove(null);
+        Map<Long, Contact> contacts = new HashMap<>();
+        if (uniqueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
         Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        Contact contact = new Contact();
-        contact.setIdContact(contactId);
         try {
-            connection = PersistenceManager.createConnection();
-            contact = getContactPersonalData(contact, connection);
-            List<ContactPhone> phones = getContactPhones(contact, connection);
-            contact.setPhoneList(phones);
-            List<ContactAttachment> attachments = getContactAttachments(contact, connection);
-            contact.setAttachmentList(attachments);
+            connection = PersistenceManager.createReadConnection();
+            List<Long> ids = new ArrayList<>(uniqueIds);
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                loadContacts(connection, chunk, projection, contacts);
+                if (projection == ContactProjection.FULL) {
+                    loadPhones(connection, chunk, contacts);
+                    loadAttachments(connection, chunk, contacts);
+                }
+            }
         } catch (NamingException | SQLException ex) {
             log.error(ex);
-            throw new DaoException("Can't get contact.", ex);
+            throw new DaoException("Can't get contacts.", ex);
         } finally {
-            closeStatement(statement);
             PersistenceManager.closeConnection(connection);
         }
-        return contact;
+        List<Contact> result = new ArrayList<>(contacts.size());
+        for (Long id : uniqueIds) {
+            Contact contact = contacts.get(id);
+            if (contact != null) {
+                result.add(contact);
+            }
+        }
+        return result;
     }
 
-    private Contact getContactPersonalData(Contact contact, Connection connection) {
+    private void loadContacts(Connection connection, List<Long> ids, ContactProjection projection,
+                              Map<Long, Contact> contacts) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT contact.idContact, contact.name, contact.surname, " +
+                "contact.patronymic, contact.email");
+        if (projection != ContactProjection.EMAIL) {
+            sql.append(", contact.birthday, contact.company, contact.city, contact.street, contact.houseNumber, " +
+                    "contact.apartmentNumber");
+        }
+        if (projection == ContactProjection.FULL) {
+            sql.append(", contact.gender, contact.citizenship, contact.website, contact.maritalStatus, " +
+                    "country.fullName, contact.zipCode FROM contact LEFT JOIN country " +
+                    "ON contact.Country_idCountryCode = country.idCountryCode");
+        } else {
+            sql.append(" FROM contact");
+        }
+        sql.append(" WHERE contact.available = ? AND contact.idContact IN (").append(getPlaceholders(ids.size())).append(')');
         PreparedStatement statement = null;
         try {
-            statement = connection.prepareStatement("SELECT contact.idContact, contact.name, " +
-                    "contact.surname, contact.patronymic, contact.birthday, contact.gender, " +
-                    "contact.citizenship, contact.website, contact.email, contact.company, contact.maritalStatus, " +
-                    "country.fullName, contact.city, contact.street, contact.houseNumber, contact.apartmentNumber, contact.zipCode " +
-                    "FROM contact " +
-                    "JOIN country " +
-                    "ON contact.Country_idCountryCode = country.idCountryCode " +
-                    "WHERE contact.idContact = ? AND contact.available = ?");
-            statement.setLong(1, contact.getIdContact());
-            statement.setBoolean(2, true);
+            statement = connection.prepareStatement(sql.toString());
+            statement.setBoolean(1, true);
+            bindIds(statement, 2, ids);
             ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                contact.setIdContact(resultSet.getLong("contact.idContact"));
-                contact.setName(resultSet.getString("contact.name"));
-                contact.setSurname(resultSet.getString("contact.surname"));
-                contact.setPatronymic(resultSet.getString("contact.patronymic"));
-                contact.setBirthday(resultSet.getDate("contact.birthday"));
-                String gender = resultSet.getString("contact.gender");
-                Gender genderValue = StringUtils.isNoneEmpty(gender) ? Gender.valueOf(gender) : null;
-                contact.setGender(genderValue);
-                contact.setCitizenship(resultSet.getString("contact.citizenship"));
-                contact.setWebsite(resultSet.getString("contact.website"));
-                contact.setEmail(resultSet.getString("contact.email"));
-                contact.setCompany(resultSet.getString("contact.company"));
-                String status = resultSet.getString("contact.maritalStatus");
-                MaritalStatus maritalStatus = StringUtils.isNotEmpty(status) ? MaritalStatus.valueOf(status) : null;
-                contact.setMaritalStatus(maritalStatus);
-                Address address = new Address();
-                address.setCountry(resultSet.getString("country.fullName"));
-                address.setCity(resultSet.getString("contact.city"));
-                address.setStreet(resultSet.getString("contact.street"));
-                address.setHouseNumber(resultSet.getString("contact.houseNumber"));
-                address.setApartmentNumber(resultSet.getString("contact.apartmentNumber"));
-                address.setZipCode(resultSet.getString("contact.zipCode"));
-                contact.setAddress(address);
+            while (resultSet.next()) {
+                Contact contact = new Contact();
+                contact.setIdContact(resultSet.getLong(1));
+                contact.setName(resultSet.getString(2));
+                contact.setSurname(resultSet.getString(3));
+                contact.setPatronymic(resultSet.getString(4));
+                contact.setEmail(resultSet.getString(5));
+                if (projection != ContactProjection.EMAIL) {
+                    contact.setBirthday(resultSet.getDate(6));
+                    contact.setCompany(resultSet.getString(7));
+                    Address address = new Address();
+                    address.setCity(resultSet.getString(8));
+                    address.setStreet(resultSet.getString(9));
+                    address.setHouseNumber(resultSet.getString(10));
+                    address.setApartmentNumber(resultSet.getString(11));
+                    contact.setAddress(address);
+                }
+                if (projection == ContactProjection.FULL) {
+                    String gender = resultSet.getString(12);
+                    contact.setGender(StringUtils.isNotEmpty(gender) ? Gender.valueOf(gender) : null);
+                    contact.setCitizenship(resultSet.getString(13));
+                    contact.setWebsite(resultSet.getString(14));
+                    String status = resultSet.getString(15);
+                    contact.setMaritalStatus(StringUtils.isNotEmpty(status) ? MaritalStatus.valueOf(status) : null);
+                    contact.getAddress().setCountry(resultSet.getString(16));
+                    contact.getAddress().setZipCode(resultSet.getString(17));
+                    contact.setPhoneList(new ArrayList<ContactPhone>());
+                    contact.setAttachmentList(new ArrayList<ContactAttachment>());
+                }
+                contacts.put(contact.getIdContact(), contact);
             }
-        } catch (SQLException e) {
-            log.error(e);
+        } finally {
+            closeStatement(statement);
         }
-        return contact;
     }
 
-    private List<ContactPhone> getContactPhones(Contact contact, Connection connection) {
+    private void loadPhones(Connection connection, List<Long> ids, Map<Long, Contact> contacts) throws SQLException {
         PreparedStatement statement = null;
-        List<ContactPhone> phones = new ArrayList<>();
         try {
-            statement = connection.prepareStatement("SELECT idPhone, countryCode, " +
-                    "operatorCode, phoneNumber, phoneType, comment " +
-                    "FROM phone " +
-                    "WHERE Contact_idContact = ? AND available = ?");
-            statement.setLong(1, contact.getIdContact());
-            statement.setBoolean(2, true);
+            statement = connection.prepareStatement("SELECT idPhone, Contact_idContact, countryCode, operatorCode, " +
+                    "phoneNumber, phoneType, comment FROM phone WHERE available = ? AND Contact_idContact IN (" +
+                    getPlaceholders(ids.size()) + ") ORDER BY idPhone");
+            statement.setBoolean(1, true);
+            bindIds(statement, 2, ids);
             ResultSet resultSet = statement.executeQuery();
             while (resultSet.next()) {
-                ContactPhone phone = getContactPhone(resultSet);
-                phones.add(phone);
+                Contact contact = contacts.get(resultSet.getLong(2));
+                if (contact == null) {
+                    continue;
+                }
+                ContactPhone phone = new ContactPhone();
+                phone.setIdPhone(resultSet.getLong(1));
+                phone.setIdContact(contact.getIdContact());
+                phone.setCountryCode(resultSet.getInt(3));
+                phone.setOperatorCode(resultSet.getInt(4));
+                phone.setPhoneNumber(resultSet.getInt(5));
+                String phoneType = resultSet.getString(6);
+                phone.setPhoneType(StringUtils.isNotEmpty(phoneType) ? PhoneType.valueOf(phoneType) : null);
+                phone.setComment(resultSet.getString(7));
+                contact.getPhoneList().add(phone);
             }
-        } catch (SQLException e) {
-            log.error(e);
+        } finally {
+            closeStatement(statement);
         }
-        return phones;
     }
 
-    private List<ContactAttachment> getContactAttachments(Contact contact, Connection connection) {
+    private void loadAttachments(Connection connection, List<Long> ids, Map<Long, Contact> contacts) throws SQLException {
         PreparedStatement statement = null;
-        List<ContactAttachment> attachments = new ArrayList<>();
         try {
-            statement = connection.prepareStatement("SELECT " +
-                    "idAttachment, fileName, uploadDate, comment, realFileName " +
-                    "FROM attachment " +
-                    "WHERE Contact_idContact = ? AND available = ?");
-            statement.setLong(1, contact.getIdContact());
-            statement.setBoolean(2, true);
+            statement = connection.prepareStatement("SELECT idAttachment, Contact_idContact, fileName, uploadDate, " +
+                    "comment, realFileName FROM attachment WHERE available = ? AND Contact_idContact IN (" +
+                    getPlaceholders(ids.size()) + ") ORDER BY idAttachment");
+            statement.setBoolean(1, true);
+            bindIds(statement, 2, ids);
             ResultSet resultSet = statement.executeQuery();
             while (resultSet.next()) {
-                ContactAttachment attachment = getContactAttachment(resultSet);
-                attachments.add(attachment);
+                Contact contact = contacts.get(resultSet.getLong(2));
+                if (contact == null) {
+                    continue;
+                }
+                ContactAttachment attachment = new ContactAttachment();
+                attachment.setIdAttachment(resultSet.getLong(1));
+                attachment.setIdContact(contact.getIdContact());
+                attachment.setFileName(resultSet.getString(3));
+                attachment.setUploadDate(resultSet.getDate(4));
+                attachment.setComment(resultSet.getString(5));
+                attachment.setRealFileName(resultSet.getString(6));
+                contact.getAttachmentList().add(attachment);
             }
-        } catch (SQLException e) {
-            log.error(e);
+        } finally {
+            closeStatement(statement);
         }
-        return attachments;
     }
 
-    private ContactPhone getContactPhone(ResultSet resultSet) throws SQLException{
-        ContactPhone phone = new ContactPhone();
-        phone.setIdPhone(resultSet.getLong("phone.idPhone"));
-        phone.setCountryCode(resultSet.getInt("phone.countryCode"));
-        phone.setOperatorCode(resultSet.getInt("phone.operatorCode"));
-        phone.setPhoneNumber(resultSet.getInt("phone.phoneNumber"));
-        String phoneType = resultSet.getString("phone.phoneType");
-        PhoneType phoneTypeValue = StringUtils.isNotEmpty(phoneType) ? PhoneType.valueOf(phoneType) : null;
-        phone.setPhoneType(phoneTypeValue);
-        phone.setComment(resultSet.getString("phone.comment"));
-        return phone;
+    private String getPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                placeholders.append(',');
+            }
+            placeholders.append('?');
+        }
+        return placeholders.toString();
     }
 
-    private ContactAttachment getContactAttachment(ResultSet resultSet) throws SQLException {
-        ContactAttachment attachment = new ContactAttachment();
-        attachment.setIdAttachment(resultSet.getLong("attachment.idAttachment"));
-        attachment.setFileName(resultSet.getString("attachment.fileName"));
-        attachment.setUploadDate(resultSet.getDate("attachment.uploadDate"));
-        attachment.setRealFileName(resultSet.getString("attachment.realFileName"));
-        attachment.setComment(resultSet.getString("attachment.comment"));
-        return attachment;
+    private void bindIds(PreparedStatement statement, int firstPosition, List<Long> ids) throws SQLException {
+        int position = firstPosition;
+        for (Long id : ids) {
+            statement.setLong(position++, id);
+        }
+    }
+
+    @Override
+    public List<Long> getContactIds(ContactSearchAttributes searchAttributes) throws DaoException {
+        log.debug("getContactIds: ");
+        Connection connection = null;
+        PreparedStatement statement = null;
+        List<Long> ids = new ArrayList<>();
+        int mask = ContactSearchField.getMask(searchAttributes);
+        StringBuilder sql = new StringBuilder("SELECT idContact FROM contact WHERE available = ? ");
+        ContactSearchQuery.appendConditions(sql, mask);
+        try {
+            connection = PersistenceManager.createReadConnection();
+            statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setBoolean(1, true);
+            ContactSearchQuery.bindConditions(statement, 2, mask, searchAttributes);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong(1));
+            }
+        } catch (NamingException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't get contact ids.", ex);
+        } finally {
+            closeStatement(statement);
+            PersistenceManager.closeConnection(connection);
+        }
+        return ids;
     }
 
     @Override
-    public List<String> getEmails(Long[] contactId) throws DaoException {
-        log.debug("getEmails: ");
+    public void exportContacts(ContactSearchAttributes searchAttributes, ContactRowHandler handler) throws DaoException {
+        log.debug("exportContacts: ");
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
+        int mask = ContactSearchField.getMask(searchAttributes);
+        StringBuilder sql = new StringBuilder("SELECT contact.idContact, contact.name, contact.surname, " +
+                "contact.patronymic, contact.birthday, contact.gender, contact.maritalStatus, contact.citizenship, " +
+                "contact.website, contact.email, contact.company, country.fullName, contact.city, contact.street, " +
+                "contact.houseNumber, contact.apartmentNumber, contact.zipCode, phone.idPhone, phone.countryCode, " +
+                "phone.operatorCode, phone.phoneNumber, phone.phoneType, phone.comment " +
+                "FROM contact " +
+                "LEFT JOIN country ON contact.Country_idCountryCode = country.idCountryCode " +
+                "LEFT JOIN phone ON phone.Contact_idContact = contact.idContact AND phone.available = ? " +
+                "WHERE contact.available = ? ");
+        ContactSearchQuery.appendConditions(sql, mask);
+        sql.append("ORDER BY contact.idContact, phone.idPhone");
+        try {
+            connection = PersistenceManager.createReadConnection();
+            statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J streams rows one by one instead of buffering the whole result only for this fetch size.
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setBoolean(1, true);
+            statement.setBoolean(2, true);
+            ContactSearchQuery.bindConditions(statement, 3, mask, searchAttributes);
+            resultSet = statement.executeQuery();
+            Contact contact = null;
+            while (resultSet.next()) {
+                long contactId = resultSet.getLong(1);
+                if (contact == null || contact.getIdContact() != contactId) {
+                    if (contact != null) {
+                        handler.handle(contact);
+                    }
+                    contact = mapExportedContact(resultSet);
+                }
+                long phoneId = resultSet.getLong(18);
+                if (!resultSet.wasNull()) {
+                    ContactPhone phone = new ContactPhone();
+                    phone.setIdPhone(phoneId);
+                    phone.setIdContact(contactId);
+                    phone.setCountryCode(resultSet.getInt(19));
+                    phone.setOperatorCode(resultSet.getInt(20));
+                    phone.setPhoneNumber(resultSet.getInt(21));
+                    String phoneType = resultSet.getString(22);
+                    phone.setPhoneType(StringUtils.isNotEmpty(phoneType) ? PhoneType.valueOf(phoneType) : null);
+                    phone.setComment(resultSet.getString(23));
+                    contact.getPhoneList().add(phone);
+                }
+            }
+            if (contact != null) {
+                handler.handle(contact);
+            }
+        } catch (Exception ex) {
+            log.error(ex);
+            throw new DaoException("Can't export contacts.", ex);
+        } finally {
+            closeStatement(statement);
+            PersistenceManager.closeConnection(connection);
+        }
+    }
+
+    private Contact mapExportedContact(ResultSet resultSet) throws SQLException {
+        Contact contact = new Contact();
+        contact.setIdContact(resultSet.getLong(1));
+        contact.setName(resultSet.getString(2));
+        contact.setSurname(resultSet.getString(3));
+        contact.setPatronymic(resultSet.getString(4));
+        contact.setBirthday(resultSet.getDate(5));
+        String gender = resultSet.getString(6);
+        contact.setGender(StringUtils.isNotEmpty(gender) ? Gender.valueOf(gender) : null);
+        String status = resultSet.getString(7);
+        contact.setMaritalStatus(StringUtils.isNotEmpty(status) ? MaritalStatus.valueOf(status) : null);
+        contact.setCitizenship(resultSet.getString(8));
+        contact.setWebsite(resultSet.getString(9));
+        contact.setEmail(resultSet.getString(10));
+        contact.setCompany(resultSet.getString(11));
+        Address address = new Address();
+        address.setCountry(resultSet.getString(12));
+        address.setCity(resultSet.getString(13));
+        address.setStreet(resultSet.getString(14));
+        address.setHouseNumber(resultSet.getString(15));
+        address.setApartmentNumber(resultSet.getString(16));
+        address.setZipCode(resultSet.getString(17));
+        contact.setAddress(address);
+        contact.setPhoneList(new ArrayList<ContactPhone>());
+        contact.setAttachmentList(new ArrayList<ContactAttachment>());
+        return contact;
+    }
+
+    @Override
+    public List<String> getEmails(Collection<Long> contactIds) throws DaoException {
+        log.debug("getEmails: {}", contactIds.size());
+        Connection connection = null;
+        PreparedStatement statement = null;
         List<String> emails = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(contactIds));
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return emails;
+        }
         try {
-            connection = PersistenceManager.createConnection();
-            statement = connection.prepareStatement("SELECT email FROM contact WHERE idContact = ?");
-            for (Long id : contactId) {
-                statement.setLong(1, id);
-                resultSet = statement.executeQuery();
+            connection = PersistenceManager.createReadConnection();
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                statement = connection.prepareStatement("SELECT email FROM contact WHERE available = ? AND idContact IN (" +
+                        getPlaceholders(chunk.size()) + ")");
+                statement.setBoolean(1, true);
+                bindIds(statement, 2, chunk);
+                ResultSet resultSet = statement.executeQuery();
                 while (resultSet.next()) {
-                    emails.add(resultSet.getString("email"));
+                    emails.add(resultSet.getString(1));
                 }
+                closeStatement(statement);
+                statement = null;
             }
         } catch (NamingException | SQLException ex) {
             log.error(ex);
@@ -371,21 +565,37 @@ public final class ContactFindMysqlDao implements ContactFindDao {
 
     @Override
     public List<Contact> getBirthdayContacts() throws DaoException {
-        log.debug("getContact: ");
+        return getUpcomingBirthdayContacts(0);
+    }
+
+    @Override
+    public List<Contact> getUpcomingBirthdayContacts(int days) throws DaoException {
+        log.debug("getUpcomingBirthdayContacts: {}", days);
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         List<Contact> contacts = new ArrayList<>();
+        List<int[]> ranges = BirthdayCalendar.getMonthDayRanges(new java.util.Date(), days);
         try {
-            connection = PersistenceManager.createConnection();
-            statement = connection.prepareStatement("SELECT name, surname, " +
-                    "patronymic, birthday, email FROM contact WHERE available = ? AND " +
-                    "EXTRACT(MONTH FROM birthday) = EXTRACT(MONTH FROM CURDATE()) " +
-                    "AND EXTRACT(DAY FROM birthday) = EXTRACT(DAY FROM CURDATE())");
-            statement.setBoolean(1, true);
+            connection = PersistenceManager.createReadConnection();
+            StringBuilder sql = new StringBuilder("SELECT idContact, name, surname, " +
+                    "patronymic, birthday, email FROM contact WHERE available = ? AND (");
+            for (int i = 0; i < ranges.size(); i++) {
+                sql.append(i == 0 ? "" : " OR ").append("birthdayMonthDay BETWEEN ? AND ?");
+            }
+            sql.append(") ORDER BY birthdayMonthDay < ?, birthdayMonthDay, idContact");
+            statement = connection.prepareStatement(sql.toString());
+            int position = 1;
+            statement.setBoolean(position++, true);
+            for (int[] range : ranges) {
+                statement.setInt(position++, range[0]);
+                statement.setInt(position++, range[1]);
+            }
+            statement.setInt(position, ranges.get(0)[0]);
             resultSet = statement.executeQuery();
             while (resultSet.next()) {
                 Contact contact = new Contact();
+                contact.setIdContact(resultSet.getLong("idContact"));
                 contact.setName(resultSet.getString("name"));
                 contact.setSurname(resultSet.getString("surname"));
                 contact.setPatronymic(resultSet.getString("patronymic"));
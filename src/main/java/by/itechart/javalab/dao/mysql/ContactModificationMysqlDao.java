@@ -3,21 +3,51 @@ package by.itechart.javalab.dao.mysql;
 
 import by.itechart.javalab.dao.ContactModificationDao;
 import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.StaleContactException;
+import by.itechart.javalab.entity.Address;
 import by.itechart.javalab.entity.Contact;
 import by.itechart.javalab.entity.ContactAttachment;
 import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.entity.Gender;
+import by.itechart.javalab.entity.MaritalStatus;
+import by.itechart.javalab.entity.PhoneType;
 import by.itechart.javalab.persistence.PersistenceManager;
 import by.itechart.javalab.persistence.TransactionException;
+import by.itechart.javalab.service.ContactChanges;
+import by.itechart.javalab.service.ContactField;
+import by.itechart.javalab.service.DeletionCounts;
+import by.itechart.javalab.util.BirthdayCalendar;
+import by.itechart.javalab.util.PhoneKeys;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 public final class ContactModificationMysqlDao implements ContactModificationDao {
     private final static ContactModificationMysqlDao instance = new ContactModificationMysqlDao();
     private static Logger log = LogManager.getLogger(ContactModificationMysqlDao.class.getName());
+    private static final String INSERT_CONTACT = "INSERT INTO contact " +
+            "(name, surname, patronymic, birthday, gender, " +
+            "maritalStatus, citizenship, website, email, company, " +
+            " city, street, houseNumber, apartmentNumber, zipCode, Country_idCountryCode, birthdayMonthDay, idContact) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PHONE = "INSERT INTO phone " +
+            "(countryCode, operatorCode, phoneNumber, phoneType, comment, Contact_idContact, phoneKey) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    // the rows are locked until the updating transaction ends, nobody else changes them between the diff and the write
+    private static final String SELECT_STORED_CONTACT = "SELECT name, surname, patronymic, birthday, gender, " +
+            "maritalStatus, citizenship, website, email, company, city, street, houseNumber, apartmentNumber, " +
+            "zipCode, Country_idCountryCode, version FROM contact WHERE idContact = ? AND available = ?";
+    private static final String SELECT_STORED_PHONES = "SELECT idPhone, countryCode, operatorCode, phoneNumber, " +
+            "phoneType, comment FROM phone WHERE Contact_idContact = ? AND available = ? ORDER BY idPhone";
+    private static final String SELECT_STORED_ATTACHMENTS = "SELECT idAttachment, fileName, uploadDate, comment, " +
+            "realFileName FROM attachment WHERE Contact_idContact = ? AND available = ? ORDER BY idAttachment";
+    private static final int IN_CHUNK_SIZE = 500;
 
     private ContactModificationMysqlDao() {}
 
@@ -48,45 +78,190 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
     }
 
     @Override
-    public Contact updateContact(Contact contact) throws DaoException {
-        log.debug("updateContact: {}", contact.getIdContact());
+    public void addNewContacts(List<Contact> contacts) throws DaoException {
+        log.debug("addNewContacts: {}", contacts.size());
+        if (contacts.isEmpty()) {
+            return;
+        }
         Connection connection = null;
+        PreparedStatement statement = null;
         try {
             connection = PersistenceManager.getConnection();
-            updatePersonalData(connection, contact);
-            updateContactPhones(connection, contact);
-            updateContactAttachments(connection, contact);
+            statement = connection.prepareStatement(INSERT_CONTACT, Statement.RETURN_GENERATED_KEYS);
+            for (Contact contact : contacts) {
+                bindPersonalData(statement, contact);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            // keys come back in the order the rows were added to the batch, ids assigned by the caller are kept
+            ResultSet resultSet = statement.getGeneratedKeys();
+            for (Contact contact : contacts) {
+                if (contact.getIdContact() == null) {
+                    if (!resultSet.next()) {
+                        throw new SQLException("Generated keys don't match the inserted contacts.");
+                    }
+                    contact.setIdContact(resultSet.getLong(1));
+                }
+                contact.setVersion(0);
+            }
+            closeStatement(statement);
+            statement = connection.prepareStatement(INSERT_PHONE);
+            int phoneCount = 0;
+            for (Contact contact : contacts) {
+                if (contact.getPhoneList() == null) {
+                    continue;
+                }
+                for (ContactPhone phone : contact.getPhoneList()) {
+                    phone.setIdContact(contact.getIdContact());
+                    bindPhone(statement, phone);
+                    statement.addBatch();
+                    phoneCount++;
+                }
+            }
+            if (phoneCount > 0) {
+                statement.executeBatch();
+            }
         } catch (TransactionException | SQLException ex) {
             log.error(ex);
-            throw new DaoException("Can't update contact.", ex);
+            throw new DaoException("Can't add new contacts.", ex);
+        } finally {
+            closeStatement(statement);
         }
-        return contact;
     }
 
     @Override
-    public void deleteContacts(Long[] contactsId) throws DaoException {
-        log.debug("deleteContacts: ");
+    public Contact getStoredContact(Long contactId) throws DaoException {
+        log.debug("getStoredContact: {}", contactId);
         Connection connection = null;
         PreparedStatement statement = null;
-        String tableName[] = {"phone", "attachment", "contact"};
-        String columnName[] = {"idPhone", "idAttachment", "idContact"};
+        Contact contact = null;
         try {
             connection = PersistenceManager.getConnection();
-            for (int i = 0; i < tableName.length; i++) {
-                statement = connection.prepareStatement("UPDATE " + tableName[i] +
-                        " SET available = ? WHERE " + columnName[i] + " = ?");
-                for (Long id : contactsId) {
-                    statement.setBoolean(1, false);
-                    statement.setLong(2, id);
-                    statement.executeUpdate();
-                }
+            statement = connection.prepareStatement(SELECT_STORED_CONTACT);
+            statement.setLong(1, contactId);
+            statement.setBoolean(2, true);
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+            contact = mapContact(contactId, resultSet);
+            closeStatement(statement);
+            statement = connection.prepareStatement(SELECT_STORED_PHONES);
+            statement.setLong(1, contactId);
+            statement.setBoolean(2, true);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                contact.getPhoneList().add(mapPhone(contactId, resultSet));
+            }
+            closeStatement(statement);
+            statement = connection.prepareStatement(SELECT_STORED_ATTACHMENTS);
+            statement.setLong(1, contactId);
+            statement.setBoolean(2, true);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                contact.getAttachmentList().add(mapAttachment(contactId, resultSet));
             }
         } catch (TransactionException | SQLException ex) {
             log.error(ex);
-            throw new DaoException("Can't delete contact.", ex);
+            throw new DaoException("Can't read stored contact.", ex);
         } finally {
             closeStatement(statement);
         }
+        return contact;
+    }
+
+    private Contact mapContact(Long contactId, ResultSet resultSet) throws SQLException {
+        Contact contact = new Contact();
+        contact.setIdContact(contactId);
+        contact.setName(resultSet.getString(1));
+        contact.setSurname(resultSet.getString(2));
+        contact.setPatronymic(resultSet.getString(3));
+        contact.setBirthday(resultSet.getDate(4));
+        String gender = resultSet.getString(5);
+        contact.setGender(StringUtils.isNotEmpty(gender) ? Gender.valueOf(gender) : null);
+        String maritalStatus = resultSet.getString(6);
+        contact.setMaritalStatus(StringUtils.isNotEmpty(maritalStatus) ? MaritalStatus.valueOf(maritalStatus) : null);
+        contact.setCitizenship(resultSet.getString(7));
+        contact.setWebsite(resultSet.getString(8));
+        contact.setEmail(resultSet.getString(9));
+        contact.setCompany(resultSet.getString(10));
+        Address address = new Address();
+        address.setCity(resultSet.getString(11));
+        address.setStreet(resultSet.getString(12));
+        address.setHouseNumber(resultSet.getString(13));
+        address.setApartmentNumber(resultSet.getString(14));
+        address.setZipCode(resultSet.getString(15));
+        address.setIdCountry(resultSet.getInt(16));
+        contact.setAddress(address);
+        contact.setVersion(resultSet.getInt(17));
+        contact.setPhoneList(new ArrayList<ContactPhone>());
+        contact.setAttachmentList(new ArrayList<ContactAttachment>());
+        return contact;
+    }
+
+    private ContactPhone mapPhone(Long contactId, ResultSet resultSet) throws SQLException {
+        ContactPhone phone = new ContactPhone();
+        phone.setIdPhone(resultSet.getLong(1));
+        phone.setIdContact(contactId);
+        phone.setCountryCode(resultSet.getInt(2));
+        phone.setOperatorCode(resultSet.getInt(3));
+        phone.setPhoneNumber(resultSet.getInt(4));
+        String phoneType = resultSet.getString(5);
+        phone.setPhoneType(StringUtils.isNotEmpty(phoneType) ? PhoneType.valueOf(phoneType) : null);
+        phone.setComment(resultSet.getString(6));
+        return phone;
+    }
+
+    private ContactAttachment mapAttachment(Long contactId, ResultSet resultSet) throws SQLException {
+        ContactAttachment attachment = new ContactAttachment();
+        attachment.setIdAttachment(resultSet.getLong(1));
+        attachment.setIdContact(contactId);
+        attachment.setFileName(resultSet.getString(2));
+        attachment.setUploadDate(resultSet.getDate(3));
+        attachment.setComment(resultSet.getString(4));
+        attachment.setRealFileName(resultSet.getString(5));
+        return attachment;
+    }
+
+    @Override
+    public Contact updateContact(Contact contact, ContactChanges changes) throws DaoException {
+        log.debug("updateContact: {}, {}", contact.getIdContact(), changes);
+        if (changes.isEmpty()) {
+            return contact;
+        }
+        Connection connection = null;
+        try {
+            connection = PersistenceManager.getConnection();
+            updatePersonalData(connection, contact, changes.getFields());
+            updateContactPhones(connection, changes.getPhones());
+            updateContactAttachments(connection, contact.getIdContact(), changes.getAttachments());
+        } catch (TransactionException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't update contact.", ex);
+        }
+        return contact;
+    }
+
+    @Override
+    public DeletionCounts deleteContacts(Long[] contactsId) throws DaoException {
+        log.debug("deleteContacts: {}", contactsId.length);
+        Connection connection = null;
+        DeletionCounts counts = new DeletionCounts();
+        List<Long> ids = Arrays.asList(contactsId);
+        try {
+            connection = PersistenceManager.getConnection();
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+                int contacts = markUnavailable(connection, "contact", "idContact", chunk);
+                int phones = markUnavailable(connection, "phone", "Contact_idContact", chunk);
+                int attachments = markUnavailable(connection, "attachment", "Contact_idContact", chunk);
+                counts.add(new DeletionCounts(contacts, phones, attachments));
+            }
+        } catch (TransactionException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't delete contact.", ex);
+        }
+        return counts;
     }
 
     @Override
@@ -105,20 +280,26 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
     @Override
     public void deleteContactPhones(List<ContactPhone> phones) throws DaoException {
         log.debug("deleteContactPhones: {}", phones);
+        if (phones.isEmpty()) {
+            return;
+        }
         Connection connection = null;
         PreparedStatement statement = null;
         try {
             connection = PersistenceManager.getConnection();
             statement = connection.prepareStatement("UPDATE phone" +
-                    " SET available = ? WHERE idPhone = ?");
+                    " SET available = ?, deletedAt = NOW() WHERE idPhone = ?");
             for (ContactPhone phone : phones) {
                 statement.setBoolean(1, false);
                 statement.setLong(2, phone.getIdPhone());
-                statement.executeUpdate();
+                statement.addBatch();
             }
+            statement.executeBatch();
         } catch (TransactionException | SQLException ex) {
             log.error(ex);
             throw new DaoException("Can't delete contact phones.", ex);
+        } finally {
+            closeStatement(statement);
         }
     }
 
@@ -140,6 +321,9 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
     @Override
     public void updateContactAttachments(Contact contact) throws DaoException {
         log.debug("updateContactAttachments: {}, {}", contact.getEmail(), contact.getAttachmentList());
+        if (contact.getAttachmentList().isEmpty()) {
+            return;
+        }
         Connection connection = null;
         PreparedStatement statement = null;
         try {
@@ -149,93 +333,86 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
             for (ContactAttachment attachment : contact.getAttachmentList()) {
                 statement.setString(1, attachment.getRealFileName());
                 statement.setLong(2, attachment.getIdAttachment());
-                statement.executeUpdate();
+                statement.addBatch();
             }
+            statement.executeBatch();
         } catch (TransactionException | SQLException ex) {
             log.error(ex);
             throw new DaoException("Can't update contact attachments.", ex);
+        } finally {
+            closeStatement(statement);
         }
     }
 
     @Override
     public void deleteContactAttachments(List<ContactAttachment> attachments) throws DaoException {
         log.debug("deleteContactAttachments: {}", attachments);
+        if (attachments.isEmpty()) {
+            return;
+        }
         Connection connection = null;
         PreparedStatement statement = null;
         try {
             connection = PersistenceManager.getConnection();
             statement = connection.prepareStatement("UPDATE attachment" +
-                    " SET available = ? WHERE idAttachment = ?");
+                    " SET available = ?, deletedAt = NOW() WHERE idAttachment = ?");
             for (ContactAttachment attachment : attachments) {
                 statement.setBoolean(1, false);
                 statement.setLong(2, attachment.getIdAttachment());
-                statement.executeUpdate();
+                statement.addBatch();
             }
+            statement.executeBatch();
         } catch (TransactionException | SQLException ex) {
             log.error(ex);
             throw new DaoException("Can't delete contact attachments.", ex);
+        } finally {
+            closeStatement(statement);
         }
     }
 
 
+    private int markUnavailable(Connection connection, String tableName, String columnName, List<Long> ids)
+            throws SQLException {
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement("UPDATE " + tableName + " SET available = ?, deletedAt = NOW() " +
+                    "WHERE available = ? AND " + columnName + " IN (" + getPlaceholders(ids.size()) + ")");
+            statement.setBoolean(1, false);
+            statement.setBoolean(2, true);
+            int position = 3;
+            for (Long id : ids) {
+                statement.setLong(position++, id);
+            }
+            return statement.executeUpdate();
+        } finally {
+            closeStatement(statement);
+        }
+    }
+
+    private String getPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                placeholders.append(',');
+            }
+            placeholders.append('?');
+        }
+        return placeholders.toString();
+    }
+
     private void savePersonalData(Connection connection, Contact contact) throws SQLException {
         PreparedStatement statement = null;
         try {
-            statement = connection.prepareStatement("INSERT INTO contact " +
-                            "(name, surname, patronymic, birthday, gender, " +
-                            "maritalStatus, citizenship, website, email, company, " +
-                            " city, street, houseNumber, apartmentNumber, zipCode, Country_idCountryCode) " +
-                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
-                            "(SELECT idCountryCode from country where fullName = ?))",
-                    Statement.RETURN_GENERATED_KEYS);
-            statement.setString(1, contact.getName());
-            statement.setString(2, contact.getSurname());
-            if (StringUtils.isNotEmpty(contact.getPatronymic()))
-                statement.setString(3, contact.getPatronymic());
-            else
-                statement.setNull(3, Types.VARCHAR);
-            if (contact.getBirthday() != null)
-                statement.setDate(4, new Date(contact.getBirthday().getTime()));
-            else
-                statement.setNull(4, Types.DATE);
-            if (contact.getGender() != null)
-                statement.setString(5, contact.getGender().name());
-            else
-                statement.setNull(5, Types.VARCHAR);
-            if (contact.getMaritalStatus() != null)
-                statement.setString(6, contact.getMaritalStatus().name());
-            else
-                statement.setNull(6, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getCitizenship()))
-                statement.setString(7, contact.getCitizenship());
-            else
-                statement.setNull(7, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getWebsite()))
-                statement.setString(8, contact.getWebsite());
-            else
-                statement.setNull(8, Types.VARCHAR);
-            statement.setString(9, contact.getEmail());
-            statement.setString(10, contact.getCompany());
-            statement.setString(11, contact.getAddress().getCity());
-            statement.setString(12, contact.getAddress().getStreet());
-            statement.setString(13, contact.getAddress().getHouseNumber());
-            if (StringUtils.isNotEmpty(contact.getAddress().getApartmentNumber()))
-                statement.setString(14, contact.getAddress().getApartmentNumber());
-            else
-                statement.setNull(14, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getAddress().getZipCode()))
-                statement.setString(15, contact.getAddress().getZipCode());
-            else
-                statement.setNull(15, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getAddress().getCountry()))
-                statement.setString(16, contact.getAddress().getCountry().toUpperCase());
-            else
-                statement.setNull(16, Types.VARCHAR);
+            statement = connection.prepareStatement(INSERT_CONTACT, Statement.RETURN_GENERATED_KEYS);
+            bindPersonalData(statement, contact);
             statement.execute();
-            ResultSet resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                contact.setIdContact((long) resultSet.getInt(1));
+            if (contact.getIdContact() == null) {
+                ResultSet resultSet = statement.getGeneratedKeys();
+                if (resultSet.next()) {
+                    contact.setIdContact((long) resultSet.getInt(1));
+                }
             }
+            contact.setVersion(0);
         } catch (SQLException e) {
             log.error(e);
             throw e;
@@ -244,36 +421,73 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
         }
     }
 
+    private void bindPersonalData(PreparedStatement statement, Contact contact) throws SQLException {
+        statement.setString(1, contact.getName());
+        statement.setString(2, contact.getSurname());
+        if (StringUtils.isNotEmpty(contact.getPatronymic()))
+            statement.setString(3, contact.getPatronymic());
+        else
+            statement.setNull(3, Types.VARCHAR);
+        if (contact.getBirthday() != null)
+            statement.setDate(4, new Date(contact.getBirthday().getTime()));
+        else
+            statement.setNull(4, Types.DATE);
+        if (contact.getGender() != null)
+            statement.setString(5, contact.getGender().name());
+        else
+            statement.setNull(5, Types.VARCHAR);
+        if (contact.getMaritalStatus() != null)
+            statement.setString(6, contact.getMaritalStatus().name());
+        else
+            statement.setNull(6, Types.VARCHAR);
+        if (StringUtils.isNotEmpty(contact.getCitizenship()))
+            statement.setString(7, contact.getCitizenship());
+        else
+            statement.setNull(7, Types.VARCHAR);
+        if (StringUtils.isNotEmpty(contact.getWebsite()))
+            statement.setString(8, contact.getWebsite());
+        else
+            statement.setNull(8, Types.VARCHAR);
+        statement.setString(9, contact.getEmail());
+        statement.setString(10, contact.getCompany());
+        statement.setString(11, contact.getAddress().getCity());
+        statement.setString(12, contact.getAddress().getStreet());
+        statement.setString(13, contact.getAddress().getHouseNumber());
+        if (StringUtils.isNotEmpty(contact.getAddress().getApartmentNumber()))
+            statement.setString(14, contact.getAddress().getApartmentNumber());
+        else
+            statement.setNull(14, Types.VARCHAR);
+        if (StringUtils.isNotEmpty(contact.getAddress().getZipCode()))
+            statement.setString(15, contact.getAddress().getZipCode());
+        else
+            statement.setNull(15, Types.VARCHAR);
+        if (contact.getAddress().getIdCountry() != null)
+            statement.setInt(16, contact.getAddress().getIdCountry());
+        else
+            statement.setNull(16, Types.INTEGER);
+        statement.setInt(17, BirthdayCalendar.toMonthDay(contact.getBirthday()));
+        if (contact.getIdContact() != null)
+            statement.setLong(18, contact.getIdContact());
+        else
+            statement.setNull(18, Types.BIGINT);
+    }
+
     private void saveContactPhones(Connection connection, List<ContactPhone> phones) throws SQLException {
+        if (phones.isEmpty()) {
+            return;
+        }
         PreparedStatement statement = null;
         try {
-            statement = connection.prepareStatement("INSERT INTO phone " +
-                    "(countryCode, operatorCode, phoneNumber, phoneType, comment, Contact_idContact) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            statement = connection.prepareStatement(INSERT_PHONE, Statement.RETURN_GENERATED_KEYS);
+            for (ContactPhone phone : phones) {
+                bindPhone(statement, phone);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            ResultSet resultSet = statement.getGeneratedKeys();
             for (ContactPhone phone : phones) {
-                if (phone.getCountryCode() != null)
-                    statement.setInt(1, phone.getCountryCode());
-                else
-                    statement.setNull(1, Types.INTEGER);
-                if (phone.getOperatorCode() != null)
-                    statement.setInt(2, phone.getOperatorCode());
-                else
-                    statement.setNull(2, Types.INTEGER);
-                statement.setInt(3, phone.getPhoneNumber());
-                statement.setString(4, phone.getPhoneType().name());
-                if (StringUtils.isNotEmpty(phone.getComment()))
-                    statement.setString(5, phone.getComment());
-                else
-                    statement.setNull(5, Types.VARCHAR);
-                if (phone.getIdContact() != null)
-                    statement.setLong(6, phone.getIdContact());
-                else
-                    statement.setNull(6, Types.INTEGER);
-                statement.execute();
-                ResultSet resultSet = statement.getGeneratedKeys();
                 if (resultSet.next()) {
-                    int id = resultSet.getInt(1);
-                    phone.setIdPhone((long) id);
+                    phone.setIdPhone(resultSet.getLong(1));
                 }
             }
         } catch (SQLException e) {
@@ -284,7 +498,32 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
         }
     }
 
+    private void bindPhone(PreparedStatement statement, ContactPhone phone) throws SQLException {
+        if (phone.getCountryCode() != null)
+            statement.setInt(1, phone.getCountryCode());
+        else
+            statement.setNull(1, Types.INTEGER);
+        if (phone.getOperatorCode() != null)
+            statement.setInt(2, phone.getOperatorCode());
+        else
+            statement.setNull(2, Types.INTEGER);
+        statement.setInt(3, phone.getPhoneNumber());
+        statement.setString(4, phone.getPhoneType().name());
+        if (StringUtils.isNotEmpty(phone.getComment()))
+            statement.setString(5, phone.getComment());
+        else
+            statement.setNull(5, Types.VARCHAR);
+        if (phone.getIdContact() != null)
+            statement.setLong(6, phone.getIdContact());
+        else
+            statement.setNull(6, Types.INTEGER);
+        statement.setString(7, PhoneKeys.of(phone));
+    }
+
     private List<ContactAttachment> saveContactAttachments(Connection connection, List<ContactAttachment> attachments) throws SQLException {
+        if (attachments.isEmpty()) {
+            return attachments;
+        }
         PreparedStatement statement = null;
         try {
             statement = connection.prepareStatement("INSERT INTO attachment " +
@@ -298,11 +537,13 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
                 else
                     statement.setNull(3, Types.VARCHAR);
                 statement.setLong(4, attachment.getIdContact());
-                statement.execute();
-                ResultSet resultSet = statement.getGeneratedKeys();
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            ResultSet resultSet = statement.getGeneratedKeys();
+            for (ContactAttachment attachment : attachments) {
                 if (resultSet.next()) {
-                    int id = resultSet.getInt(1);
-                    attachment.setIdAttachment((long) id);
+                    attachment.setIdAttachment(resultSet.getLong(1));
                 }
             }
         } catch (SQLException e) {
@@ -314,65 +555,30 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
         return attachments;
     }
 
-    private void updatePersonalData(Connection connection, Contact contact) throws SQLException {
+    private void updatePersonalData(Connection connection, final Contact contact, Set<ContactField> fields)
+            throws SQLException, StaleContactException {
         PreparedStatement statement = null;
         try {
-            statement = connection.prepareStatement("UPDATE contact " +
-                            "SET name = ?, surname = ?, patronymic = ?, birthday = ?, gender = ?, " +
-                            "maritalStatus = ?, citizenship = ?, website = ?, email = ?, company = ?, " +
-                            "city = ?, street = ?, houseNumber = ?, apartmentNumber = ?, zipCode = ?, " +
-                            "Country_idCountryCode = (SELECT idCountryCode from country where fullName = ?) " +
-                            "WHERE idContact = ?",
-                    Statement.RETURN_GENERATED_KEYS);
-            statement.setString(1, contact.getName());
-            statement.setString(2, contact.getSurname());
-            if (StringUtils.isNotEmpty(contact.getPatronymic()))
-                statement.setString(3, contact.getPatronymic());
-            else
-                statement.setNull(3, Types.VARCHAR);
-            if (contact.getBirthday() != null)
-                statement.setDate(4, new Date(contact.getBirthday().getTime()));
-            else
-                statement.setNull(4, Types.DATE);
-            if (contact.getGender() != null)
-                statement.setString(5, contact.getGender().name());
-            else
-                statement.setNull(5, Types.VARCHAR);
-            if (contact.getMaritalStatus() != null)
-                statement.setString(6, contact.getMaritalStatus().name());
-            else
-                statement.setNull(6, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getCitizenship()))
-                statement.setString(7, contact.getCitizenship());
-            else
-                statement.setNull(7, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getWebsite()))
-                statement.setString(8, contact.getWebsite());
-            else
-                statement.setNull(8, Types.VARCHAR);
-            statement.setString(9, contact.getEmail());
-            statement.setString(10, contact.getCompany());
-            statement.setString(11, contact.getAddress().getCity());
-            statement.setString(12, contact.getAddress().getStreet());
-            statement.setString(13, contact.getAddress().getHouseNumber());
-            if (StringUtils.isNotEmpty(contact.getAddress().getApartmentNumber()))
-                statement.setString(14, contact.getAddress().getApartmentNumber());
+            statement = connection.prepareStatement(ContactUpdateQuery.getSql(fields));
+            int position = ContactUpdateQuery.bind(statement, fields, contact);
+            statement.setLong(position++, contact.getIdContact());
+            if (contact.getVersion() != null)
+                statement.setInt(position, contact.getVersion());
             else
-                statement.setNull(14, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getAddress().getZipCode()))
-                statement.setString(15, contact.getAddress().getZipCode());
-            else
-                statement.setNull(15, Types.VARCHAR);
-            if (StringUtils.isNotEmpty(contact.getAddress().getCountry()))
-                statement.setString(16, contact.getAddress().getCountry().toUpperCase());
-            else
-                statement.setNull(16, Types.VARCHAR);
-            statement.setLong(17, contact.getIdContact());
-            statement.execute();
-            ResultSet resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                contact.setIdContact((long) resultSet.getInt(1));
+                statement.setNull(position, Types.INTEGER);
+            if (statement.executeUpdate() == 0) {
+                throw new StaleContactException("Contact " + contact.getIdContact() + " has been changed since version "
+                        + contact.getVersion() + ".");
             }
+            // a rolled back row keeps its version, so must the entity, or a replayed update would look stale
+            final Integer version = contact.getVersion();
+            contact.setVersion(version + 1);
+            PersistenceManager.runOnRollback(new Runnable() {
+                @Override
+                public void run() {
+                    contact.setVersion(version);
+                }
+            });
         } catch (SQLException e) {
             log.error(e);
             throw e;
@@ -381,13 +587,16 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
         }
     }
 
-    private void updateContactPhones(Connection connection, Contact contact) throws SQLException {
+    private void updateContactPhones(Connection connection, List<ContactPhone> phones) throws SQLException {
+        if (phones.isEmpty()) {
+            return;
+        }
         PreparedStatement statement = null;
         try {
             statement = connection.prepareStatement("UPDATE phone " +
-                    "SET countryCode = ?, operatorCode = ?, phoneNumber = ?, phoneType = ?, comment = ?, Contact_idContact = ? " +
-                    "WHERE idPhone = ?", Statement.RETURN_GENERATED_KEYS);
-            for (ContactPhone phone : contact.getPhoneList()) {
+                    "SET countryCode = ?, operatorCode = ?, phoneNumber = ?, phoneType = ?, comment = ?, Contact_idContact = ?, " +
+                    "phoneKey = ? WHERE idPhone = ?");
+            for (ContactPhone phone : phones) {
                 if (phone.getCountryCode() != null)
                     statement.setInt(1, phone.getCountryCode());
                 else {
@@ -408,14 +617,11 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
                     statement.setLong(6, phone.getIdContact());
                 else
                     statement.setNull(6, Types.INTEGER);
-                statement.setLong(7, phone.getIdPhone());
-                statement.execute();
-                ResultSet resultSet = statement.getGeneratedKeys();
-                if (resultSet.next()) {
-                    int id = resultSet.getInt(1);
-                    phone.setIdPhone((long) id);
-                }
+                statement.setString(7, PhoneKeys.of(phone));
+                statement.setLong(8, phone.getIdPhone());
+                statement.addBatch();
             }
+            statement.executeBatch();
         } catch (SQLException e) {
             log.error(e);
             throw e;
@@ -424,27 +630,27 @@ public final class ContactModificationMysqlDao implements ContactModificationDao
         }
     }
 
-    private void updateContactAttachments(Connection connection, Contact contact) throws SQLException {
+    private void updateContactAttachments(Connection connection, Long idContact, List<ContactAttachment> attachments)
+            throws SQLException {
+        if (attachments.isEmpty()) {
+            return;
+        }
         PreparedStatement statement = null;
         try {
             statement = connection.prepareStatement("UPDATE attachment " +
                     "SET fileName = ?, comment = ?, Contact_idContact = ? " +
-                    "WHERE idAttachment = ?", Statement.RETURN_GENERATED_KEYS);
-            for (ContactAttachment attachment : contact.getAttachmentList()) {
+                    "WHERE idAttachment = ?");
+            for (ContactAttachment attachment : attachments) {
                 statement.setString(1, attachment.getFileName());
                 if (StringUtils.isNotEmpty(attachment.getComment()))
                     statement.setString(2, attachment.getComment());
                 else
                     statement.setNull(2, Types.VARCHAR);
-                statement.setLong(3, contact.getIdContact());
+                statement.setLong(3, idContact);
                 statement.setLong(4, attachment.getIdAttachment());
-                statement.execute();
-                ResultSet resultSet = statement.getGeneratedKeys();
-                if (resultSet.next()) {
-                    int id = resultSet.getInt(1);
-                    attachment.setIdAttachment((long) id);
-                }
+                statement.addBatch();
             }
+            statement.executeBatch();
         } catch (SQLException e) {
             log.error(e);
             throw e;
@@ -0,0 +1,205 @@
+package by.itechart.javalab.dao.mysql;
+
+import by.itechart.javalab.dao.ContactPurgeDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.persistence.TransactionException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+public final class ContactPurgeMysqlDao implements ContactPurgeDao {
+    private final static ContactPurgeMysqlDao instance = new ContactPurgeMysqlDao();
+    private static Logger log = LogManager.getLogger(ContactPurgeMysqlDao.class.getName());
+
+    private ContactPurgeMysqlDao() {}
+
+    public static ContactPurgeMysqlDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public List<Long> getDeletedContactIds(Date deletedBefore, int limit) throws DaoException {
+        log.debug("getDeletedContactIds: {}, {}", deletedBefore, limit);
+        Connection connection = null;
+        PreparedStatement statement = null;
+        List<Long> ids = new ArrayList<>();
+        try {
+            connection = PersistenceManager.getConnection();
+            statement = connection.prepareStatement("SELECT idContact FROM contact " +
+                    "WHERE available = ? AND deletedAt < ? ORDER BY deletedAt LIMIT ?");
+            statement.setBoolean(1, false);
+            statement.setTimestamp(2, new Timestamp(deletedBefore.getTime()));
+            statement.setInt(3, limit);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong(1));
+            }
+        } catch (TransactionException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't get deleted contacts.", ex);
+        } finally {
+            closeStatement(statement);
+        }
+        return ids;
+    }
+
+    @Override
+    public List<ContactAttachment> purgeContacts(List<Long> contactIds) throws DaoException {
+        log.debug("purgeContacts: {}", contactIds.size());
+        Connection connection = null;
+        List<ContactAttachment> attachments = new ArrayList<>();
+        if (contactIds.isEmpty()) {
+            return attachments;
+        }
+        String placeholders = getPlaceholders(contactIds.size());
+        try {
+            connection = PersistenceManager.getConnection();
+            attachments = getAttachments(connection, "Contact_idContact IN (" + placeholders + ")", contactIds);
+            // children go first, the live tables still have foreign keys to contact
+            moveToArchive(connection, "attachment", "Contact_idContact IN (" + placeholders + ")", contactIds);
+            moveToArchive(connection, "phone", "Contact_idContact IN (" + placeholders + ")", contactIds);
+            moveToArchive(connection, "contact", "idContact IN (" + placeholders + ")", contactIds);
+        } catch (TransactionException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't purge contacts.", ex);
+        }
+        return attachments;
+    }
+
+    @Override
+    public List<ContactAttachment> purgeAttachments(Date deletedBefore, int limit) throws DaoException {
+        log.debug("purgeAttachments: {}, {}", deletedBefore, limit);
+        Connection connection = null;
+        List<ContactAttachment> attachments = new ArrayList<>();
+        try {
+            connection = PersistenceManager.getConnection();
+            List<Long> ids = getDeletedIds(connection, "idAttachment", "attachment", deletedBefore, limit);
+            if (!ids.isEmpty()) {
+                String condition = "idAttachment IN (" + getPlaceholders(ids.size()) + ")";
+                attachments = getAttachments(connection, condition, ids);
+                moveToArchive(connection, "attachment", condition, ids);
+            }
+        } catch (TransactionException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't purge attachments.", ex);
+        }
+        return attachments;
+    }
+
+    @Override
+    public int purgePhones(Date deletedBefore, int limit) throws DaoException {
+        log.debug("purgePhones: {}, {}", deletedBefore, limit);
+        Connection connection = null;
+        try {
+            connection = PersistenceManager.getConnection();
+            List<Long> ids = getDeletedIds(connection, "idPhone", "phone", deletedBefore, limit);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            return moveToArchive(connection, "phone", "idPhone IN (" + getPlaceholders(ids.size()) + ")", ids);
+        } catch (TransactionException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't purge phones.", ex);
+        }
+    }
+
+    private List<Long> getDeletedIds(Connection connection, String idColumn, String tableName, Date deletedBefore,
+                                     int limit) throws SQLException {
+        PreparedStatement statement = null;
+        List<Long> ids = new ArrayList<>();
+        try {
+            statement = connection.prepareStatement("SELECT " + idColumn + " FROM " + tableName +
+                    " WHERE available = ? AND deletedAt < ? ORDER BY deletedAt LIMIT ?");
+            statement.setBoolean(1, false);
+            statement.setTimestamp(2, new Timestamp(deletedBefore.getTime()));
+            statement.setInt(3, limit);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong(1));
+            }
+        } finally {
+            closeStatement(statement);
+        }
+        return ids;
+    }
+
+    private List<ContactAttachment> getAttachments(Connection connection, String condition, List<Long> ids)
+            throws SQLException {
+        PreparedStatement statement = null;
+        List<ContactAttachment> attachments = new ArrayList<>();
+        try {
+            statement = connection.prepareStatement("SELECT idAttachment, realFileName, Contact_idContact " +
+                    "FROM attachment WHERE " + condition);
+            bindIds(statement, ids);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                ContactAttachment attachment = new ContactAttachment();
+                attachment.setIdAttachment(resultSet.getLong(1));
+                attachment.setRealFileName(resultSet.getString(2));
+                attachment.setIdContact(resultSet.getLong(3));
+                attachments.add(attachment);
+            }
+        } finally {
+            closeStatement(statement);
+        }
+        return attachments;
+    }
+
+    // archive tables are created LIKE the live ones, so rows are copied column for column
+    private int moveToArchive(Connection connection, String tableName, String condition, List<Long> ids)
+            throws SQLException {
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement("INSERT INTO " + tableName + "Archive " +
+                    "SELECT * FROM " + tableName + " WHERE " + condition);
+            bindIds(statement, ids);
+            statement.executeUpdate();
+            closeStatement(statement);
+            statement = connection.prepareStatement("DELETE FROM " + tableName + " WHERE " + condition);
+            bindIds(statement, ids);
+            return statement.executeUpdate();
+        } finally {
+            closeStatement(statement);
+        }
+    }
+
+    private String getPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                placeholders.append(',');
+            }
+            placeholders.append('?');
+        }
+        return placeholders.toString();
+    }
+
+    private void bindIds(PreparedStatement statement, List<Long> ids) throws SQLException {
+        int position = 1;
+        for (Long id : ids) {
+            statement.setLong(position++, id);
+        }
+    }
+
+    private void closeStatement(Statement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                log.error(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package by.itechart.javalab.dao.mysql;
+
+import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.util.PhoneKeys;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+
+enum ContactSearchField {
+    NAME("name = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return StringUtils.isNotEmpty(attributes.getName());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getName());
+        }
+    },
+    SURNAME("surname = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return StringUtils.isNotEmpty(attributes.getSurname());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getSurname());
+        }
+    },
+    PATRONYMIC("patronymic = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return StringUtils.isNotEmpty(attributes.getPatronymic());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getPatronymic());
+        }
+    },
+    CITIZENSHIP("citizenship = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return StringUtils.isNotEmpty(attributes.getCitizenship());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getCitizenship());
+        }
+    },
+    GENDER("gender = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getGender() != null;
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getGender().name());
+        }
+    },
+    MARITAL_STATUS("maritalStatus = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getMaritalStatus() != null;
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getMaritalStatus().name());
+        }
+    },
+    BIRTHDAY_FROM("birthday >= ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getBirthdayDateFrom() != null;
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setDate(position, new Date(attributes.getBirthdayDateFrom().getTime()));
+        }
+    },
+    BIRTHDAY_TO("birthday <= ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getBirthdayDateTo() != null;
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setDate(position, new Date(attributes.getBirthdayDateTo().getTime()));
+        }
+    },
+    COUNTRY("Country_idCountryCode = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getCountry());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            if (attributes.getAddress().getIdCountry() != null) {
+                statement.setInt(position, attributes.getAddress().getIdCountry());
+            } else {
+                statement.setNull(position, Types.INTEGER);
+            }
+        }
+    },
+    CITY("city = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getCity());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getAddress().getCity());
+        }
+    },
+    STREET("street = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getStreet());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getAddress().getStreet());
+        }
+    },
+    HOUSE_NUMBER("houseNumber = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getHouseNumber());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getAddress().getHouseNumber());
+        }
+    },
+    APARTMENT_NUMBER("apartmentNumber = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getApartmentNumber());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getAddress().getApartmentNumber());
+        }
+    },
+    ZIP_CODE("zipCode = ?") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.getAddress() != null && StringUtils.isNotEmpty(attributes.getAddress().getZipCode());
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, attributes.getAddress().getZipCode());
+        }
+    },
+    // both phone conditions are a single range of Phone_available_phoneKey_idx
+    PHONE("idContact IN (SELECT Contact_idContact FROM phone WHERE available = 1 AND phoneKey = ?)") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return !attributes.isPhonePrefix() && PhoneKeys.normalize(attributes.getPhone()) != null;
+        }
+
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, PhoneKeys.normalize(attributes.getPhone()));
+        }
+    },
+    PHONE_PREFIX("idContact IN (SELECT Contact_idContact FROM phone WHERE available = 1 AND phoneKey LIKE ?)") {
+        @Override
+        boolean isSet(ContactSearchAttributes attributes) {
+            return attributes.isPhonePrefix() && PhoneKeys.normalize(attributes.getPhone()) != null;
+        }
+
+        // a key holds digits only, there is nothing to escape
+        @Override
+        void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException {
+            statement.setString(position, PhoneKeys.normalize(attributes.getPhone()) + "%");
+        }
+    };
+
+    private static final ContactSearchField[] FIELDS = values();
+    private final String condition;
+    private final int bit;
+
+    ContactSearchField(String condition) {
+        this.condition = condition;
+        this.bit = 1 << ordinal();
+    }
+
+    String getCondition() {
+        return condition;
+    }
+
+    int getBit() {
+        return bit;
+    }
+
+    abstract boolean isSet(ContactSearchAttributes attributes);
+
+    abstract void bind(PreparedStatement statement, int position, ContactSearchAttributes attributes) throws SQLException;
+
+    static int getMask(ContactSearchAttributes attributes) {
+        int mask = 0;
+        if (attributes == null) {
+            return mask;
+        }
+        for (ContactSearchField field : FIELDS) {
+            if (field.isSet(attributes)) {
+                mask |= field.bit;
+            }
+        }
+        return mask;
+    }
+
+    static ContactSearchField[] all() {
+        return FIELDS;
+    }
+}
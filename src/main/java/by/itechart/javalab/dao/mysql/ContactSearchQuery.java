@@ -0,0 +1,100 @@
+package by.itechart.javalab.dao.mysql;
+
+import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.ContactSortOrder;
+import by.itechart.javalab.service.PageRequest;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+final class ContactSearchQuery {
+    private static final String SELECT_CONTACTS = "select idContact, name, surname, birthday, " +
+            " company, city, street, houseNumber, apartmentNumber from contact where available = ? ";
+    private static final ConcurrentMap<Integer, String> shapes = new ConcurrentHashMap<>();
+
+    private ContactSearchQuery() {}
+
+    static String getSql(int mask, PageRequest pageRequest) {
+        int key = mask << 5 | pageRequest.getSortOrder().ordinal() << 2
+                | (pageRequest.isBackward() ? 2 : 0) | (pageRequest.hasCursor() ? 1 : 0);
+        String sql = shapes.get(key);
+        if (sql == null) {
+            sql = buildSql(mask, pageRequest);
+            String cached = shapes.putIfAbsent(key, sql);
+            if (cached != null) {
+                sql = cached;
+            }
+        }
+        return sql;
+    }
+
+    static void bind(PreparedStatement statement, int mask, ContactSearchAttributes attributes,
+                     PageRequest pageRequest) throws SQLException {
+        statement.setBoolean(1, true);
+        int position = bindConditions(statement, 2, mask, attributes);
+        if (pageRequest.hasCursor()) {
+            if (pageRequest.getSortOrder() != ContactSortOrder.ID) {
+                bindCursorValue(statement, position++, pageRequest);
+                bindCursorValue(statement, position++, pageRequest);
+            }
+            statement.setLong(position++, pageRequest.getCursorId());
+        }
+        statement.setInt(position, pageRequest.getPageSize() + 1);
+    }
+
+    static void appendConditions(StringBuilder sql, int mask) {
+        for (ContactSearchField field : ContactSearchField.all()) {
+            if ((mask & field.getBit()) != 0) {
+                sql.append("AND ").append(field.getCondition()).append(' ');
+            }
+        }
+    }
+
+    static int bindConditions(PreparedStatement statement, int firstPosition, int mask,
+                              ContactSearchAttributes attributes) throws SQLException {
+        int position = firstPosition;
+        for (ContactSearchField field : ContactSearchField.all()) {
+            if ((mask & field.getBit()) != 0) {
+                field.bind(statement, position++, attributes);
+            }
+        }
+        return position;
+    }
+
+    private static void bindCursorValue(PreparedStatement statement, int position, PageRequest pageRequest) throws SQLException {
+        if (pageRequest.getSortOrder() == ContactSortOrder.BIRTHDAY) {
+            statement.setDate(position, Date.valueOf(pageRequest.getCursorValue()));
+        } else {
+            statement.setString(position, pageRequest.getCursorValue());
+        }
+    }
+
+    private static String buildSql(int mask, PageRequest pageRequest) {
+        StringBuilder sql = new StringBuilder(SELECT_CONTACTS);
+        appendConditions(sql, mask);
+        String comparison = pageRequest.isBackward() ? "<" : ">";
+        String direction = pageRequest.isBackward() ? " DESC" : " ASC";
+        ContactSortOrder sortOrder = pageRequest.getSortOrder();
+        String column = sortOrder.getColumn();
+        // Expanded form of (column, idContact) > (?, ?): MySQL only turns it into an index range scan this way.
+        if (pageRequest.hasCursor()) {
+            if (sortOrder == ContactSortOrder.ID) {
+                sql.append("AND idContact ").append(comparison).append(" ? ");
+            } else {
+                sql.append("AND ").append(column).append(' ').append(comparison).append("= ? ")
+                        .append("AND (").append(column).append(' ').append(comparison).append(" ? ")
+                        .append("OR idContact ").append(comparison).append(" ?) ");
+            }
+        }
+        sql.append("ORDER BY ");
+        if (sortOrder != ContactSortOrder.ID) {
+            sql.append(column).append(direction).append(", ");
+        }
+        sql.append("idContact").append(direction).append(" LIMIT ?");
+        return sql.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package by.itechart.javalab.dao.mysql;
+
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.ContactField;
+import by.itechart.javalab.util.BirthdayCalendar;
+import org.apache.commons.lang3.StringUtils;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+final class ContactUpdateQuery {
+    // one UPDATE text per set of changed columns, so the driver's statement cache sees a handful of shapes
+    private static final ConcurrentMap<Integer, String> statements = new ConcurrentHashMap<>();
+
+    private ContactUpdateQuery() {}
+
+    static String getSql(Set<ContactField> fields) {
+        int mask = 0;
+        for (ContactField field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        String sql = statements.get(mask);
+        if (sql == null) {
+            StringBuilder builder = new StringBuilder("UPDATE contact SET ");
+            for (ContactField field : fields) {
+                if (builder.length() > "UPDATE contact SET ".length()) {
+                    builder.append(", ");
+                }
+                builder.append(getColumn(field)).append(" = ?");
+                if (field == ContactField.BIRTHDAY) {
+                    builder.append(", birthdayMonthDay = ?");
+                }
+            }
+            if (!fields.isEmpty()) {
+                builder.append(", ");
+            }
+            // every write bumps the version, the WHERE clause rejects edits made on top of an older one
+            builder.append("version = version + 1 WHERE idContact = ? AND version = ?");
+            sql = builder.toString();
+            statements.putIfAbsent(mask, sql);
+        }
+        return sql;
+    }
+
+    static int bind(PreparedStatement statement, Set<ContactField> fields, Contact contact) throws SQLException {
+        int position = 1;
+        for (ContactField field : fields) {
+            Object value = field.getValue(contact);
+            switch (field) {
+                case BIRTHDAY:
+                    if (value != null)
+                        statement.setDate(position++, new Date(contact.getBirthday().getTime()));
+                    else
+                        statement.setNull(position++, Types.DATE);
+                    statement.setInt(position++, BirthdayCalendar.toMonthDay(contact.getBirthday()));
+                    break;
+                case COUNTRY:
+                    if (value != null)
+                        statement.setInt(position++, (Integer) value);
+                    else
+                        statement.setNull(position++, Types.INTEGER);
+                    break;
+                case GENDER:
+                case MARITAL_STATUS:
+                    if (value != null)
+                        statement.setString(position++, ((Enum<?>) value).name());
+                    else
+                        statement.setNull(position++, Types.VARCHAR);
+                    break;
+                case PATRONYMIC:
+                case CITIZENSHIP:
+                case WEBSITE:
+                case APARTMENT_NUMBER:
+                case ZIP_CODE:
+                    if (StringUtils.isNotEmpty((String) value))
+                        statement.setString(position++, (String) value);
+                    else
+                        statement.setNull(position++, Types.VARCHAR);
+                    break;
+                default:
+                    statement.setString(position++, (String) value);
+                    break;
+            }
+        }
+        return position;
+    }
+
+    private static String getColumn(ContactField field) {
+        switch (field) {
+            case NAME:
+                return "name";
+            case SURNAME:
+                return "surname";
+            case PATRONYMIC:
+                return "patronymic";
+            case BIRTHDAY:
+                return "birthday";
+            case GENDER:
+                return "gender";
+            case MARITAL_STATUS:
+                return "maritalStatus";
+            case CITIZENSHIP:
+                return "citizenship";
+            case WEBSITE:
+                return "website";
+            case EMAIL:
+                return "email";
+            case COMPANY:
+                return "company";
+            case CITY:
+                return "city";
+            case STREET:
+                return "street";
+            case HOUSE_NUMBER:
+                return "houseNumber";
+            case APARTMENT_NUMBER:
+                return "apartmentNumber";
+            case ZIP_CODE:
+                return "zipCode";
+            case COUNTRY:
+                return "Country_idCountryCode";
+            default:
+                throw new IllegalArgumentException("Unknown contact field: " + field);
+        }
+    }
+}
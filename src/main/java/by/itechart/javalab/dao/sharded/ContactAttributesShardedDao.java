@@ -0,0 +1,31 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.dao.ContactAttributes;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.mysql.ContactAttributesMysqlDao;
+import by.itechart.javalab.entity.Country;
+
+import java.util.List;
+
+
+// the country table is the same on every shard, it's read from the main one
+public final class ContactAttributesShardedDao implements ContactAttributes {
+    private final static ContactAttributesShardedDao instance = new ContactAttributesShardedDao();
+    private final ShardMap shardMap = ShardMap.getInstance();
+
+    private ContactAttributesShardedDao() {}
+
+    public static ContactAttributesShardedDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public List<Country> getCountries() throws DaoException {
+        return ShardMap.callOnShard(shardMap.getMainShard(), new ShardMap.ShardCall<List<Country>>() {
+            @Override
+            public List<Country> call() throws DaoException {
+                return ContactAttributesMysqlDao.getInstance().getCountries();
+            }
+        });
+    }
+}
@@ -0,0 +1,177 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.mysql.ContactFindMysqlDao;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.ContactPage;
+import by.itechart.javalab.service.ContactProjection;
+import by.itechart.javalab.service.ContactRowHandler;
+import by.itechart.javalab.service.ContactSearchAttributes;
+import by.itechart.javalab.service.PageRequest;
+import by.itechart.javalab.util.BirthdayCalendar;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+public final class ContactFindShardedDao implements ContactFindDao {
+    private final static ContactFindShardedDao instance = new ContactFindShardedDao();
+    private static Logger log = LogManager.getLogger(ContactFindShardedDao.class.getName());
+    private final ShardMap shardMap = ShardMap.getInstance();
+    private final ContactFindMysqlDao shardDao = ContactFindMysqlDao.getInstance();
+
+    private ContactFindShardedDao() {}
+
+    public static ContactFindShardedDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public ContactPage getContacts(PageRequest pageRequest) throws DaoException {
+        return getContacts(null, pageRequest);
+    }
+
+    @Override
+    public ContactPage getContacts(final ContactSearchAttributes searchAttributes, final PageRequest pageRequest)
+            throws DaoException {
+        log.debug("getContacts: {}", pageRequest);
+        List<ContactPage> pages = new ArrayList<>();
+        for (String shard : shardMap.getShards()) {
+            pages.add(ShardMap.callOnShard(shard, new ShardMap.ShardCall<ContactPage>() {
+                @Override
+                public ContactPage call() throws DaoException {
+                    return shardDao.getContacts(searchAttributes, pageRequest);
+                }
+            }));
+        }
+        return ShardPageMerger.merge(pages, pageRequest);
+    }
+
+    @Override
+    public Contact getContact(final Long contactId) throws DaoException {
+        return ShardMap.callOnShard(shardMap.getShard(contactId), new ShardMap.ShardCall<Contact>() {
+            @Override
+            public Contact call() throws DaoException {
+                return shardDao.getContact(contactId);
+            }
+        });
+    }
+
+    @Override
+    public List<Contact> getContacts(Collection<Long> contactIds, final ContactProjection projection)
+            throws DaoException {
+        log.debug("getContacts: {} ids, {}", contactIds.size(), projection);
+        Set<Long> uniqueIds = new LinkedHashSet<>(contactIds);
+        uniqueIds.remove(null);
+        Map<Long, Contact> contacts = new HashMap<>();
+        for (Map.Entry<String, List<Long>> group : shardMap.groupByShard(uniqueIds, ShardMap.CONTACT_ID).entrySet()) {
+            final List<Long> ids = group.getValue();
+            List<Contact> shardContacts = ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<List<Contact>>() {
+                @Override
+                public List<Contact> call() throws DaoException {
+                    return shardDao.getContacts(ids, projection);
+                }
+            });
+            for (Contact contact : shardContacts) {
+                contacts.put(contact.getIdContact(), contact);
+            }
+        }
+        List<Contact> result = new ArrayList<>(contacts.size());
+        for (Long id : uniqueIds) {
+            Contact contact = contacts.get(id);
+            if (contact != null) {
+                result.add(contact);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Long> getContactIds(final ContactSearchAttributes searchAttributes) throws DaoException {
+        log.debug("getContactIds: ");
+        List<Long> ids = new ArrayList<>();
+        for (String shard : shardMap.getShards()) {
+            ids.addAll(ShardMap.callOnShard(shard, new ShardMap.ShardCall<List<Long>>() {
+                @Override
+                public List<Long> call() throws DaoException {
+                    return shardDao.getContactIds(searchAttributes);
+                }
+            }));
+        }
+        return ids;
+    }
+
+    // streamed shard after shard, so the rows are in id order within a shard only
+    @Override
+    public void exportContacts(final ContactSearchAttributes searchAttributes, final ContactRowHandler handler)
+            throws DaoException {
+        log.debug("exportContacts");
+        for (String shard : shardMap.getShards()) {
+            ShardMap.callOnShard(shard, new ShardMap.ShardCall<Void>() {
+                @Override
+                public Void call() throws DaoException {
+                    shardDao.exportContacts(searchAttributes, handler);
+                    return null;
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<String> getEmails(Collection<Long> contactIds) throws DaoException {
+        log.debug("getEmails: {}", contactIds.size());
+        List<String> emails = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> group : shardMap.groupByShard(contactIds, ShardMap.CONTACT_ID).entrySet()) {
+            final List<Long> ids = group.getValue();
+            emails.addAll(ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<List<String>>() {
+                @Override
+                public List<String> call() throws DaoException {
+                    return shardDao.getEmails(ids);
+                }
+            }));
+        }
+        return emails;
+    }
+
+    @Override
+    public List<Contact> getBirthdayContacts() throws DaoException {
+        return getUpcomingBirthdayContacts(0);
+    }
+
+    @Override
+    public List<Contact> getUpcomingBirthdayContacts(final int days) throws DaoException {
+        log.debug("getUpcomingBirthdayContacts: {}", days);
+        final int start = BirthdayCalendar.getMonthDayRanges(new Date(), days).get(0)[0];
+        List<Contact> contacts = new ArrayList<>();
+        for (String shard : shardMap.getShards()) {
+            contacts.addAll(ShardMap.callOnShard(shard, new ShardMap.ShardCall<List<Contact>>() {
+                @Override
+                public List<Contact> call() throws DaoException {
+                    return shardDao.getUpcomingBirthdayContacts(days);
+                }
+            }));
+        }
+        Collections.sort(contacts, new Comparator<Contact>() {
+            @Override
+            public int compare(Contact first, Contact second) {
+                int comparison = BirthdayCalendar.compareUpcoming(first.getBirthday(), second.getBirthday(), start);
+                if (comparison != 0) {
+                    return comparison;
+                }
+                return first.getIdContact().compareTo(second.getIdContact());
+            }
+        });
+        return contacts;
+    }
+}
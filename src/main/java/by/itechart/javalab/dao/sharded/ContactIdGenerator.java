@@ -0,0 +1,92 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.persistence.PersistenceManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.naming.NamingException;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+
+// hi/lo ids: a block is reserved on the main shard in its own short transaction, ids are then handed out locally
+final class ContactIdGenerator {
+    private static Logger log = LogManager.getLogger(ContactIdGenerator.class.getName());
+    private final static ContactIdGenerator instance = new ContactIdGenerator();
+    private static final String SEQUENCE_NAME = "contact";
+    private static final String RESERVE_BLOCK = "UPDATE idSequence SET nextValue = LAST_INSERT_ID(nextValue + ?) " +
+            "WHERE name = ?";
+    private static final String SELECT_RESERVED = "SELECT LAST_INSERT_ID()";
+    private final int blockSize;
+    private long next;
+    private long limit;
+
+    private ContactIdGenerator() {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        blockSize = Integer.parseInt(properties.getProperty("sharding.idBlockSize", "100"));
+    }
+
+    static ContactIdGenerator getInstance() {
+        return instance;
+    }
+
+    synchronized long nextId() throws DaoException {
+        if (next >= limit) {
+            limit = reserveBlock();
+            next = limit - blockSize;
+        }
+        return next++;
+    }
+
+    private long reserveBlock() throws DaoException {
+        String previous = PersistenceManager.bindShard(ShardMap.getInstance().getMainShard());
+        Connection connection = null;
+        PreparedStatement statement = null;
+        Statement select = null;
+        try {
+            // not the transaction connection: the block stays reserved even if the caller rolls back
+            connection = PersistenceManager.createConnection();
+            statement = connection.prepareStatement(RESERVE_BLOCK);
+            statement.setInt(1, blockSize);
+            statement.setString(2, SEQUENCE_NAME);
+            if (statement.executeUpdate() == 0) {
+                throw new DaoException("Id sequence " + SEQUENCE_NAME + " doesn't exist.");
+            }
+            select = connection.createStatement();
+            ResultSet resultSet = select.executeQuery(SELECT_RESERVED);
+            resultSet.next();
+            long reserved = resultSet.getLong(1);
+            log.debug("Reserved contact ids up to {}", reserved);
+            return reserved;
+        } catch (NamingException | SQLException ex) {
+            log.error(ex);
+            throw new DaoException("Can't reserve contact ids.", ex);
+        } finally {
+            closeStatement(select);
+            closeStatement(statement);
+            PersistenceManager.closeConnection(connection);
+            PersistenceManager.bindShard(previous);
+        }
+    }
+
+    private void closeStatement(Statement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                log.error(ex);
+            }
+        }
+    }
+}
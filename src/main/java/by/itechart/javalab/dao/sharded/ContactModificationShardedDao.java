@@ -0,0 +1,216 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.dao.ContactModificationDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.mysql.ContactModificationMysqlDao;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.service.ContactChanges;
+import by.itechart.javalab.service.DeletionCounts;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+// Every call is routed to the shards of the contacts it touches. Phones and attachments live on the shard of
+// their contact, so they are routed by the contact id they carry.
+public final class ContactModificationShardedDao implements ContactModificationDao {
+    private final static ContactModificationShardedDao instance = new ContactModificationShardedDao();
+    private static Logger log = LogManager.getLogger(ContactModificationShardedDao.class.getName());
+    private static final ShardMap.ShardKey<Contact> CONTACT = new ShardMap.ShardKey<Contact>() {
+        @Override
+        public Long getContactId(Contact item) {
+            return item.getIdContact();
+        }
+    };
+    private static final ShardMap.ShardKey<ContactPhone> PHONE = new ShardMap.ShardKey<ContactPhone>() {
+        @Override
+        public Long getContactId(ContactPhone item) {
+            return item.getIdContact();
+        }
+    };
+    private static final ShardMap.ShardKey<ContactAttachment> ATTACHMENT = new ShardMap.ShardKey<ContactAttachment>() {
+        @Override
+        public Long getContactId(ContactAttachment item) {
+            return item.getIdContact();
+        }
+    };
+    private final ShardMap shardMap = ShardMap.getInstance();
+    private final ContactIdGenerator idGenerator = ContactIdGenerator.getInstance();
+    private final ContactModificationMysqlDao shardDao = ContactModificationMysqlDao.getInstance();
+
+    private ContactModificationShardedDao() {}
+
+    public static ContactModificationShardedDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public Contact addNewContact(final Contact contact) throws DaoException {
+        log.debug("addNewContact: {}, {}", contact.getSurname(), contact.getEmail());
+        if (contact.getIdContact() == null) {
+            contact.setIdContact(idGenerator.nextId());
+        }
+        return ShardMap.callOnShard(shardMap.getShard(contact.getIdContact()), new ShardMap.ShardCall<Contact>() {
+            @Override
+            public Contact call() throws DaoException {
+                return shardDao.addNewContact(contact);
+            }
+        });
+    }
+
+    @Override
+    public void addNewContacts(List<Contact> contacts) throws DaoException {
+        log.debug("addNewContacts: {}", contacts.size());
+        for (Contact contact : contacts) {
+            if (contact.getIdContact() == null) {
+                contact.setIdContact(idGenerator.nextId());
+            }
+        }
+        for (Map.Entry<String, List<Contact>> group : shardMap.groupByShard(contacts, CONTACT).entrySet()) {
+            final List<Contact> shardContacts = group.getValue();
+            ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<Void>() {
+                @Override
+                public Void call() throws DaoException {
+                    shardDao.addNewContacts(shardContacts);
+                    return null;
+                }
+            });
+        }
+    }
+
+    @Override
+    public Contact getStoredContact(final Long contactId) throws DaoException {
+        return ShardMap.callOnShard(shardMap.getShard(contactId), new ShardMap.ShardCall<Contact>() {
+            @Override
+            public Contact call() throws DaoException {
+                return shardDao.getStoredContact(contactId);
+            }
+        });
+    }
+
+    @Override
+    public Contact updateContact(final Contact contact, final ContactChanges changes) throws DaoException {
+        log.debug("updateContact: {}, {}", contact.getIdContact(), changes);
+        return ShardMap.callOnShard(shardMap.getShard(contact.getIdContact()), new ShardMap.ShardCall<Contact>() {
+            @Override
+            public Contact call() throws DaoException {
+                return shardDao.updateContact(contact, changes);
+            }
+        });
+    }
+
+    @Override
+    public DeletionCounts deleteContacts(Long[] contactsId) throws DaoException {
+        log.debug("deleteContacts: {}", contactsId.length);
+        DeletionCounts counts = new DeletionCounts();
+        for (Map.Entry<String, List<Long>> group
+                : shardMap.groupByShard(Arrays.asList(contactsId), ShardMap.CONTACT_ID).entrySet()) {
+            final List<Long> ids = group.getValue();
+            counts.add(ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<DeletionCounts>() {
+                @Override
+                public DeletionCounts call() throws DaoException {
+                    return shardDao.deleteContacts(ids.toArray(new Long[ids.size()]));
+                }
+            }));
+        }
+        return counts;
+    }
+
+    @Override
+    public void saveContactPhones(List<ContactPhone> phones) throws DaoException {
+        log.debug("saveContactPhones: {}", phones);
+        for (Map.Entry<String, List<ContactPhone>> group : groupPhones(phones).entrySet()) {
+            final List<ContactPhone> shardPhones = group.getValue();
+            ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<Void>() {
+                @Override
+                public Void call() throws DaoException {
+                    shardDao.saveContactPhones(shardPhones);
+                    return null;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void deleteContactPhones(List<ContactPhone> phones) throws DaoException {
+        log.debug("deleteContactPhones: {}", phones);
+        for (Map.Entry<String, List<ContactPhone>> group : groupPhones(phones).entrySet()) {
+            final List<ContactPhone> shardPhones = group.getValue();
+            ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<Void>() {
+                @Override
+                public Void call() throws DaoException {
+                    shardDao.deleteContactPhones(shardPhones);
+                    return null;
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<ContactAttachment> saveContactAttachments(List<ContactAttachment> attachments) throws DaoException {
+        log.debug("saveContactAttachments: {}", attachments);
+        for (Map.Entry<String, List<ContactAttachment>> group : groupAttachments(attachments).entrySet()) {
+            final List<ContactAttachment> shardAttachments = group.getValue();
+            ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<Void>() {
+                @Override
+                public Void call() throws DaoException {
+                    shardDao.saveContactAttachments(shardAttachments);
+                    return null;
+                }
+            });
+        }
+        return attachments;
+    }
+
+    @Override
+    public void updateContactAttachments(final Contact contact) throws DaoException {
+        log.debug("updateContactAttachments: {}, {}", contact.getEmail(), contact.getAttachmentList());
+        ShardMap.callOnShard(shardMap.getShard(contact.getIdContact()), new ShardMap.ShardCall<Void>() {
+            @Override
+            public Void call() throws DaoException {
+                shardDao.updateContactAttachments(contact);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void deleteContactAttachments(List<ContactAttachment> attachments) throws DaoException {
+        log.debug("deleteContactAttachments: {}", attachments);
+        for (Map.Entry<String, List<ContactAttachment>> group : groupAttachments(attachments).entrySet()) {
+            final List<ContactAttachment> shardAttachments = group.getValue();
+            ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<Void>() {
+                @Override
+                public Void call() throws DaoException {
+                    shardDao.deleteContactAttachments(shardAttachments);
+                    return null;
+                }
+            });
+        }
+    }
+
+    private Map<String, List<ContactPhone>> groupPhones(List<ContactPhone> phones) throws DaoException {
+        for (ContactPhone phone : phones) {
+            if (phone.getIdContact() == null) {
+                throw new DaoException("Phone " + phone.getIdPhone() + " has no contact, can't find its shard.");
+            }
+        }
+        return shardMap.groupByShard(phones, PHONE);
+    }
+
+    private Map<String, List<ContactAttachment>> groupAttachments(List<ContactAttachment> attachments)
+            throws DaoException {
+        for (ContactAttachment attachment : attachments) {
+            if (attachment.getIdContact() == null) {
+                throw new DaoException("Attachment " + attachment.getIdAttachment()
+                        + " has no contact, can't find its shard.");
+            }
+        }
+        return shardMap.groupByShard(attachments, ATTACHMENT);
+    }
+}
@@ -0,0 +1,101 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.dao.ContactPurgeDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.mysql.ContactPurgeMysqlDao;
+import by.itechart.javalab.entity.ContactAttachment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+
+// a batch is filled shard after shard, the limit is shared between them
+public final class ContactPurgeShardedDao implements ContactPurgeDao {
+    private final static ContactPurgeShardedDao instance = new ContactPurgeShardedDao();
+    private static Logger log = LogManager.getLogger(ContactPurgeShardedDao.class.getName());
+    private final ShardMap shardMap = ShardMap.getInstance();
+    private final ContactPurgeMysqlDao shardDao = ContactPurgeMysqlDao.getInstance();
+
+    private ContactPurgeShardedDao() {}
+
+    public static ContactPurgeShardedDao getInstance(){
+        return instance;
+    }
+
+    @Override
+    public List<Long> getDeletedContactIds(final Date deletedBefore, int limit) throws DaoException {
+        log.debug("getDeletedContactIds: {}, {}", deletedBefore, limit);
+        List<Long> ids = new ArrayList<>();
+        for (String shard : shardMap.getShards()) {
+            final int remaining = limit - ids.size();
+            if (remaining <= 0) {
+                break;
+            }
+            ids.addAll(ShardMap.callOnShard(shard, new ShardMap.ShardCall<List<Long>>() {
+                @Override
+                public List<Long> call() throws DaoException {
+                    return shardDao.getDeletedContactIds(deletedBefore, remaining);
+                }
+            }));
+        }
+        return ids;
+    }
+
+    @Override
+    public List<ContactAttachment> purgeContacts(List<Long> contactIds) throws DaoException {
+        log.debug("purgeContacts: {}", contactIds.size());
+        List<ContactAttachment> attachments = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> group : shardMap.groupByShard(contactIds, ShardMap.CONTACT_ID).entrySet()) {
+            final List<Long> ids = group.getValue();
+            attachments.addAll(ShardMap.callOnShard(group.getKey(), new ShardMap.ShardCall<List<ContactAttachment>>() {
+                @Override
+                public List<ContactAttachment> call() throws DaoException {
+                    return shardDao.purgeContacts(ids);
+                }
+            }));
+        }
+        return attachments;
+    }
+
+    @Override
+    public List<ContactAttachment> purgeAttachments(final Date deletedBefore, int limit) throws DaoException {
+        log.debug("purgeAttachments: {}, {}", deletedBefore, limit);
+        List<ContactAttachment> attachments = new ArrayList<>();
+        for (String shard : shardMap.getShards()) {
+            final int remaining = limit - attachments.size();
+            if (remaining <= 0) {
+                break;
+            }
+            attachments.addAll(ShardMap.callOnShard(shard, new ShardMap.ShardCall<List<ContactAttachment>>() {
+                @Override
+                public List<ContactAttachment> call() throws DaoException {
+                    return shardDao.purgeAttachments(deletedBefore, remaining);
+                }
+            }));
+        }
+        return attachments;
+    }
+
+    @Override
+    public int purgePhones(final Date deletedBefore, int limit) throws DaoException {
+        log.debug("purgePhones: {}, {}", deletedBefore, limit);
+        int purged = 0;
+        for (String shard : shardMap.getShards()) {
+            final int remaining = limit - purged;
+            if (remaining <= 0) {
+                break;
+            }
+            purged += ShardMap.callOnShard(shard, new ShardMap.ShardCall<Integer>() {
+                @Override
+                public Integer call() throws DaoException {
+                    return shardDao.purgePhones(deletedBefore, remaining);
+                }
+            });
+        }
+        return purged;
+    }
+}
@@ -0,0 +1,128 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.persistence.PersistenceManager;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+
+// contact ids are hashed into a fixed number of buckets, every bucket belongs to one shard
+final class ShardMap {
+    private static Logger log = LogManager.getLogger(ShardMap.class.getName());
+    static final ShardKey<Long> CONTACT_ID = new ShardKey<Long>() {
+        @Override
+        public Long getContactId(Long item) {
+            return item;
+        }
+    };
+    private final static ShardMap instance = new ShardMap();
+    private final List<String> shards = new ArrayList<>();
+    private final String[] bucketShards;
+
+    private ShardMap() {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        for (String shard : properties.getProperty("sharding.shards", "").split(",")) {
+            if (StringUtils.isNotEmpty(shard.trim())) {
+                shards.add(shard.trim());
+            }
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("No shards are configured.");
+        }
+        bucketShards = new String[Integer.parseInt(properties.getProperty("sharding.buckets", "1024"))];
+        String map = properties.getProperty("sharding.map", "");
+        if (StringUtils.isNotEmpty(map)) {
+            // bucketFrom-bucketTo:shard, comma separated
+            for (String range : map.split(",")) {
+                String[] parts = range.trim().split(":");
+                String[] bounds = parts[0].split("-");
+                int from = Integer.parseInt(bounds[0].trim());
+                int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+                String shard = parts[1].trim();
+                if (!shards.contains(shard)) {
+                    throw new IllegalStateException("Shard map refers to an unknown shard " + shard + ".");
+                }
+                for (int bucket = from; bucket <= to; bucket++) {
+                    bucketShards[bucket] = shard;
+                }
+            }
+        }
+        for (int bucket = 0; bucket < bucketShards.length; bucket++) {
+            if (bucketShards[bucket] == null) {
+                if (StringUtils.isNotEmpty(map)) {
+                    throw new IllegalStateException("Bucket " + bucket + " isn't mapped to a shard.");
+                }
+                bucketShards[bucket] = shards.get(bucket % shards.size());
+            }
+        }
+        log.info("Contacts are spread over {} buckets on shards {}", bucketShards.length, shards);
+    }
+
+    static ShardMap getInstance() {
+        return instance;
+    }
+
+    List<String> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    // ids, countries and other shared rows live on the first shard
+    String getMainShard() {
+        return shards.get(0);
+    }
+
+    String getShard(Long contactId) {
+        return bucketShards[(int) (Math.abs(contactId) % bucketShards.length)];
+    }
+
+    <T> Map<String, List<T>> groupByShard(Collection<T> items, ShardKey<T> key) {
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            if (key.getContactId(item) == null) {
+                continue;
+            }
+            String shard = getShard(key.getContactId(item));
+            List<T> group = groups.get(shard);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(shard, group);
+            }
+            group.add(item);
+        }
+        return groups;
+    }
+
+    // connections opened by the call go to the shard, the caller's binding is restored afterwards
+    static <T> T callOnShard(String shard, ShardCall<T> call) throws DaoException {
+        String previous = PersistenceManager.bindShard(shard);
+        try {
+            return call.call();
+        } finally {
+            PersistenceManager.bindShard(previous);
+        }
+    }
+
+
+    interface ShardCall<T> {
+        T call() throws DaoException;
+    }
+
+    interface ShardKey<T> {
+        Long getContactId(T item);
+    }
+}
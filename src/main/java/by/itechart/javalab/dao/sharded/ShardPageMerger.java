@@ -0,0 +1,119 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.ContactPage;
+import by.itechart.javalab.service.ContactSortOrder;
+import by.itechart.javalab.service.PageRequest;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+
+// Every shard answers the same keyset page request, so each page is sorted and holds at most pageSize rows
+// next to the cursor. A k-way merge of the pages walked away from the cursor gives the first pageSize rows
+// of the whole cluster.
+final class ShardPageMerger {
+
+    private ShardPageMerger() {}
+
+    static ContactPage merge(List<ContactPage> pages, PageRequest pageRequest) {
+        final boolean backward = pageRequest.isBackward();
+        final Comparator<Contact> order = getOrder(pageRequest.getSortOrder());
+        PriorityQueue<PageCursor> heads = new PriorityQueue<>(Math.max(pages.size(), 1), new Comparator<PageCursor>() {
+            @Override
+            public int compare(PageCursor first, PageCursor second) {
+                int comparison = order.compare(first.current(), second.current());
+                return backward ? -comparison : comparison;
+            }
+        });
+        boolean shardHasMore = false;
+        for (ContactPage page : pages) {
+            shardHasMore |= backward ? page.isHasPrevious() : page.isHasNext();
+            if (!page.getContacts().isEmpty()) {
+                heads.add(new PageCursor(page.getContacts(), backward));
+            }
+        }
+        List<Contact> contacts = new ArrayList<>(pageRequest.getPageSize());
+        while (contacts.size() < pageRequest.getPageSize() && !heads.isEmpty()) {
+            PageCursor head = heads.poll();
+            contacts.add(head.current());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        boolean hasMore = !heads.isEmpty() || shardHasMore;
+        if (backward) {
+            Collections.reverse(contacts);
+            return new ContactPage(contacts, pageRequest, true, hasMore);
+        }
+        return new ContactPage(contacts, pageRequest, hasMore, pageRequest.hasCursor());
+    }
+
+    // the ORDER BY of the search query: sort column and NULL first, then id. The shards sort with
+    // utf8mb4_general_ci, which ignores case and accents (ё sorts as е) and pads trailing spaces. The root
+    // collator has no case pairs for Cyrillic, so the trimmed value is lower-cased before it is compared at
+    // primary strength with accents decomposed
+    static Comparator<Contact> getOrder(final ContactSortOrder sortOrder) {
+        final Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return new Comparator<Contact>() {
+            @Override
+            public int compare(Contact first, Contact second) {
+                if (sortOrder != ContactSortOrder.ID) {
+                    String firstKey = toKey(sortOrder.getCursorValue(first));
+                    String secondKey = toKey(sortOrder.getCursorValue(second));
+                    if (firstKey == null || secondKey == null) {
+                        if (firstKey != secondKey) {
+                            return firstKey == null ? -1 : 1;
+                        }
+                    } else {
+                        int comparison = collator.compare(firstKey, secondKey);
+                        if (comparison != 0) {
+                            return comparison;
+                        }
+                    }
+                }
+                return first.getIdContact().compareTo(second.getIdContact());
+            }
+        };
+    }
+
+    private static String toKey(String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+
+    private static class PageCursor {
+        private final List<Contact> contacts;
+        private final int step;
+        private int position;
+
+        private PageCursor(List<Contact> contacts, boolean backward) {
+            this.contacts = contacts;
+            this.step = backward ? -1 : 1;
+            this.position = backward ? contacts.size() - 1 : 0;
+        }
+
+        Contact current() {
+            return contacts.get(position);
+        }
+
+        boolean advance() {
+            position += step;
+            return position >= 0 && position < contacts.size();
+        }
+    }
+}
@@ -1,15 +1,32 @@
 package by.itechart.javalab.entity;
 
+import java.io.Serializable;
 
-public class Address {
+
+public class Address implements Serializable {
+    private static final long serialVersionUID = 1L;
     private Long idAddress;
     private String country;
+    private Integer idCountry;
     private String city;
     private String street;
     private String houseNumber;
     private String apartmentNumber;
     private String zipCode;
 
+    public Address() {}
+
+    public Address(Address other) {
+        this.idAddress = other.idAddress;
+        this.country = other.country;
+        this.idCountry = other.idCountry;
+        this.city = other.city;
+        this.street = other.street;
+        this.houseNumber = other.houseNumber;
+        this.apartmentNumber = other.apartmentNumber;
+        this.zipCode = other.zipCode;
+    }
+
     public Long getIdAddress() {
         return idAddress;
     }
@@ -26,6 +43,14 @@ public class Address {
         this.country = country;
     }
 
+    public Integer getIdCountry() {
+        return idCountry;
+    }
+
+    public void setIdCountry(Integer idCountry) {
+        this.idCountry = idCountry;
+    }
+
     public String getCity() {
         return city;
     }
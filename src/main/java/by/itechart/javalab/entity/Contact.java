@@ -1,10 +1,13 @@
 package by.itechart.javalab.entity;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 
-public class Contact {
+public class Contact implements Serializable {
+    private static final long serialVersionUID = 1L;
     private Long idContact;
     private String name;
     private String surname;
@@ -19,6 +22,37 @@ public class Contact {
     private Address address;
     private List<ContactPhone> phoneList;
     private List<ContactAttachment> attachmentList;
+    private Integer version;
+
+    public Contact() {}
+
+    public Contact(Contact other) {
+        this.idContact = other.idContact;
+        this.name = other.name;
+        this.surname = other.surname;
+        this.patronymic = other.patronymic;
+        this.birthday = other.birthday == null ? null : (Date) other.birthday.clone();
+        this.gender = other.gender;
+        this.maritalStatus = other.maritalStatus;
+        this.citizenship = other.citizenship;
+        this.website = other.website;
+        this.email = other.email;
+        this.company = other.company;
+        this.address = other.address == null ? null : new Address(other.address);
+        this.version = other.version;
+        if (other.phoneList != null) {
+            this.phoneList = new ArrayList<>();
+            for (ContactPhone phone : other.phoneList) {
+                this.phoneList.add(new ContactPhone(phone));
+            }
+        }
+        if (other.attachmentList != null) {
+            this.attachmentList = new ArrayList<>();
+            for (ContactAttachment attachment : other.attachmentList) {
+                this.attachmentList.add(new ContactAttachment(attachment));
+            }
+        }
+    }
 
     public Long getIdContact() {
         return idContact;
@@ -131,4 +165,12 @@ public class Contact {
     public void setAttachmentList(List<ContactAttachment> attachmentList) {
         this.attachmentList = attachmentList;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -1,9 +1,11 @@
 package by.itechart.javalab.entity;
 
+import java.io.Serializable;
 import java.util.Date;
 
 
-public class ContactAttachment {
+public class ContactAttachment implements Serializable {
+    private static final long serialVersionUID = 1L;
     private Long idAttachment;
     private String fileName;
     private String realFileName;
@@ -11,6 +13,17 @@ public class ContactAttachment {
     private String comment;
     private Long idContact;
 
+    public ContactAttachment() {}
+
+    public ContactAttachment(ContactAttachment other) {
+        this.idAttachment = other.idAttachment;
+        this.fileName = other.fileName;
+        this.realFileName = other.realFileName;
+        this.uploadDate = other.uploadDate == null ? null : (Date) other.uploadDate.clone();
+        this.comment = other.comment;
+        this.idContact = other.idContact;
+    }
+
     public Long getIdAttachment() {
         return idAttachment;
     }
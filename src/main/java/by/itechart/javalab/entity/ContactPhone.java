@@ -1,7 +1,10 @@
 package by.itechart.javalab.entity;
 
+import java.io.Serializable;
 
-public class ContactPhone {
+
+public class ContactPhone implements Serializable {
+    private static final long serialVersionUID = 1L;
     private Long idPhone;
     private Integer countryCode;
     private Integer operatorCode;
@@ -10,6 +13,18 @@ public class ContactPhone {
     private String comment;
     private Long idContact;
 
+    public ContactPhone() {}
+
+    public ContactPhone(ContactPhone other) {
+        this.idPhone = other.idPhone;
+        this.countryCode = other.countryCode;
+        this.operatorCode = other.operatorCode;
+        this.phoneNumber = other.phoneNumber;
+        this.phoneType = other.phoneType;
+        this.comment = other.comment;
+        this.idContact = other.idContact;
+    }
+
     public Long getIdPhone() {
         return idPhone;
     }
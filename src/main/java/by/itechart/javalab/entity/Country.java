@@ -0,0 +1,30 @@
+package by.itechart.javalab.entity;
+
+
+public class Country {
+    private Integer idCountryCode;
+    private String fullName;
+
+    public Country() {}
+
+    public Country(Integer idCountryCode, String fullName) {
+        this.idCountryCode = idCountryCode;
+        this.fullName = fullName;
+    }
+
+    public Integer getIdCountryCode() {
+        return idCountryCode;
+    }
+
+    public void setIdCountryCode(Integer idCountryCode) {
+        this.idCountryCode = idCountryCode;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+}
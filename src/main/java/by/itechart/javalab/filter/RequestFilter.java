@@ -1,16 +1,19 @@
 package by.itechart.javalab.filter;
 
+import by.itechart.javalab.persistence.PersistenceManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import java.io.*;
 
 
 public class RequestFilter implements Filter {
     private static Logger log = LogManager.getLogger(RequestFilter.class.getName());
+    private static final String PRIMARY_READS_UNTIL = "primaryReadsUntil";
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
 
@@ -23,16 +26,24 @@ public class RequestFilter implements Filter {
         String path = request.getServletPath();
         if (path.contains("/resources")) {
             if (path.contains("/resources/files")) {
-                String fileName = path.split("/")[3];
-                String realFileName = fileName.substring(fileName.indexOf("_") + 1);
+                String fileName = path.split("/")[3];                              // {idContact}_{idAttachment}_{realFileName}
+                String legacyFileName = fileName.substring(fileName.indexOf("_") + 1);
+                String realFileName = legacyFileName.substring(legacyFileName.indexOf("_") + 1);
+                ServletContext ctx = request.getServletContext();
+                InputStream is = ctx.getResourceAsStream(path);
+                if (is == null) {
+                    // files uploaded before the contact id was part of the name
+                    is = ctx.getResourceAsStream(path.substring(0, path.lastIndexOf("/") + 1) + legacyFileName);
+                }
+                if (is == null) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
                 response.setCharacterEncoding("UTF-8");
                 response.setContentType("application/octet-stream");
                 response.setHeader("Content-Disposition",
                         "attachment;filename=\"" + realFileName + "\"");
 
-                ServletContext ctx = request.getServletContext();
-                InputStream is = ctx.getResourceAsStream(path);
-
                 int read = 0;
                 byte[] bytes = new byte[1024];
                 OutputStream os = response.getOutputStream();
@@ -46,10 +57,32 @@ public class RequestFilter implements Filter {
                 servletRequest.getRequestDispatcher(path).forward(servletRequest, servletResponse);
             }
         } else {
-            filterChain.doFilter(servletRequest, servletResponse);
+            // the session is created before the controller runs, a redirect after a save commits the response and
+            // no session can be started afterwards
+            HttpSession session = request.getSession();
+            long primaryReadsUntil = getPrimaryReadsUntil(session);
+            PersistenceManager.setPrimaryReadsUntil(primaryReadsUntil);
+            try {
+                filterChain.doFilter(servletRequest, servletResponse);
+            } finally {
+                PersistenceManager.closeLeakedTransactions();
+                if (PersistenceManager.getPrimaryReadsUntil() > primaryReadsUntil) {
+                    try {
+                        session.setAttribute(PRIMARY_READS_UNTIL, PersistenceManager.getPrimaryReadsUntil());
+                    } catch (IllegalStateException e) {
+                        log.warn("Session has been invalidated, primary reads aren't pinned: {}", e.getMessage());
+                    }
+                }
+                PersistenceManager.clearReadRouting();
+            }
         }
     }
 
+    private long getPrimaryReadsUntil(HttpSession session) {
+        Long until = (Long) session.getAttribute(PRIMARY_READS_UNTIL);
+        return until == null ? 0 : until;
+    }
+
     @Override
     public void destroy() {
 
@@ -0,0 +1,366 @@
+package by.itechart.javalab.persistence;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class ConnectionPool implements DataSource {
+    private static Logger log = LogManager.getLogger(ConnectionPool.class.getName());
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxActive;
+    private final int maxIdle;
+    private final long maxWait;
+    private final long idleTimeout;
+    private final long leakDetectionThreshold;
+    private final int validationTimeout;
+    private final String validationQuery;
+    private final Semaphore permits;
+    private final BlockingDeque<PhysicalConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<ConnectionHandle> activeConnections =
+            Collections.newSetFromMap(new ConcurrentHashMap<ConnectionHandle, Boolean>());
+    private final ScheduledExecutorService housekeeper;
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String name, Properties properties) {
+        this.name = name;
+        String prefix = name + ".";
+        url = properties.getProperty(prefix + "url");
+        username = properties.getProperty(prefix + "username");
+        password = properties.getProperty(prefix + "password");
+        maxActive = Integer.parseInt(properties.getProperty(prefix + "maxActive", "50"));
+        maxIdle = Integer.parseInt(properties.getProperty(prefix + "maxIdle", String.valueOf(maxActive)));
+        maxWait = Long.parseLong(properties.getProperty(prefix + "maxWait", "10000"));
+        idleTimeout = Long.parseLong(properties.getProperty(prefix + "idleTimeout", "600000"));
+        leakDetectionThreshold = Long.parseLong(properties.getProperty(prefix + "leakDetectionThreshold", "0"));
+        validationTimeout = Integer.parseInt(properties.getProperty(prefix + "validationTimeout", "5"));
+        validationQuery = properties.getProperty(prefix + "validationQuery");
+        long metricsLogInterval = Long.parseLong(properties.getProperty(prefix + "metricsLogInterval", "0"));
+        if (StringUtils.isEmpty(url)) {
+            throw new IllegalArgumentException("Connection pool '" + name + "' has no url.");
+        }
+        String driverClassName = properties.getProperty(prefix + "driverClassName");
+        if (StringUtils.isNotEmpty(driverClassName)) {
+            try {
+                Class.forName(driverClassName);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Can't load JDBC driver " + driverClassName, e);
+            }
+        }
+        permits = new Semaphore(maxActive, true);
+        housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "pool-housekeeper-" + ConnectionPool.this.name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = leakDetectionThreshold > 0 ? Math.max(1000, leakDetectionThreshold / 2) : 30000;
+        housekeeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                detectLeaks();
+                evictIdleConnections();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        if (metricsLogInterval > 0) {
+            housekeeper.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    log.info(getMetrics());
+                }
+            }, metricsLogInterval, metricsLogInterval, TimeUnit.MILLISECONDS);
+        }
+        log.info("Connection pool {} created: {}, maxActive={}", name, url, maxActive);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTransientConnectionException("Timeout waiting for connection from pool " + name +
+                        " after " + maxWait + "ms, " + getMetrics());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for connection.", e);
+        }
+        try {
+            PhysicalConnection physical = takeValidConnection();
+            ConnectionHandle handle = new ConnectionHandle(physical);
+            activeConnections.add(handle);
+            recordWait(System.nanoTime() - start);
+            return handle.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PhysicalConnection takeValidConnection() throws SQLException {
+        PhysicalConnection physical;
+        while ((physical = idleConnections.pollFirst()) != null) {
+            if (isValid(physical.connection)) {
+                return physical;
+            }
+            validationFailureCount.incrementAndGet();
+            log.warn("Pool {}: discarding broken connection.", name);
+            closeQuietly(physical.connection);
+        }
+        Connection connection = DriverManager.getConnection(url, username, password);
+        createdCount.incrementAndGet();
+        return new PhysicalConnection(connection);
+    }
+
+    private boolean isValid(Connection connection) {
+        if (StringUtils.isEmpty(validationQuery)) {
+            try {
+                return connection.isValid(validationTimeout);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            statement.setQueryTimeout(validationTimeout);
+            statement.execute(validationQuery);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        } finally {
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    log.error(e);
+                }
+            }
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    private void returnConnection(ConnectionHandle handle) {
+        activeConnections.remove(handle);
+        PhysicalConnection physical = handle.physical;
+        try {
+            if (closed || physical.broken || physical.connection.isClosed()) {
+                closeQuietly(physical.connection);
+                return;
+            }
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+            if (physical.connection.isReadOnly()) {
+                physical.connection.setReadOnly(false);
+            }
+            physical.connection.clearWarnings();
+            physical.lastUsed = System.currentTimeMillis();
+            if (idleConnections.size() < maxIdle) {
+                idleConnections.offerFirst(physical);
+            } else {
+                closeQuietly(physical.connection);
+            }
+        } catch (SQLException e) {
+            log.error(e);
+            closeQuietly(physical.connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void detectLeaks() {
+        if (leakDetectionThreshold <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ConnectionHandle handle : activeConnections) {
+            if (!handle.leakReported && now - handle.borrowedAt > leakDetectionThreshold) {
+                handle.leakReported = true;
+                leakCount.incrementAndGet();
+                log.warn("Pool {}: connection held for {}ms by thread {}, possible leak.",
+                        name, now - handle.borrowedAt, handle.threadName, handle.borrowTrace);
+            }
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PhysicalConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext()) {
+            PhysicalConnection physical = iterator.next();
+            if (now - physical.lastUsed > idleTimeout && idleConnections.remove(physical)) {
+                closeQuietly(physical.connection);
+            }
+        }
+    }
+
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(name, maxActive, activeConnections.size(), idleConnections.size(),
+                permits.getQueueLength(), borrowCount.get(), createdCount.get(), timeoutCount.get(),
+                validationFailureCount.get(), leakCount.get(), totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PhysicalConnection physical;
+        while ((physical = idleConnections.pollFirst()) != null) {
+            closeQuietly(physical.connection);
+        }
+        log.info("Connection pool closed: {}", getMetrics());
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.error(e);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool " + name + " uses configured credentials.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return DriverManager.getLoginTimeout();
+    }
+
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+
+    private static class PhysicalConnection {
+        private final Connection connection;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile boolean broken;
+
+        private PhysicalConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+
+    private class ConnectionHandle implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private final Connection proxy;
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String threadName = Thread.currentThread().getName();
+        private final Throwable borrowTrace;
+        private volatile boolean leakReported;
+        private volatile boolean closed;
+
+        private ConnectionHandle(PhysicalConnection physical) {
+            this.physical = physical;
+            this.borrowTrace = leakDetectionThreshold > 0 ? new Throwable("Connection borrowed here") : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        returnConnection(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + name + "] " + physical.connection;
+            }
+            if (closed) {
+                throw new SQLException("Connection is already returned to pool " + name + ".");
+            }
+            try {
+                return method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String sqlState = ((SQLException) cause).getSQLState();
+                    if (sqlState != null && sqlState.startsWith("08")) {
+                        physical.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
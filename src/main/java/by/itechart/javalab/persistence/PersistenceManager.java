@@ -1,5 +1,6 @@
 package by.itechart.javalab.persistence;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -10,6 +11,8 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Savepoint;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -17,58 +20,403 @@ import java.util.concurrent.ConcurrentMap;
 
 public class PersistenceManager {
     private static Logger log = LogManager.getLogger(PersistenceManager.class.getName());
-    private static ConcurrentMap<Long, Connection> connectionMap = new ConcurrentHashMap<>();
-    private static ConcurrentMap<Long, Savepoint> savepointMap = new ConcurrentHashMap<>();
+    private static final ThreadLocal<TransactionContext> currentTransaction = new ThreadLocal<>();
+    private static final ThreadLocal<Long> primaryReadsUntil = new ThreadLocal<>();
+    private static final ThreadLocal<String> boundShard = new ThreadLocal<>();
+    private static final ConcurrentMap<String, DataSource> shardDataSources = new ConcurrentHashMap<>();
+    private static final String POOL_DATA_SOURCE = "pool";
+    private static final String READ_POOL_DATA_SOURCE = "readPool";
+    private static final String MEMORY_STORAGE = "memory";
+    private static final String SHARDED_STORAGE = "sharded";
+    private static final Properties properties = new Properties();
     private static final String dataSourceName;
+    private static final String readDataSourceName;
+    private static final long readYourWritesWindow;
+    private static final boolean connectionless;
+    private static final boolean sharded;
+    private static volatile DataSource dataSource;
+    private static volatile DataSource readDataSource;
 
     private PersistenceManager() {}
 
     static {
-        Properties properties = new Properties();
         try {
             properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
         } catch (IOException e) {}
         dataSourceName = properties.getProperty("contextDataSource");
+        readDataSourceName = properties.getProperty("contextReadDataSource");
+        readYourWritesWindow = Long.parseLong(properties.getProperty("readYourWritesWindow", "5000"));
+        // the in-memory storage undoes its own writes, its transactions don't hold a JDBC connection
+        connectionless = MEMORY_STORAGE.equals(properties.getProperty("storageType"));
+        // a sharded transaction opens a connection per shard on its first write there
+        sharded = SHARDED_STORAGE.equals(properties.getProperty("storageType"));
     }
 
     public static void startTransaction() throws NamingException, SQLException {
+        startTransaction(Propagation.REQUIRED);
+    }
+
+    public static void startTransaction(Propagation propagation) throws NamingException, SQLException {
+        TransactionContext current = currentTransaction.get();
+        if (current == null || propagation == Propagation.REQUIRES_NEW) {
+            TransactionContext context = new TransactionContext(current);
+            if (!connectionless && !sharded) {
+                context.addConnection(null, createTransactionConnection());
+            }
+            currentTransaction.set(context);
+        } else if (propagation == Propagation.NESTED) {
+            Map<String, Savepoint> savepoints = new HashMap<>();
+            for (Map.Entry<String, Connection> entry : current.getConnections().entrySet()) {
+                savepoints.put(entry.getKey(), entry.getValue().setSavepoint());
+            }
+            current.nest(savepoints);
+        } else {
+            current.join();
+        }
+    }
+
+    private static Connection createTransactionConnection() throws NamingException, SQLException {
         Connection connection = createConnection();
-        connection.setAutoCommit(false);
-        connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
-        Savepoint savepoint = connection.setSavepoint();
-        connectionMap.put(Thread.currentThread().getId(), connection);
-        savepointMap.put(Thread.currentThread().getId(), savepoint);
+        try {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        } catch (SQLException e) {
+            closeConnection(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    public static boolean isTransactionActive() {
+        return currentTransaction.get() != null;
     }
 
     public static Connection createConnection() throws NamingException, SQLException {
+        String shard = boundShard.get();
+        if (shard != null) {
+            return getShardDataSource(shard).getConnection();
+        }
+        return getDataSource().getConnection();
+    }
+
+    // shards have no replicas of their own, a read bound to a shard goes to its primary
+    public static Connection createReadConnection() throws NamingException, SQLException {
+        if (StringUtils.isEmpty(readDataSourceName) || isTransactionActive() || isPrimaryReadRequired()
+                || boundShard.get() != null) {
+            return createConnection();
+        }
+        try {
+            return getReadDataSource().getConnection();
+        } catch (NamingException | SQLException e) {
+            log.warn("Read replica is unavailable, reading from primary: {}", e.getMessage());
+            return createConnection();
+        }
+    }
+
+    private static boolean isPrimaryReadRequired() {
+        Long until = primaryReadsUntil.get();
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    public static long getPrimaryReadsUntil() {
+        Long until = primaryReadsUntil.get();
+        return until == null ? 0 : until;
+    }
+
+    public static void setPrimaryReadsUntil(long until) {
+        primaryReadsUntil.set(until);
+    }
+
+    public static void clearReadRouting() {
+        primaryReadsUntil.remove();
+    }
+
+    // returns the previously bound shard so that the caller can restore it
+    public static String bindShard(String shard) {
+        String previous = boundShard.get();
+        if (shard == null) {
+            boundShard.remove();
+        } else {
+            boundShard.set(shard);
+        }
+        return previous;
+    }
+
+    public static String getBoundShard() {
+        return boundShard.get();
+    }
+
+    private static DataSource getDataSource() throws NamingException {
+        DataSource result = dataSource;
+        if (result == null) {
+            synchronized (PersistenceManager.class) {
+                result = dataSource;
+                if (result == null) {
+                    result = lookupDataSource(dataSourceName, POOL_DATA_SOURCE);
+                    dataSource = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static DataSource getReadDataSource() throws NamingException {
+        DataSource result = readDataSource;
+        if (result == null) {
+            synchronized (PersistenceManager.class) {
+                result = readDataSource;
+                if (result == null) {
+                    result = lookupDataSource(readDataSourceName, READ_POOL_DATA_SOURCE);
+                    readDataSource = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static DataSource getShardDataSource(String shard) throws NamingException {
+        DataSource result = shardDataSources.get(shard);
+        if (result == null) {
+            synchronized (PersistenceManager.class) {
+                result = shardDataSources.get(shard);
+                if (result == null) {
+                    // a shard with pool settings in the config gets its own pool, otherwise it's looked up in JNDI
+                    result = properties.getProperty(shard + ".url") != null
+                            ? new ConnectionPool(shard, properties)
+                            : lookupDataSource(properties.getProperty(shard + ".dataSource", shard), POOL_DATA_SOURCE);
+                    shardDataSources.put(shard, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static DataSource lookupDataSource(String name, String poolName) throws NamingException {
+        if (poolName.equals(name)) {
+            return new ConnectionPool(poolName, properties);
+        }
         InitialContext ctx = new InitialContext();
-        DataSource dataSource = (DataSource)ctx.lookup(dataSourceName);
-        return dataSource.getConnection();
+        return (DataSource) ctx.lookup(name);
+    }
+
+    public static PoolMetrics getPoolMetrics() {
+        return getMetrics(dataSource);
+    }
+
+    public static PoolMetrics getReadPoolMetrics() {
+        return getMetrics(readDataSource);
+    }
+
+    public static Map<String, PoolMetrics> getShardPoolMetrics() {
+        Map<String, PoolMetrics> metrics = new HashMap<>();
+        for (Map.Entry<String, DataSource> entry : shardDataSources.entrySet()) {
+            PoolMetrics shardMetrics = getMetrics(entry.getValue());
+            if (shardMetrics != null) {
+                metrics.put(entry.getKey(), shardMetrics);
+            }
+        }
+        return metrics;
+    }
+
+    private static PoolMetrics getMetrics(DataSource source) {
+        if (source instanceof ConnectionPool) {
+            return ((ConnectionPool) source).getMetrics();
+        }
+        return null;
+    }
+
+    public static void shutdown() {
+        DataSource current = dataSource;
+        DataSource currentRead = readDataSource;
+        dataSource = null;
+        readDataSource = null;
+        if (current instanceof ConnectionPool) {
+            ((ConnectionPool) current).close();
+        }
+        if (currentRead instanceof ConnectionPool) {
+            ((ConnectionPool) currentRead).close();
+        }
+        for (String shard : shardDataSources.keySet()) {
+            DataSource source = shardDataSources.remove(shard);
+            if (source instanceof ConnectionPool) {
+                ((ConnectionPool) source).close();
+            }
+        }
     }
 
     public static Connection getConnection() throws TransactionException {
-        Long threadID = Thread.currentThread().getId();
-        Connection connection = connectionMap.get(threadID);
-        if (connection == null) {
+        TransactionContext current = currentTransaction.get();
+        if (current == null) {
             throw new TransactionException("Method should be called into transaction.");
         }
+        String shard = boundShard.get();
+        Connection connection = current.getConnection(shard);
+        if (connection == null && !connectionless) {
+            try {
+                connection = createTransactionConnection();
+            } catch (NamingException | SQLException e) {
+                throw new TransactionException("Can't open connection to shard " + shard + ".", e);
+            }
+            current.addConnection(shard, connection);
+        }
         return connection;
     }
 
     public static void finishTransaction() throws SQLException {
-        Long threadID = Thread.currentThread().getId();
-        savepointMap.remove(threadID);
-        Connection connection = connectionMap.remove(threadID);
-        connection.commit();
-        closeConnection(connection);
+        TransactionContext current = getCurrentTransaction();
+        TransactionContext.Scope scope = current.leave();
+        if (scope.isOwner()) {
+            try {
+                if (current.isRollbackOnly()) {
+                    rollback(current);
+                    throw new SQLException("Transaction has been rolled back because an inner scope failed.");
+                }
+                // shards are committed one by one, there is no two-phase commit between them
+                try {
+                    for (Connection connection : current.getConnections().values()) {
+                        connection.commit();
+                    }
+                } catch (SQLException e) {
+                    // the connections not committed yet are rolled back and the entities undone before a replay
+                    try {
+                        rollback(current);
+                    } catch (SQLException rollbackFailure) {
+                        log.error("Can't roll back after a failed commit: {}", rollbackFailure.getMessage());
+                    }
+                    throw e;
+                }
+                current.takeRollbackActions(0);
+                primaryReadsUntil.set(System.currentTimeMillis() + readYourWritesWindow);
+            } finally {
+                release(current);
+            }
+            for (Runnable action : current.getAfterCommitActions()) {
+                runAction(action);
+            }
+        } else {
+            for (String shard : scope.getSavepointShards()) {
+                current.getConnection(shard).releaseSavepoint(scope.getSavepoint(shard));
+            }
+        }
+    }
+
+    public static void runAfterCommit(Runnable action) {
+        TransactionContext current = currentTransaction.get();
+        if (current == null) {
+            runAction(action);
+        } else {
+            current.addAfterCommitAction(action);
+        }
+    }
+
+    // undo actions of the storage and the entities, run in reverse order when the transaction or its savepoint rolls back
+    public static void runOnRollback(Runnable action) {
+        TransactionContext current = currentTransaction.get();
+        if (current != null) {
+            current.addRollbackAction(action);
+        }
+    }
+
+    public static void runAfterCompletion(Runnable action) {
+        TransactionContext current = currentTransaction.get();
+        if (current == null) {
+            runAction(action);
+        } else {
+            current.addCompletionAction(action);
+        }
+    }
+
+    private static void runAction(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Transaction action failed.", e);
+        }
     }
 
     public static void rollbackTransaction() throws SQLException {
-        Long threadID = Thread.currentThread().getId();
-        Savepoint savepoint = savepointMap.remove(threadID);
-        Connection connection = connectionMap.remove(threadID);
-        connection.rollback(savepoint);
-        closeConnection(connection);
+        TransactionContext current = getCurrentTransaction();
+        TransactionContext.Scope scope = current.leave();
+        if (scope.isOwner()) {
+            try {
+                rollback(current);
+            } finally {
+                release(current);
+            }
+        } else if (scope.isNested()) {
+            try {
+                for (Map.Entry<String, Connection> entry : current.getConnections().entrySet()) {
+                    Savepoint savepoint = scope.getSavepoint(entry.getKey());
+                    if (savepoint != null) {
+                        entry.getValue().rollback(savepoint);
+                    } else {
+                        entry.getValue().rollback();
+                    }
+                }
+            } finally {
+                for (Runnable action : current.takeRollbackActions(scope.getRollbackMark())) {
+                    runAction(action);
+                }
+            }
+        } else {
+            current.setRollbackOnly();
+        }
+    }
+
+    private static void rollback(TransactionContext context) throws SQLException {
+        SQLException failure = null;
+        try {
+            for (Connection connection : context.getConnections().values()) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            for (Runnable action : context.takeRollbackActions(0)) {
+                runAction(action);
+            }
+        }
+    }
+
+    public static void closeLeakedTransactions() {
+        TransactionContext current = currentTransaction.get();
+        while (current != null) {
+            log.warn("Transaction wasn't finished, rolling back.");
+            try {
+                rollback(current);
+            } catch (SQLException e) {
+                log.error(e);
+            }
+            release(current);
+            current = currentTransaction.get();
+        }
+    }
+
+    private static TransactionContext getCurrentTransaction() throws SQLException {
+        TransactionContext current = currentTransaction.get();
+        if (current == null) {
+            throw new SQLException("There is no active transaction.");
+        }
+        return current;
+    }
+
+    private static void release(TransactionContext context) {
+        if (context.getSuspended() != null) {
+            currentTransaction.set(context.getSuspended());
+        } else {
+            currentTransaction.remove();
+        }
+        for (Connection connection : context.getConnections().values()) {
+            closeConnection(connection);
+        }
+        for (Runnable action : context.getCompletionActions()) {
+            runAction(action);
+        }
     }
 
     public static void closeConnection(Connection connection) {
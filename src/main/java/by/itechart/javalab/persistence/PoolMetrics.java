@@ -0,0 +1,90 @@
+package by.itechart.javalab.persistence;
+
+
+public class PoolMetrics {
+    private final String poolName;
+    private final int maxActive;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long timeoutCount;
+    private final long validationFailureCount;
+    private final long leakCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    public PoolMetrics(String poolName, int maxActive, int activeConnections, int idleConnections, int waitingThreads,
+                       long borrowCount, long createdCount, long timeoutCount, long validationFailureCount,
+                       long leakCount, long totalWaitNanos, long maxWaitNanos) {
+        this.poolName = poolName;
+        this.maxActive = maxActive;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.timeoutCount = timeoutCount;
+        this.validationFailureCount = validationFailureCount;
+        this.leakCount = leakCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0 : totalWaitNanos / 1000000.0 / borrowCount;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: active=%d, idle=%d, max=%d, waiting=%d, borrowed=%d, created=%d, " +
+                        "timeouts=%d, validationFailures=%d, leaks=%d, avgWait=%.3fms, maxWait=%.3fms",
+                poolName, activeConnections, idleConnections, maxActive, waitingThreads, borrowCount, createdCount,
+                timeoutCount, validationFailureCount, leakCount, getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
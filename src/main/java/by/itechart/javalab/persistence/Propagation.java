@@ -0,0 +1,6 @@
+package by.itechart.javalab.persistence;
+
+
+public enum Propagation {
+    REQUIRED, REQUIRES_NEW, NESTED
+}
@@ -0,0 +1,6 @@
+package by.itechart.javalab.persistence;
+
+
+public interface TransactionCallback<T> {
+    T doInTransaction() throws Exception;
+}
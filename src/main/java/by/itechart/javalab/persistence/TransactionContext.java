@@ -0,0 +1,127 @@
+package by.itechart.javalab.persistence;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+class TransactionContext {
+    // one connection per data source the transaction has written to, the primary one is keyed by null
+    private final Map<String, Connection> connections = new LinkedHashMap<>();
+    private final TransactionContext suspended;
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+    private final List<Runnable> rollbackActions = new ArrayList<>();
+    private final List<Runnable> completionActions = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    TransactionContext(TransactionContext suspended) {
+        this.suspended = suspended;
+        scopes.push(new Scope(true, null, 0));
+    }
+
+    Connection getConnection(String shard) {
+        return connections.get(shard);
+    }
+
+    void addConnection(String shard, Connection connection) {
+        connections.put(shard, connection);
+    }
+
+    Map<String, Connection> getConnections() {
+        return connections;
+    }
+
+    TransactionContext getSuspended() {
+        return suspended;
+    }
+
+    void join() {
+        scopes.push(new Scope(false, null, -1));
+    }
+
+    // connections opened later inside the scope have no savepoint, rolling the scope back rolls them back entirely
+    void nest(Map<String, Savepoint> savepoints) {
+        scopes.push(new Scope(false, savepoints, rollbackActions.size()));
+    }
+
+    Scope leave() {
+        return scopes.pop();
+    }
+
+    boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    void addAfterCommitAction(Runnable action) {
+        afterCommitActions.add(action);
+    }
+
+    List<Runnable> getAfterCommitActions() {
+        return afterCommitActions;
+    }
+
+    void addRollbackAction(Runnable action) {
+        rollbackActions.add(action);
+    }
+
+    // removes the actions registered after the mark, newest first so that they undo in reverse order
+    List<Runnable> takeRollbackActions(int mark) {
+        List<Runnable> actions = new ArrayList<>();
+        while (rollbackActions.size() > mark) {
+            actions.add(rollbackActions.remove(rollbackActions.size() - 1));
+        }
+        return actions;
+    }
+
+    void addCompletionAction(Runnable action) {
+        completionActions.add(action);
+    }
+
+    List<Runnable> getCompletionActions() {
+        return completionActions;
+    }
+
+
+    static class Scope {
+        private final boolean owner;
+        private final Map<String, Savepoint> savepoints;
+        private final int rollbackMark;
+
+        private Scope(boolean owner, Map<String, Savepoint> savepoints, int rollbackMark) {
+            this.owner = owner;
+            this.savepoints = savepoints;
+            this.rollbackMark = rollbackMark;
+        }
+
+        boolean isOwner() {
+            return owner;
+        }
+
+        Savepoint getSavepoint(String shard) {
+            return savepoints == null ? null : savepoints.get(shard);
+        }
+
+        Collection<String> getSavepointShards() {
+            return savepoints == null ? new ArrayList<String>() : savepoints.keySet();
+        }
+
+        boolean isNested() {
+            return rollbackMark >= 0 && !owner;
+        }
+
+        int getRollbackMark() {
+            return rollbackMark;
+        }
+    }
+}
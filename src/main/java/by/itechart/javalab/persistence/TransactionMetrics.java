@@ -0,0 +1,127 @@
+package by.itechart.javalab.persistence;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class TransactionMetrics {
+    private final String operation;
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong totalDurationNanos = new AtomicLong();
+    private final AtomicLong maxDurationNanos = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> rollbackCauses = new ConcurrentHashMap<>();
+    private volatile String lastRollbackCause;
+
+    TransactionMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    void recordAttempt() {
+        attempts.incrementAndGet();
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    void recordRollback(Exception cause) {
+        String key = describe(cause);
+        AtomicLong counter = rollbackCauses.get(key);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = rollbackCauses.putIfAbsent(key, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+        lastRollbackCause = key + ": " + cause.getMessage();
+    }
+
+    void recordCompletion(boolean committed, long durationNanos) {
+        executions.incrementAndGet();
+        if (committed) {
+            commits.incrementAndGet();
+        } else {
+            failures.incrementAndGet();
+        }
+        totalDurationNanos.addAndGet(durationNanos);
+        long max = maxDurationNanos.get();
+        while (durationNanos > max && !maxDurationNanos.compareAndSet(max, durationNanos)) {
+            max = maxDurationNanos.get();
+        }
+    }
+
+    private String describe(Exception cause) {
+        Throwable current = cause;
+        while (current != null) {
+            if (current instanceof SQLException) {
+                SQLException sqlException = (SQLException) current;
+                return "SQLState " + sqlException.getSQLState() + "/" + sqlException.getErrorCode();
+            }
+            current = current.getCause();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public double getAverageDurationMillis() {
+        long count = executions.get();
+        return count == 0 ? 0 : totalDurationNanos.get() / 1000000.0 / count;
+    }
+
+    public double getMaxDurationMillis() {
+        return maxDurationNanos.get() / 1000000.0;
+    }
+
+    public Map<String, Long> getRollbackCauses() {
+        Map<String, Long> causes = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : rollbackCauses.entrySet()) {
+            causes.put(entry.getKey(), entry.getValue().get());
+        }
+        return causes;
+    }
+
+    public String getLastRollbackCause() {
+        return lastRollbackCause;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: executions=%d, commits=%d, failures=%d, attempts=%d, retries=%d, " +
+                        "avg=%.3fms, max=%.3fms, rollbackCauses=%s",
+                operation, getExecutions(), getCommits(), getFailures(), getAttempts(), getRetries(),
+                getAverageDurationMillis(), getMaxDurationMillis(), getRollbackCauses());
+    }
+}
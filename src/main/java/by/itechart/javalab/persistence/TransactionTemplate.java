@@ -0,0 +1,148 @@
+package by.itechart.javalab.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.naming.NamingException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+public class TransactionTemplate {
+    private static Logger log = LogManager.getLogger(TransactionTemplate.class.getName());
+    private static final String DEADLOCK_SQL_STATE = "40001";
+    private static final int LOCK_WAIT_TIMEOUT_ERROR_CODE = 1205;
+    private static final int DEADLOCK_ERROR_CODE = 1213;
+    private static final ConcurrentMap<String, TransactionMetrics> metrics = new ConcurrentHashMap<>();
+    private static final int maxRetries;
+    private static final long retryBackoff;
+    private static final long maxRetryBackoff;
+
+    private TransactionTemplate() {}
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        maxRetries = Integer.parseInt(properties.getProperty("transaction.maxRetries", "3"));
+        retryBackoff = Long.parseLong(properties.getProperty("transaction.retryBackoff", "50"));
+        maxRetryBackoff = Long.parseLong(properties.getProperty("transaction.maxRetryBackoff", "1000"));
+    }
+
+    public static <T> T execute(String operation, TransactionCallback<T> callback) throws TransactionException {
+        return execute(operation, Propagation.REQUIRED, callback);
+    }
+
+    public static <T> T execute(String operation, Propagation propagation, TransactionCallback<T> callback)
+            throws TransactionException {
+        TransactionMetrics operationMetrics = getMetrics(operation);
+        // only the scope that owns the physical transaction may replay it
+        boolean retryable = propagation == Propagation.REQUIRES_NEW || !PersistenceManager.isTransactionActive();
+        long start = System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            operationMetrics.recordAttempt();
+            Exception failure = null;
+            try {
+                PersistenceManager.startTransaction(propagation);
+            } catch (NamingException | SQLException e) {
+                operationMetrics.recordCompletion(false, System.nanoTime() - start);
+                throw new TransactionException("Can't start transaction for " + operation + ".", e);
+            }
+            T result = null;
+            try {
+                result = callback.doInTransaction();
+            } catch (Exception e) {
+                failure = e;
+                rollback(operation);
+            }
+            if (failure == null) {
+                try {
+                    PersistenceManager.finishTransaction();
+                    operationMetrics.recordCompletion(true, System.nanoTime() - start);
+                    if (attempt > 1) {
+                        log.info("{} committed after {} attempts.", operation, attempt);
+                    }
+                    return result;
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            operationMetrics.recordRollback(failure);
+            if (!retryable || attempt > maxRetries || !isTransient(failure)) {
+                operationMetrics.recordCompletion(false, System.nanoTime() - start);
+                throw new TransactionException(operation + " failed after " + attempt + " attempt(s).", failure);
+            }
+            operationMetrics.recordRetry();
+            long backoff = getBackoff(attempt);
+            log.warn("{} hit a transient failure, retry {} of {} in {}ms: {}",
+                    operation, attempt, maxRetries, backoff, failure.getMessage());
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                operationMetrics.recordCompletion(false, System.nanoTime() - start);
+                throw new TransactionException(operation + " was interrupted while waiting for retry.", failure);
+            }
+        }
+    }
+
+    public static List<TransactionMetrics> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    private static TransactionMetrics getMetrics(String operation) {
+        TransactionMetrics operationMetrics = metrics.get(operation);
+        if (operationMetrics == null) {
+            TransactionMetrics created = new TransactionMetrics(operation);
+            operationMetrics = metrics.putIfAbsent(operation, created);
+            if (operationMetrics == null) {
+                operationMetrics = created;
+            }
+        }
+        return operationMetrics;
+    }
+
+    private static void rollback(String operation) {
+        try {
+            PersistenceManager.rollbackTransaction();
+        } catch (SQLException e) {
+            log.error("Can't roll back {}: {}", operation, e);
+        }
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        Throwable current = failure;
+        while (current != null) {
+            if (current instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            if (current instanceof SQLException) {
+                SQLException sqlException = (SQLException) current;
+                if (DEADLOCK_SQL_STATE.equals(sqlException.getSQLState())
+                        || sqlException.getErrorCode() == DEADLOCK_ERROR_CODE
+                        || sqlException.getErrorCode() == LOCK_WAIT_TIMEOUT_ERROR_CODE) {
+                    return true;
+                }
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    private static long getBackoff(int attempt) {
+        long backoff = Math.min(maxRetryBackoff, retryBackoff << Math.min(attempt - 1, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+}
@@ -3,28 +3,129 @@ package by.itechart.javalab.service;
 import by.itechart.javalab.dao.ContactAttributes;
 import by.itechart.javalab.dao.DaoException;
 import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Country;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 public class ContactAttributesService {
     private static Logger log = LogManager.getLogger(ContactAttributesService.class.getName());
+    private static final long timeToLive;
+    private static volatile CountryDictionary countries;
 
     private ContactAttributesService() {}
 
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        timeToLive = Long.parseLong(properties.getProperty("countries.timeToLive", "3600000"));
+    }
+
     public static List<String> getAllCountries() throws ServiceException {
-        List<String> countries = new ArrayList<>();
+        return getCountries().names;
+    }
+
+    // a loaded dictionary leaves nothing to wait for until it expires
+    public static Future<List<String>> getAllCountriesAsync() {
+        CountryDictionary result = countries;
+        if (result != null && !result.isExpired()) {
+            return LookupExecutor.completed(result.names);
+        }
+        return LookupExecutor.submit(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws ServiceException {
+                return getAllCountries();
+            }
+        });
+    }
+
+    public static Integer getCountryId(String countryName) throws ServiceException {
+        if (StringUtils.isEmpty(countryName)) {
+            return null;
+        }
+        return getCountries().idsByName.get(countryName.trim().toUpperCase());
+    }
+
+    public static String getCountryName(Integer countryId) throws ServiceException {
+        return getCountries().namesById.get(countryId);
+    }
+
+    public static void resolveCountryId(Address address) throws ServiceException {
+        if (address != null) {
+            address.setIdCountry(getCountryId(address.getCountry()));
+        }
+    }
+
+    public static void refreshCountries() throws ServiceException {
+        countries = loadCountries();
+    }
+
+    // countries are edited in the database directly, an expired dictionary is reloaded on the next lookup
+    private static CountryDictionary getCountries() throws ServiceException {
+        CountryDictionary result = countries;
+        if (result == null || result.isExpired()) {
+            synchronized (ContactAttributesService.class) {
+                result = countries;
+                if (result == null || result.isExpired()) {
+                    result = loadCountries();
+                    countries = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static CountryDictionary loadCountries() throws ServiceException {
+        log.debug("loadCountries: ");
         try {
             DaoFactory daoFactory = DaoFactory.getDaoFactory();
             ContactAttributes contactAttributes = daoFactory.getContactAttributes();
-            countries = contactAttributes.getCountries();
+            return new CountryDictionary(contactAttributes.getCountries());
         } catch (DaoException ex) {
             log.error(ex);
             throw new ServiceException(ex);
         }
-        return countries;
+    }
+
+
+    private static class CountryDictionary {
+        private final List<String> names;
+        private final Map<String, Integer> idsByName;
+        private final Map<Integer, String> namesById;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private CountryDictionary(List<Country> countries) {
+            List<String> names = new ArrayList<>(countries.size());
+            Map<String, Integer> idsByName = new HashMap<>();
+            Map<Integer, String> namesById = new HashMap<>();
+            for (Country country : countries) {
+                names.add(country.getFullName());
+                idsByName.put(country.getFullName().toUpperCase(), country.getIdCountryCode());
+                namesById.put(country.getIdCountryCode(), country.getFullName());
+            }
+            this.names = Collections.unmodifiableList(names);
+            this.idsByName = idsByName;
+            this.namesById = namesById;
+        }
+
+        private boolean isExpired() {
+            return timeToLive > 0 && System.currentTimeMillis() - loadedAt > timeToLive;
+        }
     }
 }
@@ -0,0 +1,171 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class ContactCache {
+    private static Logger log = LogManager.getLogger(ContactCache.class.getName());
+    private static final boolean enabled;
+    private static final int maxSize;
+    private static final long timeToLive;
+    private static final Map<Long, CacheEntry> entries;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final AtomicLong expirations = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+    private static long generation;
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        enabled = Boolean.parseBoolean(properties.getProperty("contactCache.enabled", "true"));
+        maxSize = Integer.parseInt(properties.getProperty("contactCache.maxSize", "1000"));
+        timeToLive = Long.parseLong(properties.getProperty("contactCache.timeToLive", "300000"));
+        entries = new LinkedHashMap<Long, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private ContactCache() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static Contact get(Long contactId) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (entries) {
+            CacheEntry entry = entries.get(contactId);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(contactId);
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return new Contact(entry.contact);
+        }
+    }
+
+    public static long getGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    // A load that started before an invalidation may have read the old row, so it is not cached.
+    public static void put(Contact contact, long loadedGeneration) {
+        if (!enabled || contact == null || contact.getIdContact() == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (loadedGeneration == generation) {
+                entries.put(contact.getIdContact(), new CacheEntry(new Contact(contact), System.currentTimeMillis() + timeToLive));
+            }
+        }
+    }
+
+    public static void invalidate(Long contactId) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (entries) {
+            generation++;
+            if (entries.remove(contactId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public static void invalidate(Collection<Long> contactIds) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (entries) {
+            generation++;
+            for (Long contactId : contactIds) {
+                if (entries.remove(contactId) != null) {
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public static void clear() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    public static long getExpirations() {
+        return expirations.get();
+    }
+
+    public static long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public static String getStatistics() {
+        return String.format("contactCache: enabled=%b, size=%d, max=%d, hits=%d, misses=%d, evictions=%d, " +
+                        "expirations=%d, invalidations=%d", enabled, size(), maxSize, getHits(), getMisses(),
+                getEvictions(), getExpirations(), getInvalidations());
+    }
+
+
+    private static class CacheEntry {
+        private final Contact contact;
+        private final long expiresAt;
+
+        private CacheEntry(Contact contact, long expiresAt) {
+            this.contact = contact;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
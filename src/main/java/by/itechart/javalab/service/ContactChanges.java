@@ -0,0 +1,131 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+public class ContactChanges {
+    private final Set<ContactField> fields;
+    private final List<ContactPhone> phones;
+    private final List<ContactAttachment> attachments;
+    private boolean childRowsModified;
+
+    public ContactChanges(Set<ContactField> fields, List<ContactPhone> phones, List<ContactAttachment> attachments) {
+        this.fields = fields;
+        this.phones = phones;
+        this.attachments = attachments;
+    }
+
+    // a contact that couldn't be loaded is written in full
+    public static ContactChanges all(Contact edited) {
+        return new ContactChanges(EnumSet.allOf(ContactField.class), nullToEmpty(edited.getPhoneList()),
+                nullToEmpty(edited.getAttachmentList()));
+    }
+
+    public static ContactChanges between(Contact loaded, Contact edited) {
+        Set<ContactField> fields = EnumSet.noneOf(ContactField.class);
+        for (ContactField field : ContactField.values()) {
+            if (field.isChanged(loaded, edited)) {
+                fields.add(field);
+            }
+        }
+        Map<Long, ContactPhone> loadedPhones = new HashMap<>();
+        for (ContactPhone phone : nullToEmpty(loaded.getPhoneList())) {
+            loadedPhones.put(phone.getIdPhone(), phone);
+        }
+        List<ContactPhone> phones = new ArrayList<>();
+        for (ContactPhone phone : nullToEmpty(edited.getPhoneList())) {
+            if (isChanged(loadedPhones.get(phone.getIdPhone()), phone)) {
+                phones.add(phone);
+            }
+        }
+        Map<Long, ContactAttachment> loadedAttachments = new HashMap<>();
+        for (ContactAttachment attachment : nullToEmpty(loaded.getAttachmentList())) {
+            loadedAttachments.put(attachment.getIdAttachment(), attachment);
+        }
+        List<ContactAttachment> attachments = new ArrayList<>();
+        for (ContactAttachment attachment : nullToEmpty(edited.getAttachmentList())) {
+            if (isChanged(loadedAttachments.get(attachment.getIdAttachment()), attachment)) {
+                attachments.add(attachment);
+            }
+        }
+        return new ContactChanges(fields, phones, attachments);
+    }
+
+    public Set<ContactField> getFields() {
+        return Collections.unmodifiableSet(fields);
+    }
+
+    public List<ContactPhone> getPhones() {
+        return Collections.unmodifiableList(phones);
+    }
+
+    public List<ContactAttachment> getAttachments() {
+        return Collections.unmodifiableList(attachments);
+    }
+
+    public boolean isChildRowsModified() {
+        return childRowsModified;
+    }
+
+    // added or removed phones and attachments change the contact as well, its version has to move
+    public void setChildRowsModified(boolean childRowsModified) {
+        this.childRowsModified = childRowsModified;
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty() && phones.isEmpty() && attachments.isEmpty() && !childRowsModified;
+    }
+
+    @Override
+    public String toString() {
+        return "fields=" + fields + ", phones=" + phones.size() + ", attachments=" + attachments.size();
+    }
+
+    private static boolean isChanged(ContactPhone loaded, ContactPhone edited) {
+        return loaded == null
+                || !isSame(loaded.getCountryCode(), edited.getCountryCode())
+                || !isSame(loaded.getOperatorCode(), edited.getOperatorCode())
+                || !isSame(loaded.getPhoneNumber(), edited.getPhoneNumber())
+                || !isSame(loaded.getPhoneType(), edited.getPhoneType())
+                || !isSame(loaded.getComment(), edited.getComment());
+    }
+
+    private static boolean isChanged(ContactAttachment loaded, ContactAttachment edited) {
+        return loaded == null
+                || !isSame(loaded.getFileName(), edited.getFileName())
+                || !isSame(loaded.getComment(), edited.getComment());
+    }
+
+    // empty strings are stored as NULL and dates without time of day, the comparison follows the same rules
+    static boolean isSame(Object loaded, Object edited) {
+        Object first = normalize(loaded);
+        Object second = normalize(edited);
+        return first == null ? second == null : first.equals(second);
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof String && ((String) value).isEmpty()) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return new SimpleDateFormat("yyyy-MM-dd").format((Date) value);
+        }
+        return value;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+}
@@ -0,0 +1,8 @@
+package by.itechart.javalab.service;
+
+
+public class ContactConflictException extends ServiceException {
+    public ContactConflictException(String message, Exception ex) {
+        super(message, ex);
+    }
+}
@@ -0,0 +1,32 @@
+package by.itechart.javalab.service;
+
+
+public enum ContactExportFormat {
+    CSV("text/csv", "csv"),
+    VCARD("text/vcard", "vcf");
+
+    private final String contentType;
+    private final String extension;
+
+    ContactExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ContactExportFormat parse(String value) {
+        for (ContactExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value) || format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
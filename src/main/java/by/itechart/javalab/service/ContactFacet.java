@@ -0,0 +1,76 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Locale;
+
+
+public enum ContactFacet {
+    GENDER {
+        @Override
+        String getValue(Contact contact) {
+            return contact.getGender() == null ? null : contact.getGender().name();
+        }
+
+        @Override
+        String getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getGender() == null ? null : attributes.getGender().name();
+        }
+    },
+    MARITAL_STATUS {
+        @Override
+        String getValue(Contact contact) {
+            return contact.getMaritalStatus() == null ? null : contact.getMaritalStatus().name();
+        }
+
+        @Override
+        String getCriterion(ContactSearchAttributes attributes) {
+            return attributes.getMaritalStatus() == null ? null : attributes.getMaritalStatus().name();
+        }
+    },
+    COUNTRY {
+        @Override
+        String getValue(Contact contact) throws ServiceException {
+            Address address = contact.getAddress();
+            if (address == null) {
+                return null;
+            }
+            Integer countryId = address.getIdCountry() != null
+                    ? address.getIdCountry()
+                    : ContactAttributesService.getCountryId(address.getCountry());
+            return countryId == null ? null : ContactAttributesService.getCountryName(countryId);
+        }
+
+        // an unknown country matches nothing, like the NULL id it resolves to in the search query
+        @Override
+        String getCriterion(ContactSearchAttributes attributes) throws ServiceException {
+            if (attributes.getAddress() == null || StringUtils.isEmpty(attributes.getAddress().getCountry())) {
+                return null;
+            }
+            Integer countryId = ContactAttributesService.getCountryId(attributes.getAddress().getCountry());
+            return countryId == null ? "" : ContactAttributesService.getCountryName(countryId);
+        }
+    },
+    CITIZENSHIP {
+        @Override
+        String getValue(Contact contact) {
+            return StringUtils.isEmpty(contact.getCitizenship()) ? null : contact.getCitizenship();
+        }
+
+        @Override
+        String getCriterion(ContactSearchAttributes attributes) {
+            return StringUtils.isEmpty(attributes.getCitizenship()) ? null : attributes.getCitizenship();
+        }
+    };
+
+    abstract String getValue(Contact contact) throws ServiceException;
+
+    abstract String getCriterion(ContactSearchAttributes attributes) throws ServiceException;
+
+    // same equality as the column collation: case-insensitive, trailing spaces ignored
+    static String toKey(String value) {
+        return StringUtils.stripEnd(value, " ").toLowerCase(Locale.ROOT);
+    }
+}
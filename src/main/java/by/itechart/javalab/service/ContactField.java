@@ -0,0 +1,114 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+
+
+public enum ContactField {
+    NAME {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getName();
+        }
+    },
+    SURNAME {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getSurname();
+        }
+    },
+    PATRONYMIC {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getPatronymic();
+        }
+    },
+    BIRTHDAY {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getBirthday();
+        }
+    },
+    GENDER {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getGender();
+        }
+    },
+    MARITAL_STATUS {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getMaritalStatus();
+        }
+    },
+    CITIZENSHIP {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getCitizenship();
+        }
+    },
+    WEBSITE {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getWebsite();
+        }
+    },
+    EMAIL {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getEmail();
+        }
+    },
+    COMPANY {
+        @Override
+        public Object getValue(Contact contact) {
+            return contact.getCompany();
+        }
+    },
+    CITY {
+        @Override
+        public Object getValue(Contact contact) {
+            return getAddress(contact).getCity();
+        }
+    },
+    STREET {
+        @Override
+        public Object getValue(Contact contact) {
+            return getAddress(contact).getStreet();
+        }
+    },
+    HOUSE_NUMBER {
+        @Override
+        public Object getValue(Contact contact) {
+            return getAddress(contact).getHouseNumber();
+        }
+    },
+    APARTMENT_NUMBER {
+        @Override
+        public Object getValue(Contact contact) {
+            return getAddress(contact).getApartmentNumber();
+        }
+    },
+    ZIP_CODE {
+        @Override
+        public Object getValue(Contact contact) {
+            return getAddress(contact).getZipCode();
+        }
+    },
+    COUNTRY {
+        @Override
+        public Object getValue(Contact contact) {
+            return getAddress(contact).getIdCountry();
+        }
+    };
+
+    public abstract Object getValue(Contact contact);
+
+    public boolean isChanged(Contact loaded, Contact edited) {
+        return !ContactChanges.isSame(getValue(loaded), getValue(edited));
+    }
+
+    private static Address getAddress(Contact contact) {
+        return contact.getAddress() == null ? new Address() : contact.getAddress();
+    }
+}
@@ -0,0 +1,12 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+
+import java.io.File;
+import java.util.List;
+
+
+public interface ContactFilesWriter {
+    // every file is added to writtenFiles as soon as it's written, they are deleted if the transaction rolls back
+    void writeFiles(Contact contact, List<File> writtenFiles) throws Exception;
+}
@@ -0,0 +1,52 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+
+import java.util.List;
+
+
+public class ContactPage {
+    private final List<Contact> contacts;
+    private final PageRequest pageRequest;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+
+    public ContactPage(List<Contact> contacts, PageRequest pageRequest, boolean hasNext, boolean hasPrevious) {
+        this.contacts = contacts;
+        this.pageRequest = pageRequest;
+        this.hasNext = hasNext;
+        this.hasPrevious = hasPrevious;
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public PageRequest getPageRequest() {
+        return pageRequest;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public boolean isHasPrevious() {
+        return hasPrevious;
+    }
+
+    public String getNextCursorValue() {
+        return contacts.isEmpty() ? null : pageRequest.getSortOrder().getCursorValue(contacts.get(contacts.size() - 1));
+    }
+
+    public Long getNextCursorId() {
+        return contacts.isEmpty() ? null : contacts.get(contacts.size() - 1).getIdContact();
+    }
+
+    public String getPreviousCursorValue() {
+        return contacts.isEmpty() ? null : pageRequest.getSortOrder().getCursorValue(contacts.get(0));
+    }
+
+    public Long getPreviousCursorId() {
+        return contacts.isEmpty() ? null : contacts.get(0).getIdContact();
+    }
+}
@@ -0,0 +1,8 @@
+package by.itechart.javalab.service;
+
+
+public enum ContactProjection {
+    EMAIL,
+    SUMMARY,
+    FULL
+}
@@ -0,0 +1,12 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+
+import java.io.IOException;
+
+
+interface ContactReader {
+    // returns null when the input is exhausted; a malformed record is skipped before the exception is thrown
+    Contact read() throws IOException, ImportFormatException;
+    int getRecordNumber();
+}
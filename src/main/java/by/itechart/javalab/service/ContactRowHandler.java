@@ -0,0 +1,8 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+
+
+public interface ContactRowHandler {
+    void handle(Contact contact) throws Exception;
+}
@@ -17,6 +17,8 @@ public class ContactSearchAttributes {
     private Gender gender;
     private MaritalStatus maritalStatus;
     private Address address;
+    private String phone;
+    private boolean phonePrefix;
 
     public String getName() {
         return name;
@@ -89,4 +91,21 @@ public class ContactSearchAttributes {
     public void setAddress(Address address) {
         this.address = address;
     }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    // when set, the phone matches every number that starts with it
+    public boolean isPhonePrefix() {
+        return phonePrefix;
+    }
+
+    public void setPhonePrefix(boolean phonePrefix) {
+        this.phonePrefix = phonePrefix;
+    }
 }
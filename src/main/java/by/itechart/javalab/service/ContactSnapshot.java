@@ -0,0 +1,80 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.persistence.PersistenceManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+// The DAOs write generated ids and versions into the entities they save, the files writer the real file names.
+// After a rollback these name rows that were never committed, so the values the caller passed in are put back
+// before the transaction is replayed.
+final class ContactSnapshot {
+    private final Contact contact;
+    private final Long idContact;
+    private final Integer version;
+    private final List<ContactPhone> phoneList;
+    private final List<ContactAttachment> attachmentList;
+    private final List<ContactPhone> phones = new ArrayList<>();
+    private final List<ContactPhone> phoneCopies = new ArrayList<>();
+    private final List<ContactAttachment> attachments = new ArrayList<>();
+    private final List<ContactAttachment> attachmentCopies = new ArrayList<>();
+
+    private ContactSnapshot(Contact contact, Collection<ContactPhone> phones, Collection<ContactAttachment> attachments) {
+        this.contact = contact;
+        idContact = contact.getIdContact();
+        version = contact.getVersion();
+        phoneList = contact.getPhoneList();
+        attachmentList = contact.getAttachmentList();
+        if (phones != null) {
+            for (ContactPhone phone : phones) {
+                this.phones.add(phone);
+                phoneCopies.add(new ContactPhone(phone));
+            }
+        }
+        if (attachments != null) {
+            for (ContactAttachment attachment : attachments) {
+                this.attachments.add(attachment);
+                attachmentCopies.add(new ContactAttachment(attachment));
+            }
+        }
+    }
+
+    static void restoreOnRollback(Collection<Contact> contacts) {
+        for (Contact contact : contacts) {
+            restoreOnRollback(contact, contact.getPhoneList(), contact.getAttachmentList());
+        }
+    }
+
+    // phones and attachments are given apart from the contact, an update keeps the new ones outside of its lists
+    static void restoreOnRollback(Contact contact, Collection<ContactPhone> phones,
+                                  Collection<ContactAttachment> attachments) {
+        final ContactSnapshot snapshot = new ContactSnapshot(contact, phones, attachments);
+        PersistenceManager.runOnRollback(new Runnable() {
+            @Override
+            public void run() {
+                snapshot.restore();
+            }
+        });
+    }
+
+    private void restore() {
+        contact.setIdContact(idContact);
+        contact.setVersion(version);
+        contact.setPhoneList(phoneList);
+        contact.setAttachmentList(attachmentList);
+        for (int i = 0; i < phones.size(); i++) {
+            phones.get(i).setIdPhone(phoneCopies.get(i).getIdPhone());
+            phones.get(i).setIdContact(phoneCopies.get(i).getIdContact());
+        }
+        for (int i = 0; i < attachments.size(); i++) {
+            attachments.get(i).setIdAttachment(attachmentCopies.get(i).getIdAttachment());
+            attachments.get(i).setIdContact(attachmentCopies.get(i).getIdContact());
+            attachments.get(i).setRealFileName(attachmentCopies.get(i).getRealFileName());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+
+import java.text.SimpleDateFormat;
+
+
+public enum ContactSortOrder {
+    ID("idContact"),
+    SURNAME("surname"),
+    BIRTHDAY("birthday"),
+    COMPANY("company"),
+    CITY("city");
+
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private final String column;
+
+    ContactSortOrder(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getCursorValue(Contact contact) {
+        switch (this) {
+            case SURNAME:
+                return contact.getSurname();
+            case BIRTHDAY:
+                return contact.getBirthday() == null ? null : new SimpleDateFormat(DATE_PATTERN).format(contact.getBirthday());
+            case COMPANY:
+                return contact.getCompany();
+            case CITY:
+                return contact.getAddress() == null ? null : contact.getAddress().getCity();
+            default:
+                return null;
+        }
+    }
+
+    public static ContactSortOrder parse(String value) {
+        for (ContactSortOrder sortOrder : values()) {
+            if (sortOrder.name().equalsIgnoreCase(value)) {
+                return sortOrder;
+            }
+        }
+        return ID;
+    }
+}
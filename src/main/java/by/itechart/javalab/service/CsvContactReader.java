@@ -0,0 +1,167 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.entity.Gender;
+import by.itechart.javalab.entity.MaritalStatus;
+import by.itechart.javalab.entity.PhoneType;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+class CsvContactReader implements ContactReader {
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
+    private int recordNumber;
+    private int next;
+
+    CsvContactReader(Reader reader) throws IOException, ImportFormatException {
+        this.reader = reader;
+        next = reader.read();
+        if (next == BYTE_ORDER_MARK) {
+            next = reader.read();
+        }
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new ImportFormatException("File is empty.");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        for (String column : new String[] {"name", "surname", "email"}) {
+            if (!columns.containsKey(column)) {
+                throw new ImportFormatException("Column '" + column + "' is missing.");
+            }
+        }
+    }
+
+    @Override
+    public Contact read() throws IOException, ImportFormatException {
+        List<String> record = readRecord();
+        if (record == null) {
+            return null;
+        }
+        recordNumber++;
+        Contact contact = new Contact();
+        contact.setName(getValue(record, "name"));
+        contact.setSurname(getValue(record, "surname"));
+        contact.setPatronymic(getValue(record, "patronymic"));
+        contact.setBirthday(parseDate(getValue(record, "birthday")));
+        contact.setGender(parseEnum(Gender.class, getValue(record, "gender")));
+        contact.setMaritalStatus(parseEnum(MaritalStatus.class, getValue(record, "maritalStatus")));
+        contact.setCitizenship(getValue(record, "citizenship"));
+        contact.setWebsite(getValue(record, "website"));
+        contact.setEmail(getValue(record, "email"));
+        contact.setCompany(getValue(record, "company"));
+        Address address = new Address();
+        address.setCountry(getValue(record, "country"));
+        address.setCity(getValue(record, "city"));
+        address.setStreet(getValue(record, "street"));
+        address.setHouseNumber(getValue(record, "houseNumber"));
+        address.setApartmentNumber(getValue(record, "apartmentNumber"));
+        address.setZipCode(getValue(record, "zipCode"));
+        contact.setAddress(address);
+        contact.setPhoneList(parsePhones(getValue(record, "phones")));
+        contact.setAttachmentList(new ArrayList<ContactAttachment>());
+        return contact;
+    }
+
+    @Override
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+
+    private String getValue(List<String> record, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private Date parseDate(String value) throws ImportFormatException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return dateFormat.parse(value);
+        } catch (ParseException e) {
+            throw new ImportFormatException("Invalid birthday: " + value, e);
+        }
+    }
+
+    private <E extends Enum<E>> E parseEnum(Class<E> type, String value) throws ImportFormatException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ImportFormatException("Invalid value: " + value, e);
+        }
+    }
+
+    private List<ContactPhone> parsePhones(String value) throws ImportFormatException {
+        List<ContactPhone> phones = new ArrayList<>();
+        if (value != null) {
+            for (String phone : value.split(";")) {
+                if (StringUtils.isNotBlank(phone)) {
+                    phones.add(PhoneFormatter.parse(phone, PhoneType.MOBILE));
+                }
+            }
+        }
+        return phones;
+    }
+
+    // reads one RFC 4180 record, quoted values may contain separators and line breaks
+    private List<String> readRecord() throws IOException {
+        while (next == '\r' || next == '\n') {
+            next = reader.read();
+        }
+        if (next == -1) {
+            return null;
+        }
+        List<String> record = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (next != -1) {
+            char c = (char) next;
+            next = reader.read();
+            if (quoted) {
+                if (c == '"' && next == '"') {
+                    value.append('"');
+                    next = reader.read();
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(value.toString());
+                value.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                break;
+            } else {
+                value.append(c);
+            }
+        }
+        record.add(value.toString());
+        return record;
+    }
+}
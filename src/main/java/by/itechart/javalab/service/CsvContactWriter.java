@@ -0,0 +1,84 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactPhone;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+
+
+class CsvContactWriter implements ContactRowHandler {
+    static final String[] HEADER = {"id", "name", "surname", "patronymic", "birthday", "gender", "maritalStatus",
+            "citizenship", "website", "email", "company", "country", "city", "street", "houseNumber",
+            "apartmentNumber", "zipCode", "phones"};
+    private static final String LINE_SEPARATOR = "\r\n";
+    private final Writer writer;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
+
+    CsvContactWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        for (int i = 0; i < HEADER.length; i++) {
+            writeValue(i, HEADER[i]);
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void handle(Contact contact) throws IOException {
+        Address address = contact.getAddress() == null ? new Address() : contact.getAddress();
+        writeValue(0, String.valueOf(contact.getIdContact()));
+        writeValue(1, contact.getName());
+        writeValue(2, contact.getSurname());
+        writeValue(3, contact.getPatronymic());
+        writeValue(4, contact.getBirthday() == null ? null : dateFormat.format(contact.getBirthday()));
+        writeValue(5, contact.getGender() == null ? null : contact.getGender().name());
+        writeValue(6, contact.getMaritalStatus() == null ? null : contact.getMaritalStatus().name());
+        writeValue(7, contact.getCitizenship());
+        writeValue(8, contact.getWebsite());
+        writeValue(9, contact.getEmail());
+        writeValue(10, contact.getCompany());
+        writeValue(11, address.getCountry());
+        writeValue(12, address.getCity());
+        writeValue(13, address.getStreet());
+        writeValue(14, address.getHouseNumber());
+        writeValue(15, address.getApartmentNumber());
+        writeValue(16, address.getZipCode());
+        writeValue(17, formatPhones(contact));
+        writer.write(LINE_SEPARATOR);
+    }
+
+    private String formatPhones(Contact contact) {
+        if (contact.getPhoneList() == null || contact.getPhoneList().isEmpty()) {
+            return null;
+        }
+        StringBuilder phones = new StringBuilder();
+        for (ContactPhone phone : contact.getPhoneList()) {
+            if (phones.length() > 0) {
+                phones.append("; ");
+            }
+            phones.append(PhoneFormatter.format(phone));
+            if (phone.getPhoneType() != null) {
+                phones.append(' ').append(phone.getPhoneType().name());
+            }
+        }
+        return phones.toString();
+    }
+
+    private void writeValue(int column, String value) throws IOException {
+        if (column > 0) {
+            writer.write(',');
+        }
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
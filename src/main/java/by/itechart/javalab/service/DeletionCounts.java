@@ -0,0 +1,39 @@
+package by.itechart.javalab.service;
+
+
+public class DeletionCounts {
+    private int contacts;
+    private int phones;
+    private int attachments;
+
+    public DeletionCounts() {}
+
+    public DeletionCounts(int contacts, int phones, int attachments) {
+        this.contacts = contacts;
+        this.phones = phones;
+        this.attachments = attachments;
+    }
+
+    public void add(DeletionCounts other) {
+        contacts += other.contacts;
+        phones += other.phones;
+        attachments += other.attachments;
+    }
+
+    public int getContacts() {
+        return contacts;
+    }
+
+    public int getPhones() {
+        return phones;
+    }
+
+    public int getAttachments() {
+        return attachments;
+    }
+
+    @Override
+    public String toString() {
+        return "contacts=" + contacts + ", phones=" + phones + ", attachments=" + attachments;
+    }
+}
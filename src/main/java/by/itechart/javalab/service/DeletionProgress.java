@@ -0,0 +1,67 @@
+package by.itechart.javalab.service;
+
+
+public class DeletionProgress {
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final int total;
+    private final DeletionCounts counts = new DeletionCounts();
+    private int processed;
+    private Status status = Status.RUNNING;
+    private String error;
+
+    DeletionProgress(String id, int total) {
+        this.id = id;
+        this.total = total;
+    }
+
+    synchronized void advance(int processedContacts, DeletionCounts chunkCounts) {
+        processed += processedContacts;
+        counts.add(chunkCounts);
+    }
+
+    synchronized void complete() {
+        status = Status.COMPLETED;
+    }
+
+    synchronized void fail(String error) {
+        this.error = error;
+        status = Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public synchronized int getProcessed() {
+        return processed;
+    }
+
+    public synchronized int getPercent() {
+        return total == 0 ? 100 : (int) (processed * 100L / total);
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    public synchronized DeletionCounts getCounts() {
+        return new DeletionCounts(counts.getContacts(), counts.getPhones(), counts.getAttachments());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return id + ": " + status + ", " + processed + "/" + total + ", " + counts;
+    }
+}
@@ -0,0 +1,380 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.persistence.PersistenceManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+// Flags likely duplicate contacts: a new contact is looked up in a hashed blocking index by its email, its
+// name, surname and birthday, and its phones, which costs a few hash lookups instead of LIKE queries over
+// the contact table. The index is built from the database by the scan scheduled at startup, or by the first lookup,
+// and follows every committed write; the flags live in memory only and are rebuilt by scanDuplicates.
+public class DuplicateDetector {
+    private static Logger log = LogManager.getLogger(DuplicateDetector.class.getName());
+    private static final boolean enabled;
+    private static final long scanThrottle;
+    private static final int scanIntervalHours;
+    private static final int maxFlagged;
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final Object loadLock = new Object();
+    private static volatile boolean loaded;
+    private static DuplicateIndex index;
+    // changes committed while the index is being loaded, replayed on top of it
+    private static List<Change> pending;
+    // contact id -> older contacts it likely duplicates. The flags are transient: they aren't stored in the database,
+    // a restart loses them and the scan scheduled at startup finds them again; only the newest maxFlagged are kept
+    private static final Map<Long, List<DuplicateMatch>> flagged = new LinkedHashMap<>();
+
+    private DuplicateDetector() {}
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        enabled = Boolean.parseBoolean(properties.getProperty("duplicates.enabled", "true"));
+        scanThrottle = Long.parseLong(properties.getProperty("duplicates.scanThrottle", "100"));
+        scanIntervalHours = Integer.parseInt(properties.getProperty("duplicates.scanIntervalHours", "24"));
+        maxFlagged = Integer.parseInt(properties.getProperty("duplicates.maxFlagged", "10000"));
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static int getScanIntervalHours() {
+        return scanIntervalHours;
+    }
+
+    // contacts sharing a blocking key with the given one, it may be saved already or not
+    public static List<DuplicateMatch> findDuplicates(Contact contact) throws ServiceException {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        load();
+        Map<Long, DuplicateMatch> matches = new LinkedHashMap<>();
+        long[] hashes = DuplicateIndex.hash(contact);
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new ServiceException("Duplicate index is being reloaded.");
+            }
+            index.find(hashes, contact.getIdContact(), matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    public static List<DuplicateMatch> getFlagged(Long contactId) {
+        synchronized (flagged) {
+            List<DuplicateMatch> matches = flagged.get(contactId);
+            return matches == null ? Collections.<DuplicateMatch>emptyList() : new ArrayList<>(matches);
+        }
+    }
+
+    public static Map<Long, List<DuplicateMatch>> getFlagged() {
+        synchronized (flagged) {
+            return new LinkedHashMap<>(flagged);
+        }
+    }
+
+    // called inside the transaction that adds the contacts; returns how many of them look like duplicates,
+    // of each other too, they are flagged once the transaction commits. Loading the index streams the whole
+    // contact table, so the transaction doesn't wait for it: until the index is loaded the contacts aren't
+    // checked and the next scan flags them
+    static int contactsAdded(Collection<Contact> contacts) {
+        if (!enabled || contacts.isEmpty()) {
+            return 0;
+        }
+        final List<Change> changes = new ArrayList<>(contacts.size());
+        final Map<Long, List<DuplicateMatch>> found = new LinkedHashMap<>();
+        DuplicateIndex added = new DuplicateIndex();
+        lock.readLock().lock();
+        try {
+            // a load in progress replays the changes once they commit
+            boolean check = index != null;
+            for (Contact contact : contacts) {
+                long[] hashes = DuplicateIndex.hash(contact);
+                changes.add(new Change(contact.getIdContact(), hashes));
+                if (!check) {
+                    continue;
+                }
+                Map<Long, DuplicateMatch> matches = new LinkedHashMap<>();
+                index.find(hashes, contact.getIdContact(), matches);
+                added.find(hashes, contact.getIdContact(), matches);
+                added.put(contact.getIdContact(), hashes);
+                if (!matches.isEmpty()) {
+                    found.put(contact.getIdContact(), new ArrayList<>(matches.values()));
+                }
+            }
+            if (!check) {
+                log.debug("Duplicate index isn't loaded, {} contacts are left to the scan", contacts.size());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        PersistenceManager.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                apply(changes);
+                for (Map.Entry<Long, List<DuplicateMatch>> entry : found.entrySet()) {
+                    flag(entry.getKey(), entry.getValue());
+                }
+            }
+        });
+        return found.size();
+    }
+
+    static void contactsUpdated(Collection<Contact> contacts) {
+        if (!enabled) {
+            return;
+        }
+        final List<Change> changes = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            changes.add(new Change(contact.getIdContact(), DuplicateIndex.hash(contact)));
+        }
+        PersistenceManager.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                apply(changes);
+            }
+        });
+    }
+
+    static void contactsDeleted(final Collection<Long> contactIds) {
+        if (!enabled) {
+            return;
+        }
+        final List<Change> changes = new ArrayList<>(contactIds.size());
+        for (Long contactId : contactIds) {
+            changes.add(new Change(contactId, null));
+        }
+        PersistenceManager.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                apply(changes);
+                synchronized (flagged) {
+                    flagged.keySet().removeAll(contactIds);
+                }
+            }
+        });
+    }
+
+    // walks the whole contact table in pages by id and checks every contact against the older ones,
+    // the pause between pages keeps the scan from competing with the users
+    public static int scanDuplicates() throws ServiceException {
+        if (!enabled) {
+            return 0;
+        }
+        load();
+        log.info("Scanning contacts for duplicates");
+        long start = System.currentTimeMillis();
+        ContactFindDao findDao = getFindDao();
+        int scanned = 0;
+        int duplicates = 0;
+        Long cursorId = null;
+        try {
+            while (true) {
+                ContactPage page = findDao.getContacts(new PageRequest(ContactSortOrder.ID, PageRequest.MAX_PAGE_SIZE,
+                        null, cursorId, false));
+                List<Long> ids = new ArrayList<>(page.getContacts().size());
+                for (Contact contact : page.getContacts()) {
+                    ids.add(contact.getIdContact());
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                for (Contact contact : findDao.getContacts(ids, ContactProjection.FULL)) {
+                    List<DuplicateMatch> matches = getOlderMatches(contact);
+                    if (matches.isEmpty()) {
+                        unflag(contact.getIdContact());
+                    } else {
+                        flag(contact.getIdContact(), matches);
+                        duplicates++;
+                    }
+                }
+                scanned += ids.size();
+                cursorId = ids.get(ids.size() - 1);
+                if (!page.isHasNext() || !pause()) {
+                    break;
+                }
+            }
+        } catch (DaoException ex) {
+            log.error(ex);
+            throw new ServiceException(ex);
+        }
+        log.info("Duplicate scan checked {} contacts, {} look like duplicates, {} ms", scanned, duplicates,
+                System.currentTimeMillis() - start);
+        return duplicates;
+    }
+
+    // drops the index, the next check builds it again from the database
+    public static void reset() {
+        synchronized (loadLock) {
+            lock.writeLock().lock();
+            try {
+                loaded = false;
+                index = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // a pair is flagged once, on its newer contact
+    private static List<DuplicateMatch> getOlderMatches(Contact contact) throws ServiceException {
+        List<DuplicateMatch> matches = findDuplicates(contact);
+        Iterator<DuplicateMatch> iterator = matches.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getIdContact() > contact.getIdContact()) {
+                iterator.remove();
+            }
+        }
+        return matches;
+    }
+
+    private static void flag(Long contactId, List<DuplicateMatch> matches) {
+        log.info("Contact {} looks like a duplicate of {}", contactId, matches);
+        synchronized (flagged) {
+            flagged.remove(contactId);
+            flagged.put(contactId, matches);
+            Iterator<Long> eldest = flagged.keySet().iterator();
+            while (flagged.size() > maxFlagged) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static void unflag(Long contactId) {
+        synchronized (flagged) {
+            flagged.remove(contactId);
+        }
+    }
+
+    private static void apply(List<Change> changes) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(changes);
+            } else if (index != null) {
+                for (Change change : changes) {
+                    change.applyTo(index);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void load() throws ServiceException {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            final DuplicateIndex loading = new DuplicateIndex();
+            // the replica may lag behind the writes that are already in the pending list
+            long primaryReadsUntil = PersistenceManager.getPrimaryReadsUntil();
+            PersistenceManager.setPrimaryReadsUntil(Long.MAX_VALUE);
+            long start = System.currentTimeMillis();
+            try {
+                getFindDao().exportContacts(null, new ContactRowHandler() {
+                    @Override
+                    public void handle(Contact contact) throws Exception {
+                        loading.put(contact.getIdContact(), DuplicateIndex.hash(contact));
+                    }
+                });
+            } catch (DaoException ex) {
+                log.error(ex);
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw new ServiceException(ex);
+            } finally {
+                PersistenceManager.setPrimaryReadsUntil(primaryReadsUntil);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Change change : pending) {
+                    change.applyTo(loading);
+                }
+                pending = null;
+                index = loading;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Duplicate index of {} contacts loaded in {} ms", loading.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(scanThrottle);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ContactFindDao getFindDao() throws ServiceException {
+        try {
+            return DaoFactory.getDaoFactory().getContactFindDao();
+        } catch (DaoException ex) {
+            log.error(ex);
+            throw new ServiceException(ex);
+        }
+    }
+
+
+    private static class Change {
+        private final Long contactId;
+        // null when the contact is deleted
+        private final long[] hashes;
+
+        private Change(Long contactId, long[] hashes) {
+            this.contactId = contactId;
+            this.hashes = hashes;
+        }
+
+        private void applyTo(DuplicateIndex target) {
+            if (hashes == null) {
+                target.remove(contactId);
+            } else {
+                target.put(contactId, hashes);
+            }
+        }
+    }
+}
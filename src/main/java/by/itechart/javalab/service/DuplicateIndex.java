@@ -0,0 +1,108 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+// Hash of every blocking key value -> ids of the contacts having it. Only 64-bit hashes are kept, not the emails
+// and phones themselves; a collision merely suggests one more candidate. The low two bits of a hash tell its key.
+final class DuplicateIndex {
+    // a shared office phone must not turn every lookup into a scan of the whole office
+    private static final int MAX_BUCKET_MATCHES = 20;
+    private static final DuplicateKey[] KEYS = DuplicateKey.values();
+    // sets make adding and removing a contact constant time, the order of indexing is kept for the match cap
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+    private final Map<Long, long[]> contactHashes = new HashMap<>();
+
+    static long[] hash(Contact contact) {
+        List<Long> hashes = new ArrayList<>();
+        for (DuplicateKey key : KEYS) {
+            for (String value : key.getValues(contact)) {
+                hashes.add(hash(key, value));
+            }
+        }
+        long[] result = new long[hashes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = hashes.get(i);
+        }
+        return result;
+    }
+
+    void put(Long contactId, long[] hashes) {
+        remove(contactId);
+        for (long hash : hashes) {
+            Set<Long> bucket = buckets.get(hash);
+            if (bucket == null) {
+                bucket = new LinkedHashSet<>(2);
+                buckets.put(hash, bucket);
+            }
+            bucket.add(contactId);
+        }
+        contactHashes.put(contactId, hashes);
+    }
+
+    void remove(Long contactId) {
+        long[] hashes = contactHashes.remove(contactId);
+        if (hashes == null) {
+            return;
+        }
+        for (long hash : hashes) {
+            Set<Long> bucket = buckets.get(hash);
+            if (bucket != null) {
+                bucket.remove(contactId);
+                if (bucket.isEmpty()) {
+                    buckets.remove(hash);
+                }
+            }
+        }
+    }
+
+    boolean contains(Long contactId) {
+        return contactHashes.containsKey(contactId);
+    }
+
+    int size() {
+        return contactHashes.size();
+    }
+
+    // adds the contacts sharing a hash with the given ones to matches, the contact itself excluded
+    void find(long[] hashes, Long excludedId, Map<Long, DuplicateMatch> matches) {
+        for (long hash : hashes) {
+            Set<Long> bucket = buckets.get(hash);
+            if (bucket == null) {
+                continue;
+            }
+            int count = 0;
+            for (Long contactId : bucket) {
+                if (contactId.equals(excludedId)) {
+                    continue;
+                }
+                if (count++ == MAX_BUCKET_MATCHES) {
+                    break;
+                }
+                DuplicateMatch match = matches.get(contactId);
+                if (match == null) {
+                    match = new DuplicateMatch(contactId);
+                    matches.put(contactId, match);
+                }
+                match.addKey(KEYS[(int) (hash & 3)]);
+            }
+        }
+    }
+
+    // FNV-1a over the value, seeded with the key
+    private static long hash(DuplicateKey key, String value) {
+        long hash = 0xcbf29ce484222325L ^ key.ordinal();
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash & ~3L | key.ordinal();
+    }
+}
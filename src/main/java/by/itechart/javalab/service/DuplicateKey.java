@@ -0,0 +1,62 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.util.PhoneKeys;
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+
+// Blocking keys of the duplicate detector: two contacts sharing any of them are likely the same person.
+public enum DuplicateKey {
+    EMAIL {
+        @Override
+        List<String> getValues(Contact contact) {
+            String email = normalize(contact.getEmail());
+            return email == null ? Collections.<String>emptyList() : Collections.singletonList(email);
+        }
+    },
+    // a name alone is too common, together with the surname and the birthday it's nearly unique
+    NAME_BIRTHDAY {
+        @Override
+        List<String> getValues(Contact contact) {
+            String name = normalize(contact.getName());
+            String surname = normalize(contact.getSurname());
+            if (name == null || surname == null || contact.getBirthday() == null) {
+                return Collections.emptyList();
+            }
+            String birthday = new SimpleDateFormat("yyyy-MM-dd").format(contact.getBirthday());
+            return Collections.singletonList(name + '|' + surname + '|' + birthday);
+        }
+    },
+    PHONE {
+        @Override
+        List<String> getValues(Contact contact) {
+            if (contact.getPhoneList() == null) {
+                return Collections.emptyList();
+            }
+            List<String> values = new ArrayList<>(contact.getPhoneList().size());
+            for (ContactPhone phone : contact.getPhoneList()) {
+                String key = PhoneKeys.of(phone);
+                if (key != null && !values.contains(key)) {
+                    values.add(key);
+                }
+            }
+            return values;
+        }
+    };
+
+    abstract List<String> getValues(Contact contact);
+
+    private static String normalize(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
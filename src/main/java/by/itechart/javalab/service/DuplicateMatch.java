@@ -0,0 +1,32 @@
+package by.itechart.javalab.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+
+public class DuplicateMatch {
+    private final Long idContact;
+    private final Set<DuplicateKey> keys = EnumSet.noneOf(DuplicateKey.class);
+
+    DuplicateMatch(Long idContact) {
+        this.idContact = idContact;
+    }
+
+    void addKey(DuplicateKey key) {
+        keys.add(key);
+    }
+
+    public Long getIdContact() {
+        return idContact;
+    }
+
+    // the blocking keys both contacts share
+    public Set<DuplicateKey> getKeys() {
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return idContact + " " + keys;
+    }
+}
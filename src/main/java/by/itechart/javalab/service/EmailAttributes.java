@@ -1,9 +1,11 @@
 package by.itechart.javalab.service;
 
+import java.util.List;
+
 
 public class EmailAttributes {
     private String fromEmail;
-    private String recipientEmails;
+    private List<String> recipients;
     private String emailTitle;
     private String emailText;
 
@@ -15,12 +17,12 @@ public class EmailAttributes {
         this.fromEmail = fromEmail;
     }
 
-    public String getRecipientEmails() {
-        return recipientEmails;
+    public List<String> getRecipients() {
+        return recipients;
     }
 
-    public void setRecipientEmails(String recipientEmails) {
-        this.recipientEmails = recipientEmails;
+    public void setRecipients(List<String> recipients) {
+        this.recipients = recipients;
     }
 
     public String getEmailTitle() {
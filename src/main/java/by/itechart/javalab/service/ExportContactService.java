@@ -0,0 +1,36 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.DaoFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+public class ExportContactService {
+    private static Logger log = LogManager.getLogger(ExportContactService.class.getName());
+
+    private ExportContactService() {}
+
+    public static void exportContacts(ContactSearchAttributes searchAttributes, ContactExportFormat format,
+                                      Writer writer) throws ServiceException {
+        log.debug("exportContacts: {}", format);
+        if (searchAttributes != null) {
+            ContactAttributesService.resolveCountryId(searchAttributes.getAddress());
+        }
+        try {
+            ContactRowHandler handler = format == ContactExportFormat.VCARD
+                    ? new VCardContactWriter(writer) : new CsvContactWriter(writer);
+            DaoFactory daoFactory = DaoFactory.getDaoFactory();
+            ContactFindDao findDao = daoFactory.getContactFindDao();
+            findDao.exportContacts(searchAttributes, handler);
+            writer.flush();
+        } catch (DaoException | IOException ex) {
+            log.error(ex);
+            throw new ServiceException("Can't export contacts.", ex);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package by.itechart.javalab.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+
+public class FacetCounts {
+    private final int total;
+    private final Map<ContactFacet, Map<String, Integer>> counts = new EnumMap<>(ContactFacet.class);
+
+    FacetCounts(int total) {
+        this.total = total;
+    }
+
+    void setCounts(ContactFacet facet, Map<String, Integer> valueCounts) {
+        counts.put(facet, valueCounts);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    // value -> number of matching contacts, the largest first
+    public Map<String, Integer> getCounts(ContactFacet facet) {
+        return counts.get(facet);
+    }
+
+    public Map<String, Integer> getGenders() {
+        return counts.get(ContactFacet.GENDER);
+    }
+
+    public Map<String, Integer> getMaritalStatuses() {
+        return counts.get(ContactFacet.MARITAL_STATUS);
+    }
+
+    public Map<String, Integer> getCountries() {
+        return counts.get(ContactFacet.COUNTRY);
+    }
+
+    public Map<String, Integer> getCitizenships() {
+        return counts.get(ContactFacet.CITIZENSHIP);
+    }
+
+    @Override
+    public String toString() {
+        return "total=" + total + ", " + counts;
+    }
+}
@@ -0,0 +1,394 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.dao.ContactFindDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.util.CompressedBitmap;
+import by.itechart.javalab.util.PhoneKeys;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+// Keeps a bitmap of contact ids per value of every facet. Counting is a bitmap intersection per value, only
+// the criteria the bitmaps don't cover (names, address, birthday range, phone) cost one id query on the database.
+// The bitmaps are built from the database on first use and follow every committed contact write afterwards.
+public class FacetService {
+    private static Logger log = LogManager.getLogger(FacetService.class.getName());
+    private static final boolean enabled;
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final Object loadLock = new Object();
+    private static volatile boolean loaded;
+    // the bitmaps hold int ids, once a larger contact id shows up the counts are off until a restart
+    private static volatile boolean idOverflow;
+    private static FacetIndex index;
+    // changes committed while the bitmaps are being loaded, replayed on top of them
+    private static List<Change> pending;
+
+    private FacetService() {}
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        enabled = Boolean.parseBoolean(properties.getProperty("facets.enabled", "true"));
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static FacetCounts getFacetCounts(ContactSearchAttributes searchAttributes) throws ServiceException {
+        log.debug("getFacetCounts: ");
+        if (!enabled) {
+            throw new ServiceException("Facet counts are disabled.");
+        }
+        if (idOverflow) {
+            throw new ServiceException("Facet counts don't support contact ids above " + Integer.MAX_VALUE + ".");
+        }
+        load();
+        Map<ContactFacet, String> criteria = new EnumMap<>(ContactFacet.class);
+        CompressedBitmap matching = null;
+        if (searchAttributes != null) {
+            for (ContactFacet facet : ContactFacet.values()) {
+                String criterion = facet.getCriterion(searchAttributes);
+                if (criterion != null) {
+                    criteria.put(facet, ContactFacet.toKey(criterion));
+                }
+            }
+            if (hasOtherCriteria(searchAttributes)) {
+                ContactAttributesService.resolveCountryId(searchAttributes.getAddress());
+                try {
+                    matching = toBitmap(getFindDao().getContactIds(searchAttributes));
+                } catch (DaoException ex) {
+                    log.error(ex);
+                    throw new ServiceException(ex);
+                }
+            }
+        }
+        lock.readLock().lock();
+        try {
+            // reset() may have dropped the bitmaps since they were loaded above
+            if (index == null) {
+                throw new ServiceException("Facet counts are being reloaded.");
+            }
+            return index.count(matching, criteria);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static Future<FacetCounts> getFacetCountsAsync(final ContactSearchAttributes searchAttributes) {
+        return LookupExecutor.submit(new Callable<FacetCounts>() {
+            @Override
+            public FacetCounts call() throws ServiceException {
+                return getFacetCounts(searchAttributes);
+            }
+        });
+    }
+
+    // called inside the writing transaction, the bitmaps change only once it commits
+    static void contactsSaved(Collection<Contact> contacts) {
+        if (!enabled) {
+            return;
+        }
+        final List<Change> changes = new ArrayList<>(contacts.size());
+        try {
+            for (Contact contact : contacts) {
+                if (!fitsBitmap(contact.getIdContact())) {
+                    return;
+                }
+                changes.add(new Change(contact.getIdContact(), getValues(contact)));
+            }
+        } catch (ServiceException e) {
+            log.error("Can't index contact facets, reloading them.", e);
+            reset();
+            return;
+        }
+        PersistenceManager.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                apply(changes);
+            }
+        });
+    }
+
+    static void contactsDeleted(Collection<Long> contactIds) {
+        if (!enabled) {
+            return;
+        }
+        final List<Change> changes = new ArrayList<>(contactIds.size());
+        for (Long contactId : contactIds) {
+            if (!fitsBitmap(contactId)) {
+                return;
+            }
+            changes.add(new Change(contactId, null));
+        }
+        PersistenceManager.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                apply(changes);
+            }
+        });
+    }
+
+    private static void apply(List<Change> changes) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.addAll(changes);
+            } else if (index != null) {
+                for (Change change : changes) {
+                    index.apply(change);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // drops the bitmaps, the next count builds them again from the database
+    public static void reset() {
+        synchronized (loadLock) {
+            lock.writeLock().lock();
+            try {
+                loaded = false;
+                index = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static void load() throws ServiceException {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            final FacetIndex loading = new FacetIndex();
+            // the replica may lag behind the writes that are already in the pending list
+            long primaryReadsUntil = PersistenceManager.getPrimaryReadsUntil();
+            PersistenceManager.setPrimaryReadsUntil(Long.MAX_VALUE);
+            long start = System.currentTimeMillis();
+            try {
+                getFindDao().exportContacts(null, new ContactRowHandler() {
+                    @Override
+                    public void handle(Contact contact) throws Exception {
+                        if (!fitsBitmap(contact.getIdContact())) {
+                            throw new ServiceException("Contact id " + contact.getIdContact()
+                                    + " doesn't fit the facet bitmaps.");
+                        }
+                        loading.apply(new Change(contact.getIdContact(), getValues(contact)));
+                    }
+                });
+            } catch (DaoException ex) {
+                log.error(ex);
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw new ServiceException(ex);
+            } finally {
+                PersistenceManager.setPrimaryReadsUntil(primaryReadsUntil);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Change change : pending) {
+                    loading.apply(change);
+                }
+                pending = null;
+                index = loading;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Facet bitmaps of {} contacts loaded in {} ms", loading.all.cardinality(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private static String[] getValues(Contact contact) throws ServiceException {
+        String[] values = new String[ContactFacet.values().length];
+        for (ContactFacet facet : ContactFacet.values()) {
+            values[facet.ordinal()] = facet.getValue(contact);
+        }
+        return values;
+    }
+
+    private static boolean hasOtherCriteria(ContactSearchAttributes attributes) {
+        Address address = attributes.getAddress() == null ? new Address() : attributes.getAddress();
+        return StringUtils.isNotEmpty(attributes.getName()) || StringUtils.isNotEmpty(attributes.getSurname())
+                || StringUtils.isNotEmpty(attributes.getPatronymic()) || attributes.getBirthdayDateFrom() != null
+                || attributes.getBirthdayDateTo() != null || StringUtils.isNotEmpty(address.getCity())
+                || StringUtils.isNotEmpty(address.getStreet()) || StringUtils.isNotEmpty(address.getHouseNumber())
+                || StringUtils.isNotEmpty(address.getApartmentNumber()) || StringUtils.isNotEmpty(address.getZipCode())
+                || PhoneKeys.normalize(attributes.getPhone()) != null;
+    }
+
+    private static CompressedBitmap toBitmap(List<Long> contactIds) throws ServiceException {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (Long contactId : contactIds) {
+            if (!fitsBitmap(contactId)) {
+                throw new ServiceException("Contact id " + contactId + " doesn't fit the facet bitmaps.");
+            }
+            bitmap.add(contactId.intValue());
+        }
+        return bitmap;
+    }
+
+    // a truncated id would count, or remove, some other contact; the counts are switched off instead
+    private static boolean fitsBitmap(Long contactId) {
+        if (contactId >= 0 && contactId <= Integer.MAX_VALUE) {
+            return true;
+        }
+        if (!idOverflow) {
+            log.error("Contact id {} doesn't fit the facet bitmaps, facet counts are switched off.", contactId);
+            idOverflow = true;
+        }
+        return false;
+    }
+
+    private static ContactFindDao getFindDao() throws ServiceException {
+        try {
+            return DaoFactory.getDaoFactory().getContactFindDao();
+        } catch (DaoException ex) {
+            log.error(ex);
+            throw new ServiceException(ex);
+        }
+    }
+
+
+    private static class Change {
+        private final int contactId;
+        // facet values by ordinal, null when the contact is deleted
+        private final String[] values;
+
+        private Change(Long contactId, String[] values) {
+            this.contactId = contactId.intValue();
+            this.values = values;
+        }
+    }
+
+    private static class FacetIndex {
+        private final CompressedBitmap all = new CompressedBitmap();
+        private final Map<ContactFacet, Map<String, CompressedBitmap>> bitmaps = new EnumMap<>(ContactFacet.class);
+        // the first spelling seen for a value is the one shown
+        private final Map<ContactFacet, Map<String, String>> labels = new EnumMap<>(ContactFacet.class);
+        // contact id -> labels of its values by facet ordinal, the label strings are shared with the map above
+        private final Map<Integer, String[]> contactLabels = new HashMap<>();
+
+        private FacetIndex() {
+            for (ContactFacet facet : ContactFacet.values()) {
+                bitmaps.put(facet, new HashMap<String, CompressedBitmap>());
+                labels.put(facet, new HashMap<String, String>());
+            }
+        }
+
+        // an update only touches the bitmaps of the contact's previous values, a load has none to touch
+        private void apply(Change change) {
+            String[] previous = contactLabels.remove(change.contactId);
+            if (previous != null) {
+                for (ContactFacet facet : ContactFacet.values()) {
+                    String label = previous[facet.ordinal()];
+                    if (label != null) {
+                        remove(facet, ContactFacet.toKey(label), change.contactId);
+                    }
+                }
+            }
+            if (change.values == null) {
+                all.remove(change.contactId);
+                return;
+            }
+            all.add(change.contactId);
+            String[] current = new String[change.values.length];
+            for (ContactFacet facet : ContactFacet.values()) {
+                String value = change.values[facet.ordinal()];
+                if (value == null) {
+                    continue;
+                }
+                String key = ContactFacet.toKey(value);
+                CompressedBitmap bitmap = bitmaps.get(facet).get(key);
+                if (bitmap == null) {
+                    bitmap = new CompressedBitmap();
+                    bitmaps.get(facet).put(key, bitmap);
+                    labels.get(facet).put(key, value);
+                }
+                bitmap.add(change.contactId);
+                current[facet.ordinal()] = labels.get(facet).get(key);
+            }
+            contactLabels.put(change.contactId, current);
+        }
+
+        private void remove(ContactFacet facet, String key, int contactId) {
+            CompressedBitmap bitmap = bitmaps.get(facet).get(key);
+            if (bitmap != null && bitmap.remove(contactId) && bitmap.isEmpty()) {
+                bitmaps.get(facet).remove(key);
+                labels.get(facet).remove(key);
+            }
+        }
+
+        private FacetCounts count(CompressedBitmap matching, Map<ContactFacet, String> criteria) {
+            CompressedBitmap filter = matching == null ? all : matching.and(all);
+            for (Map.Entry<ContactFacet, String> criterion : criteria.entrySet()) {
+                CompressedBitmap bitmap = bitmaps.get(criterion.getKey()).get(criterion.getValue());
+                filter = bitmap == null ? new CompressedBitmap() : filter.and(bitmap);
+            }
+            FacetCounts counts = new FacetCounts(filter.cardinality());
+            for (ContactFacet facet : ContactFacet.values()) {
+                List<Map.Entry<String, Integer>> valueCounts = new ArrayList<>();
+                for (Map.Entry<String, CompressedBitmap> entry : bitmaps.get(facet).entrySet()) {
+                    int count = filter.andCardinality(entry.getValue());
+                    if (count > 0) {
+                        valueCounts.add(new AbstractMap.SimpleEntry<>(labels.get(facet).get(entry.getKey()), count));
+                    }
+                }
+                Collections.sort(valueCounts, new Comparator<Map.Entry<String, Integer>>() {
+                    @Override
+                    public int compare(Map.Entry<String, Integer> first, Map.Entry<String, Integer> second) {
+                        int comparison = second.getValue().compareTo(first.getValue());
+                        return comparison != 0 ? comparison : first.getKey().compareTo(second.getKey());
+                    }
+                });
+                Map<String, Integer> sorted = new LinkedHashMap<>();
+                for (Map.Entry<String, Integer> entry : valueCounts) {
+                    sorted.put(entry.getKey(), entry.getValue());
+                }
+                counts.setCounts(facet, sorted);
+            }
+            return counts;
+        }
+    }
+}
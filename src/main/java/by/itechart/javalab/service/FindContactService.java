@@ -4,11 +4,15 @@ import by.itechart.javalab.dao.ContactFindDao;
 import by.itechart.javalab.dao.DaoException;
 import by.itechart.javalab.dao.DaoFactory;
 import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.persistence.PersistenceManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 public class FindContactService {
@@ -16,37 +20,41 @@ public class FindContactService {
 
     private FindContactService() {}
 
-    public static List<Contact> getContacts(int offset, boolean isLowerIds) throws ServiceException {
-        log.debug("getContacts: " + offset);
-        List<Contact> contacts = new ArrayList<>();
+    public static ContactPage getContacts(PageRequest pageRequest) throws ServiceException {
+        log.debug("getContacts: " + pageRequest);
         try {
             DaoFactory daoFactory = DaoFactory.getDaoFactory();
             ContactFindDao findDao = daoFactory.getContactFindDao();
-            contacts = findDao.getContacts(offset, isLowerIds);
+            return findDao.getContacts(pageRequest);
         } catch (DaoException ex) {
             log.error(ex);
             throw new ServiceException(ex);
         }
-        return contacts;
     }
 
-    public static List<Contact> getSearchContacts(ContactSearchAttributes searchAttributes, Integer offset, boolean isLowerIds) throws ServiceException {
-        log.debug("getSearchContacts: ");
-        List<Contact> contacts = new ArrayList<>();
+    public static ContactPage getSearchContacts(ContactSearchAttributes searchAttributes, PageRequest pageRequest) throws ServiceException {
+        log.debug("getSearchContacts: " + pageRequest);
+        ContactAttributesService.resolveCountryId(searchAttributes.getAddress());
         try {
             DaoFactory daoFactory = DaoFactory.getDaoFactory();
             ContactFindDao findDao = daoFactory.getContactFindDao();
-            contacts = findDao.getContacts(searchAttributes, offset, isLowerIds);
+            return findDao.getContacts(searchAttributes, pageRequest);
         } catch (DaoException ex) {
             log.error(ex);
             throw new ServiceException(ex);
         }
-        return contacts;
     }
 
     public static Contact getContact(Long contactId) throws ServiceException {
         log.debug("getContact: " + contactId);
-        Contact contact = null;
+        Contact contact = ContactCache.get(contactId);
+        if (contact != null) {
+            return contact;
+        }
+        long cacheGeneration = ContactCache.getGeneration();
+        // a lagging replica row would stay in the cache for its whole time to live, misses are read from the primary
+        long primaryReadsUntil = PersistenceManager.getPrimaryReadsUntil();
+        PersistenceManager.setPrimaryReadsUntil(Long.MAX_VALUE);
         try {
             DaoFactory daoFactory = DaoFactory.getDaoFactory();
             ContactFindDao findDao = daoFactory.getContactFindDao();
@@ -54,12 +62,48 @@ public class FindContactService {
         } catch (DaoException ex) {
             log.error(ex);
             throw new ServiceException(ex);
+        } finally {
+            PersistenceManager.setPrimaryReadsUntil(primaryReadsUntil);
+        }
+        if (contact.getName() != null && !PersistenceManager.isTransactionActive()) {
+            ContactCache.put(contact, cacheGeneration);
         }
         return contact;
     }
 
-    public static List<String> getEmails(Long contactsID[]) throws ServiceException {
-        log.debug("getEmails: {}", contactsID.length);
+    public static Future<Contact> getContactAsync(final Long contactId) {
+        return LookupExecutor.submit(new Callable<Contact>() {
+            @Override
+            public Contact call() throws ServiceException {
+                return getContact(contactId);
+            }
+        });
+    }
+
+    public static Future<ContactPage> getSearchContactsAsync(final ContactSearchAttributes searchAttributes,
+                                                             final PageRequest pageRequest) {
+        return LookupExecutor.submit(new Callable<ContactPage>() {
+            @Override
+            public ContactPage call() throws ServiceException {
+                return getSearchContacts(searchAttributes, pageRequest);
+            }
+        });
+    }
+
+    public static List<Contact> getContacts(Collection<Long> contactIds, ContactProjection projection) throws ServiceException {
+        log.debug("getContacts: {} ids, {}", contactIds.size(), projection);
+        try {
+            DaoFactory daoFactory = DaoFactory.getDaoFactory();
+            ContactFindDao findDao = daoFactory.getContactFindDao();
+            return findDao.getContacts(contactIds, projection);
+        } catch (DaoException ex) {
+            log.error(ex);
+            throw new ServiceException(ex);
+        }
+    }
+
+    public static List<String> getEmails(Collection<Long> contactsID) throws ServiceException {
+        log.debug("getEmails: {}", contactsID.size());
         List<String> emails = new ArrayList<>();
         try {
             DaoFactory daoFactory = DaoFactory.getDaoFactory();
@@ -85,4 +129,16 @@ public class FindContactService {
         }
         return contacts;
     }
+
+    public static List<Contact> getUpcomingBirthdayContacts(int days) throws ServiceException {
+        log.debug("getUpcomingBirthdayContacts: {}", days);
+        try {
+            DaoFactory daoFactory = DaoFactory.getDaoFactory();
+            ContactFindDao findDao = daoFactory.getContactFindDao();
+            return findDao.getUpcomingBirthdayContacts(days);
+        } catch (DaoException ex) {
+            log.error(ex);
+            throw new ServiceException(ex);
+        }
+    }
 }
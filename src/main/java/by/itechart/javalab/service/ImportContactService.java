@@ -0,0 +1,190 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.dao.ContactModificationDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.persistence.Propagation;
+import by.itechart.javalab.persistence.TransactionCallback;
+import by.itechart.javalab.persistence.TransactionException;
+import by.itechart.javalab.persistence.TransactionTemplate;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+
+public class ImportContactService {
+    private static Logger log = LogManager.getLogger(ImportContactService.class.getName());
+    private static final int chunkSize;
+
+    private ImportContactService() {}
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        chunkSize = Integer.parseInt(properties.getProperty("import.chunkSize", "1000"));
+    }
+
+    public static ImportReport importContacts(InputStream input, ContactExportFormat format) throws ServiceException {
+        log.debug("importContacts: {}", format);
+        long start = System.currentTimeMillis();
+        ImportReport report = new ImportReport();
+        List<Contact> chunk = new ArrayList<>(chunkSize);
+        List<Integer> rowNumbers = new ArrayList<>(chunkSize);
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+            ContactReader contactReader = format == ContactExportFormat.VCARD
+                    ? new VCardContactReader(reader) : new CsvContactReader(reader);
+            while (true) {
+                Contact contact;
+                try {
+                    contact = contactReader.read();
+                } catch (ImportFormatException e) {
+                    report.addError(contactReader.getRecordNumber(), e.getMessage());
+                    continue;
+                }
+                if (contact == null) {
+                    break;
+                }
+                String error = validate(contact);
+                if (error != null) {
+                    report.addError(contactReader.getRecordNumber(), error);
+                    continue;
+                }
+                chunk.add(contact);
+                rowNumbers.add(contactReader.getRecordNumber());
+                if (chunk.size() >= chunkSize) {
+                    saveChunk(chunk, rowNumbers, report);
+                    chunk.clear();
+                    rowNumbers.clear();
+                }
+            }
+            saveChunk(chunk, rowNumbers, report);
+        } catch (IOException | ImportFormatException e) {
+            log.error(e);
+            throw new ServiceException("Can't import contacts.", e);
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("Contacts import finished: {}", report);
+        return report;
+    }
+
+    private static String validate(Contact contact) throws ServiceException {
+        Address address = contact.getAddress();
+        if (StringUtils.isBlank(contact.getName()) || StringUtils.isBlank(contact.getSurname())) {
+            return "Name and surname are required.";
+        }
+        if (contact.getBirthday() == null) {
+            return "Birthday is required.";
+        }
+        if (StringUtils.isBlank(contact.getEmail()) || StringUtils.isBlank(contact.getCompany())) {
+            return "Email and company are required.";
+        }
+        if (StringUtils.isBlank(address.getCity()) || StringUtils.isBlank(address.getStreet())
+                || StringUtils.isBlank(address.getHouseNumber())) {
+            return "City, street and house number are required.";
+        }
+        if (StringUtils.isNotEmpty(address.getZipCode()) && !StringUtils.isNumeric(address.getZipCode())) {
+            return "Invalid zip code: " + address.getZipCode();
+        }
+        ContactAttributesService.resolveCountryId(address);
+        if (address.getIdCountry() == null) {
+            return "Unknown country: " + address.getCountry();
+        }
+        return null;
+    }
+
+    private static void saveChunk(final List<Contact> chunk, List<Integer> rowNumbers, ImportReport report)
+            throws ServiceException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            int duplicates = TransactionTemplate.execute("importContacts", new TransactionCallback<Integer>() {
+                @Override
+                public Integer doInTransaction() throws Exception {
+                    ContactSnapshot.restoreOnRollback(chunk);
+                    getModificationDao().addNewContacts(chunk);
+                    FacetService.contactsSaved(chunk);
+                    return DuplicateDetector.contactsAdded(chunk);
+                }
+            });
+            report.addImported(chunk.size());
+            report.addDuplicates(duplicates);
+        } catch (TransactionException e) {
+            log.warn("Import batch of {} contacts failed, saving them one by one: {}", chunk.size(), e.getMessage());
+            String[] failures = saveOneByOne(chunk, report);
+            for (int i = 0; i < failures.length; i++) {
+                if (failures[i] == null) {
+                    report.addImported(1);
+                } else {
+                    report.addError(rowNumbers.get(i), failures[i]);
+                }
+            }
+        }
+    }
+
+    // every row gets its own savepoint, so a bad row is rolled back without losing the rest of the chunk
+    private static String[] saveOneByOne(final List<Contact> chunk, final ImportReport report) throws ServiceException {
+        try {
+            return TransactionTemplate.execute("importContacts", new TransactionCallback<String[]>() {
+                @Override
+                public String[] doInTransaction() throws Exception {
+                    String[] failures = new String[chunk.size()];
+                    List<Contact> saved = new ArrayList<>(chunk.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        final Contact contact = chunk.get(i);
+                        try {
+                            TransactionTemplate.execute("importContact", Propagation.NESTED, new TransactionCallback<Void>() {
+                                @Override
+                                public Void doInTransaction() throws Exception {
+                                    ContactSnapshot.restoreOnRollback(Collections.singletonList(contact));
+                                    getModificationDao().addNewContact(contact);
+                                    return null;
+                                }
+                            });
+                            saved.add(contact);
+                        } catch (TransactionException e) {
+                            failures[i] = getRootMessage(e);
+                        }
+                    }
+                    // registered here rather than per row, a rolled back row must not reach the facet or duplicate indexes
+                    FacetService.contactsSaved(saved);
+                    report.addDuplicates(DuplicateDetector.contactsAdded(saved));
+                    return failures;
+                }
+            });
+        } catch (TransactionException e) {
+            log.error(e);
+            throw new ServiceException("Can't import contacts.", e);
+        }
+    }
+
+    private static String getRootMessage(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private static ContactModificationDao getModificationDao() throws DaoException {
+        DaoFactory daoFactory = DaoFactory.getDaoFactory();
+        return daoFactory.getContactModificationDao();
+    }
+}
@@ -0,0 +1,12 @@
+package by.itechart.javalab.service;
+
+
+public class ImportFormatException extends Exception {
+    public ImportFormatException(String message){
+        super(message);
+    }
+
+    public ImportFormatException(String message, Exception ex){
+        super(message, ex);
+    }
+}
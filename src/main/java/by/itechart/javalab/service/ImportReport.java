@@ -0,0 +1,86 @@
+package by.itechart.javalab.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+public class ImportReport {
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private final List<RowError> errors = new ArrayList<>();
+    private int importedCount;
+    private int errorCount;
+    private int duplicateCount;
+    private long elapsedMillis;
+
+    void addImported(int count) {
+        importedCount += count;
+    }
+
+    void addError(int rowNumber, String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(rowNumber, message));
+        }
+    }
+
+    void addDuplicates(int count) {
+        duplicateCount += count;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    // imported contacts that look like duplicates of stored or earlier imported ones
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public int getProcessedCount() {
+        return importedCount + errorCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorCount > errors.size();
+    }
+
+    @Override
+    public String toString() {
+        return "imported=" + importedCount + ", errors=" + errorCount + ", duplicates=" + duplicateCount + ", elapsed=" + elapsedMillis + "ms";
+    }
+
+    public static class RowError {
+        private final int rowNumber;
+        private final String message;
+
+        RowError(int rowNumber, String message) {
+            this.rowNumber = rowNumber;
+            this.message = message;
+        }
+
+        public int getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.persistence.PersistenceManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+// Runs independent read-only lookups of one request side by side on a bounded pool of JDBC threads.
+// When the pool and its queue are full the lookup runs on the calling thread instead of failing.
+public class LookupExecutor {
+    private static Logger log = LogManager.getLogger(LookupExecutor.class.getName());
+    private static final long timeout;
+    private static final ThreadPoolExecutor executor;
+
+    private LookupExecutor() {}
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        int poolSize = Integer.parseInt(properties.getProperty("lookup.poolSize", "8"));
+        int queueSize = Integer.parseInt(properties.getProperty("lookup.queueSize", "100"));
+        timeout = Long.parseLong(properties.getProperty("lookup.timeout", "5000"));
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "contact-lookup-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static <T> Future<T> submit(Callable<T> lookup) {
+        LookupTask<T> task = new LookupTask<>(lookup, System.currentTimeMillis() + timeout);
+        executor.execute(task);
+        return task;
+    }
+
+    public static <T> Future<T> completed(T value) {
+        FutureTask<T> task = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {}
+        }, value);
+        task.run();
+        return task;
+    }
+
+    // waits no longer than the lookup's own deadline, a late lookup is cancelled
+    public static <T> T await(Future<T> future) throws ServiceException {
+        long remaining = future instanceof LookupTask
+                ? ((LookupTask<?>) future).deadline - System.currentTimeMillis()
+                : timeout;
+        try {
+            return future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceException("Lookup didn't finish in " + timeout + " ms.", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Lookup was interrupted.", e);
+        } catch (CancellationException e) {
+            throw new ServiceException("Lookup was cancelled.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw new ServiceException("Lookup failed.", e);
+        }
+    }
+
+    public static void cancel(Future<?>... futures) {
+        for (Future<?> future : futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    // carries the caller's read routing over to the pool thread and gives up if it waited in the queue too long
+    private static class LookupTask<T> extends FutureTask<T> {
+        private final long deadline;
+
+        private LookupTask(final Callable<T> lookup, final long deadline) {
+            super(new Callable<T>() {
+                private final long primaryReadsUntil = PersistenceManager.getPrimaryReadsUntil();
+                private final String shard = PersistenceManager.getBoundShard();
+
+                @Override
+                public T call() throws Exception {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new ServiceException("Lookup expired before it started.");
+                    }
+                    long previousReadsUntil = PersistenceManager.getPrimaryReadsUntil();
+                    String previousShard = PersistenceManager.bindShard(shard);
+                    PersistenceManager.setPrimaryReadsUntil(primaryReadsUntil);
+                    try {
+                        return lookup.call();
+                    } finally {
+                        PersistenceManager.setPrimaryReadsUntil(previousReadsUntil);
+                        PersistenceManager.bindShard(previousShard);
+                    }
+                }
+            });
+            this.deadline = deadline;
+        }
+    }
+}
@@ -3,209 +3,369 @@ package by.itechart.javalab.service;
 import by.itechart.javalab.dao.ContactModificationDao;
 import by.itechart.javalab.dao.DaoException;
 import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.dao.StaleContactException;
 import by.itechart.javalab.entity.Contact;
 import by.itechart.javalab.entity.ContactAttachment;
 import by.itechart.javalab.entity.ContactPhone;
 import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.persistence.TransactionCallback;
+import by.itechart.javalab.persistence.TransactionException;
+import by.itechart.javalab.persistence.TransactionTemplate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.naming.NamingException;
-import java.sql.SQLException;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 
 public class ModificationContactService {
     private static Logger log = LogManager.getLogger(ModificationContactService.class.getName());
+    private static final int MAX_TRACKED_DELETIONS = 20;
+    private static final int backgroundDeletionThreshold;
+    private static final int deletionChunkSize;
+    private static final ExecutorService deletionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "contact-deletion");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Map<String, DeletionProgress> deletions =
+            new LinkedHashMap<String, DeletionProgress>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, DeletionProgress> eldest) {
+                    return size() > MAX_TRACKED_DELETIONS && eldest.getValue().getStatus() != DeletionProgress.Status.RUNNING;
+                }
+            };
 
     private ModificationContactService() {}
 
-    public static Contact addNewContact(Contact contact) throws ServiceException {
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        backgroundDeletionThreshold = Integer.parseInt(properties.getProperty("deletion.backgroundThreshold", "1000"));
+        deletionChunkSize = Integer.parseInt(properties.getProperty("deletion.chunkSize", "500"));
+    }
+
+    public static Contact addNewContact(final Contact contact) throws ServiceException {
         log.debug("addNewContact: " + contact.getSurname() + " " + contact.getEmail());
-        Contact savedContact = null;
+        ContactAttributesService.resolveCountryId(contact.getAddress());
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            savedContact = modificationDao.addNewContact(contact);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
+            return TransactionTemplate.execute("addNewContact", new TransactionCallback<Contact>() {
+                @Override
+                public Contact doInTransaction() throws Exception {
+                    ContactSnapshot.restoreOnRollback(Collections.singletonList(contact));
+                    Contact savedContact = getModificationDao().addNewContact(contact);
+                    FacetService.contactsSaved(Collections.singletonList(savedContact));
+                    DuplicateDetector.contactsAdded(Collections.singletonList(savedContact));
+                    return savedContact;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can not add new contact.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
-            }
+        }
+    }
+
+    public static Contact addNewContact(final Contact contact, final ContactFilesWriter filesWriter) throws ServiceException {
+        log.debug("addNewContact: " + contact.getSurname() + " " + contact.getEmail());
+        ContactAttributesService.resolveCountryId(contact.getAddress());
+        try {
+            return TransactionTemplate.execute("addNewContact", new TransactionCallback<Contact>() {
+                @Override
+                public Contact doInTransaction() throws Exception {
+                    ContactModificationDao modificationDao = getModificationDao();
+                    ContactSnapshot.restoreOnRollback(Collections.singletonList(contact));
+                    Contact savedContact = modificationDao.addNewContact(contact);
+                    filesWriter.writeFiles(savedContact, deleteOnRollback());
+                    modificationDao.updateContactAttachments(savedContact);
+                    FacetService.contactsSaved(Collections.singletonList(savedContact));
+                    DuplicateDetector.contactsAdded(Collections.singletonList(savedContact));
+                    return savedContact;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can not add new contact.", e);
         }
-        return savedContact;
     }
 
-    public static void updateContact(Contact contact, Map<String, List<ContactPhone>> phoneGroups,
-                                        Map<String, List<ContactAttachment>> attachmentGroups) throws ServiceException{
+    public static void updateContact(final Contact contact, final Map<String, List<ContactPhone>> phoneGroups,
+                                        final Map<String, List<ContactAttachment>> attachmentGroups,
+                                        final ContactFilesWriter filesWriter) throws ServiceException{
         log.debug("updateContact: " + contact.getSurname() + " " + contact.getEmail());
+        ContactAttributesService.resolveCountryId(contact.getAddress());
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            contact.setPhoneList(phoneGroups.get("update"));
-            contact.setAttachmentList(attachmentGroups.get("update"));
-            modificationDao.updateContact(contact);
-            modificationDao.deleteContactPhones(phoneGroups.get("delete"));
-            modificationDao.deleteContactAttachments(attachmentGroups.get("delete"));
-            modificationDao.saveContactPhones(phoneGroups.get("new"));
-            modificationDao.saveContactAttachments(attachmentGroups.get("new"));
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
+            TransactionTemplate.execute("updateContact", new TransactionCallback<Void>() {
+                @Override
+                public Void doInTransaction() throws Exception {
+                    ContactModificationDao modificationDao = getModificationDao();
+                    ContactSnapshot.restoreOnRollback(contact, concat(phoneGroups.values()),
+                            concat(attachmentGroups.values()));
+                    invalidateAfterCommit(Collections.singletonList(contact.getIdContact()));
+                    contact.setPhoneList(phoneGroups.get("update"));
+                    contact.setAttachmentList(attachmentGroups.get("update"));
+                    ContactChanges changes = getChanges(contact);
+                    changes.setChildRowsModified(!phoneGroups.get("delete").isEmpty() || !phoneGroups.get("new").isEmpty()
+                            || !attachmentGroups.get("delete").isEmpty() || !attachmentGroups.get("new").isEmpty());
+                    modificationDao.updateContact(contact, changes);
+                    modificationDao.deleteContactPhones(phoneGroups.get("delete"));
+                    modificationDao.deleteContactAttachments(attachmentGroups.get("delete"));
+                    modificationDao.saveContactPhones(phoneGroups.get("new"));
+                    modificationDao.saveContactAttachments(attachmentGroups.get("new"));
+                    contact.setAttachmentList(attachmentGroups.get("new"));
+                    filesWriter.writeFiles(contact, deleteOnRollback());
+                    modificationDao.updateContactAttachments(contact);
+                    FacetService.contactsSaved(Collections.singletonList(contact));
+                    // the contact holds the kept phones only, the added ones are blocking keys as well
+                    Contact indexed = new Contact(contact);
+                    indexed.setPhoneList(concat(Arrays.asList(phoneGroups.get("update"), phoneGroups.get("new"))));
+                    DuplicateDetector.contactsUpdated(Collections.singletonList(indexed));
+                    return null;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
-            throw new ServiceException("Can't update contact.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
+            if (e.getCause() instanceof StaleContactException) {
+                throw new ContactConflictException("Contact has been changed by another user.", e);
             }
-            log.error(e);
             throw new ServiceException("Can't update contact.", e);
         }
     }
 
-    public static void deleteContacts(Long contactsId[]) throws ServiceException {
-        log.debug("deleteContacts: ");
+    public static DeletionCounts deleteContacts(final Long contactsId[]) throws ServiceException {
+        log.debug("deleteContacts: {}", contactsId.length);
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            modificationDao.deleteContacts(contactsId);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
-            log.error(e);
-            throw new ServiceException("Can not delete contacts.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
-            }
+            return TransactionTemplate.execute("deleteContacts", new TransactionCallback<DeletionCounts>() {
+                @Override
+                public DeletionCounts doInTransaction() throws Exception {
+                    invalidateAfterCommit(Arrays.asList(contactsId));
+                    FacetService.contactsDeleted(Arrays.asList(contactsId));
+                    DuplicateDetector.contactsDeleted(Arrays.asList(contactsId));
+                    return getModificationDao().deleteContacts(contactsId);
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can not delete contacts.", e);
         }
     }
 
-    public static void saveContactPhones(List<ContactPhone> phones) throws ServiceException {
+    public static boolean isBackgroundDeletion(int contactsCount) {
+        return contactsCount > backgroundDeletionThreshold;
+    }
+
+    // large selections are deleted chunk by chunk, each chunk commits on its own so locks stay short
+    public static DeletionProgress deleteContactsInBackground(final Long contactsId[]) throws ServiceException {
+        log.debug("deleteContactsInBackground: {}", contactsId.length);
+        final DeletionProgress progress = new DeletionProgress(UUID.randomUUID().toString(), contactsId.length);
+        synchronized (deletions) {
+            deletions.put(progress.getId(), progress);
+        }
+        try {
+            deletionExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int from = 0; from < contactsId.length; from += deletionChunkSize) {
+                            Long chunk[] = Arrays.copyOfRange(contactsId, from,
+                                    Math.min(from + deletionChunkSize, contactsId.length));
+                            progress.advance(chunk.length, deleteContacts(chunk));
+                        }
+                        progress.complete();
+                        log.info("Background deletion finished: {}", progress);
+                    } catch (ServiceException | RuntimeException e) {
+                        log.error(e);
+                        progress.fail(e.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            progress.fail(e.getMessage());
+            throw new ServiceException("Can not start contacts deletion.", e);
+        }
+        return progress;
+    }
+
+    public static DeletionProgress getDeletionProgress(String id) {
+        synchronized (deletions) {
+            return deletions.get(id);
+        }
+    }
+
+    public static void shutdown() {
+        deletionExecutor.shutdownNow();
+    }
+
+    public static void saveContactPhones(final List<ContactPhone> phones) throws ServiceException {
         log.debug("saveContactPhones: " + phones);
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            modificationDao.saveContactPhones(phones);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
-            log.error(e);
-            throw new ServiceException("Can't save contact phones.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
-            }
+            TransactionTemplate.execute("saveContactPhones", new TransactionCallback<Void>() {
+                @Override
+                public Void doInTransaction() throws Exception {
+                    invalidateAfterCommit(getPhoneContactIds(phones));
+                    getModificationDao().saveContactPhones(phones);
+                    return null;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can't save contact phones.", e);
         }
     }
 
-    public static void deleteContactPhones(List<ContactPhone> phones) throws ServiceException {
+    public static void deleteContactPhones(final List<ContactPhone> phones) throws ServiceException {
         log.debug("deleteContactPhones: " + phones);
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            modificationDao.deleteContactPhones(phones);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
-            log.error(e);
-            throw new ServiceException("Can't delete contact phones.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
-            }
+            TransactionTemplate.execute("deleteContactPhones", new TransactionCallback<Void>() {
+                @Override
+                public Void doInTransaction() throws Exception {
+                    invalidateAfterCommit(getPhoneContactIds(phones));
+                    getModificationDao().deleteContactPhones(phones);
+                    return null;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can't delete contact phones.", e);
         }
     }
 
-    public static List<ContactAttachment> saveContactAttachments(List<ContactAttachment> attachments) throws ServiceException {
+    public static List<ContactAttachment> saveContactAttachments(final List<ContactAttachment> attachments) throws ServiceException {
         log.debug("saveContactAttachments: " + attachments);
-        List<ContactAttachment> savedAttachments = new ArrayList<>();
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            savedAttachments = modificationDao.saveContactAttachments(attachments);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
-            log.error(e);
-            throw new ServiceException("Can't save contact attachments.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
-            }
+            return TransactionTemplate.execute("saveContactAttachments", new TransactionCallback<List<ContactAttachment>>() {
+                @Override
+                public List<ContactAttachment> doInTransaction() throws Exception {
+                    invalidateAfterCommit(getAttachmentContactIds(attachments));
+                    return getModificationDao().saveContactAttachments(attachments);
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can't save contact attachments.", e);
         }
-        return savedAttachments;
     }
 
-    public static void updateContactAttachments(Contact contact) throws ServiceException {
+    public static void updateContactAttachments(final Contact contact) throws ServiceException {
         log.debug("updateContactAttachments: " + contact.getIdContact());
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            modificationDao.updateContactAttachments(contact);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
-            log.error(e);
-            throw new ServiceException("Can't update contact attachments.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
-            }
+            TransactionTemplate.execute("updateContactAttachments", new TransactionCallback<Void>() {
+                @Override
+                public Void doInTransaction() throws Exception {
+                    invalidateAfterCommit(Collections.singletonList(contact.getIdContact()));
+                    getModificationDao().updateContactAttachments(contact);
+                    return null;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can't update contact attachments.", e);
         }
     }
 
-    public static void deleteContactAttachments(List<ContactAttachment> attachments) throws ServiceException {
+    public static void deleteContactAttachments(final List<ContactAttachment> attachments) throws ServiceException {
         log.debug("deleteContactAttachments: " + attachments);
         try {
-            DaoFactory daoFactory = DaoFactory.getDaoFactory();
-            ContactModificationDao modificationDao = daoFactory.getContactModificationDao();
-            PersistenceManager.startTransaction();
-            modificationDao.deleteContactAttachments(attachments);
-            PersistenceManager.finishTransaction();
-        } catch (SQLException | NamingException e) {
+            TransactionTemplate.execute("deleteContactAttachments", new TransactionCallback<Void>() {
+                @Override
+                public Void doInTransaction() throws Exception {
+                    invalidateAfterCommit(getAttachmentContactIds(attachments));
+                    getModificationDao().deleteContactAttachments(attachments);
+                    return null;
+                }
+            });
+        } catch (TransactionException e) {
             log.error(e);
             throw new ServiceException("Can't delete contact attachments.", e);
-        } catch (DaoException e) {
-            try {
-                PersistenceManager.rollbackTransaction();
-            } catch (SQLException e1) {
-                log.error(e1);
+        }
+    }
+
+    // the edit form posts every field, only the ones that differ from the stored contact are written; the stored
+    // one is read without locks, a writer that changed it in between bumped the version and the update is rejected
+    private static ContactChanges getChanges(Contact contact) throws DaoException {
+        Contact loaded = getModificationDao().getStoredContact(contact.getIdContact());
+        if (loaded == null) {
+            return ContactChanges.all(contact);
+        }
+        return ContactChanges.between(loaded, contact);
+    }
+
+    private static Set<Long> getPhoneContactIds(List<ContactPhone> phones) {
+        Set<Long> contactIds = new HashSet<>();
+        for (ContactPhone phone : phones) {
+            contactIds.add(phone.getIdContact());
+        }
+        return contactIds;
+    }
+
+    private static Set<Long> getAttachmentContactIds(List<ContactAttachment> attachments) {
+        Set<Long> contactIds = new HashSet<>();
+        for (ContactAttachment attachment : attachments) {
+            contactIds.add(attachment.getIdContact());
+        }
+        return contactIds;
+    }
+
+    private static void invalidateAfterCommit(final Collection<Long> contactIds) {
+        PersistenceManager.runAfterCommit(new Runnable() {
+            @Override
+            public void run() {
+                if (contactIds.contains(null)) {
+                    ContactCache.clear();
+                } else {
+                    ContactCache.invalidate(contactIds);
+                }
             }
-            log.error(e);
-            throw new ServiceException("Can't delete contact attachments.", e);
+        });
+    }
+
+    // the files added to the returned list are deleted if the transaction rolls back
+    private static List<File> deleteOnRollback() {
+        final List<File> files = new ArrayList<>();
+        PersistenceManager.runOnRollback(new Runnable() {
+            @Override
+            public void run() {
+                for (File file : files) {
+                    if (file.exists() && !file.delete()) {
+                        log.warn("Can't delete {} written by a rolled back transaction.", file);
+                    }
+                }
+            }
+        });
+        return files;
+    }
+
+    private static <T> List<T> concat(Collection<List<T>> lists) {
+        List<T> all = new ArrayList<>();
+        for (List<T> list : lists) {
+            all.addAll(list);
         }
+        return all;
+    }
+
+    private static ContactModificationDao getModificationDao() throws DaoException {
+        DaoFactory daoFactory = DaoFactory.getDaoFactory();
+        return daoFactory.getContactModificationDao();
     }
 }
@@ -0,0 +1,54 @@
+package by.itechart.javalab.service;
+
+
+public class PageRequest {
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final ContactSortOrder sortOrder;
+    private final int pageSize;
+    private final String cursorValue;
+    private final Long cursorId;
+    private final boolean backward;
+
+    public PageRequest(ContactSortOrder sortOrder, int pageSize) {
+        this(sortOrder, pageSize, null, null, false);
+    }
+
+    public PageRequest(ContactSortOrder sortOrder, int pageSize, String cursorValue, Long cursorId, boolean backward) {
+        this.sortOrder = sortOrder == null ? ContactSortOrder.ID : sortOrder;
+        this.pageSize = pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        this.cursorId = cursorId;
+        this.cursorValue = cursorId == null ? null : cursorValue;
+        this.backward = cursorId != null && backward;
+    }
+
+    public ContactSortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getCursorValue() {
+        return cursorValue;
+    }
+
+    public Long getCursorId() {
+        return cursorId;
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    public boolean hasCursor() {
+        return cursorId != null && (sortOrder == ContactSortOrder.ID || cursorValue != null);
+    }
+
+    @Override
+    public String toString() {
+        return sortOrder + "/" + pageSize + (hasCursor() ? (backward ? " before " : " after ") + cursorValue + ":" + cursorId : "");
+    }
+}
@@ -0,0 +1,60 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.entity.PhoneType;
+import org.apache.commons.lang3.StringUtils;
+
+
+class PhoneFormatter {
+
+    private PhoneFormatter() {}
+
+    static String format(ContactPhone phone) {
+        StringBuilder number = new StringBuilder();
+        if (phone.getCountryCode() != null && phone.getCountryCode() != 0) {
+            number.append('+').append(phone.getCountryCode()).append(' ');
+        }
+        if (phone.getOperatorCode() != null && phone.getOperatorCode() != 0) {
+            number.append('(').append(phone.getOperatorCode()).append(") ");
+        }
+        if (phone.getPhoneNumber() != null) {
+            number.append(phone.getPhoneNumber());
+        }
+        return number.toString().trim();
+    }
+
+    static ContactPhone parse(String value, PhoneType defaultType) throws ImportFormatException {
+        String number = value.trim();
+        PhoneType phoneType = defaultType;
+        for (PhoneType type : PhoneType.values()) {
+            if (number.endsWith(type.name())) {
+                phoneType = type;
+                number = number.substring(0, number.length() - type.name().length()).trim();
+            }
+        }
+        ContactPhone phone = new ContactPhone();
+        phone.setPhoneType(phoneType);
+        try {
+            if (number.startsWith("+")) {
+                int end = 1;
+                while (end < number.length() && Character.isDigit(number.charAt(end))) {
+                    end++;
+                }
+                phone.setCountryCode(Integer.parseInt(number.substring(1, end)));
+                number = number.substring(end).trim();
+            }
+            if (number.startsWith("(") && number.indexOf(')') > 0) {
+                phone.setOperatorCode(Integer.parseInt(number.substring(1, number.indexOf(')')).trim()));
+                number = number.substring(number.indexOf(')') + 1);
+            }
+            String digits = number.replaceAll("[\\s-]", "");
+            if (!StringUtils.isNumeric(digits) || digits.isEmpty()) {
+                throw new ImportFormatException("Invalid phone number: " + value);
+            }
+            phone.setPhoneNumber(Integer.parseInt(digits));
+        } catch (NumberFormatException e) {
+            throw new ImportFormatException("Invalid phone number: " + value, e);
+        }
+        return phone;
+    }
+}
@@ -0,0 +1,174 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.dao.ContactPurgeDao;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.persistence.TransactionCallback;
+import by.itechart.javalab.persistence.TransactionException;
+import by.itechart.javalab.persistence.TransactionTemplate;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+
+public class PurgeService {
+    private static Logger log = LogManager.getLogger(PurgeService.class.getName());
+    private static final int retentionDays;
+    private static final int batchSize;
+    private static final long throttle;
+    private static final int maxBatches;
+    private static final int intervalHours;
+
+    private PurgeService() {}
+
+    static {
+        Properties properties = new Properties();
+        try {
+            properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("config.properties"));
+        } catch (IOException e) {
+            log.error(e);
+        }
+        retentionDays = Integer.parseInt(properties.getProperty("purge.retentionDays", "30"));
+        batchSize = Integer.parseInt(properties.getProperty("purge.batchSize", "200"));
+        throttle = Long.parseLong(properties.getProperty("purge.throttle", "200"));
+        maxBatches = Integer.parseInt(properties.getProperty("purge.maxBatches", "500"));
+        intervalHours = Integer.parseInt(properties.getProperty("purge.intervalHours", "24"));
+    }
+
+    public static int getIntervalHours() {
+        return intervalHours;
+    }
+
+    // each batch commits on its own and is followed by a pause, so the purge never holds locks for long
+    public static void purgeDeletedContacts(String attachmentsDirectory, String imagesDirectory) throws ServiceException {
+        final Date deletedBefore = DateUtils.addDays(new Date(), -retentionDays);
+        log.info("Purging rows deleted before {}", deletedBefore);
+        int contacts = 0;
+        int attachments = 0;
+        int phones = 0;
+        int batches = 0;
+        try {
+            while (batches++ < maxBatches) {
+                final List<ContactAttachment> files = new ArrayList<>();
+                List<Long> contactIds = TransactionTemplate.execute("purgeContacts", new TransactionCallback<List<Long>>() {
+                    @Override
+                    public List<Long> doInTransaction() throws Exception {
+                        ContactPurgeDao purgeDao = getPurgeDao();
+                        List<Long> ids = purgeDao.getDeletedContactIds(deletedBefore, batchSize);
+                        files.clear();
+                        files.addAll(purgeDao.purgeContacts(ids));
+                        return ids;
+                    }
+                });
+                contacts += contactIds.size();
+                attachments += files.size();
+                deleteAttachmentFiles(attachmentsDirectory, files);
+                deleteImages(imagesDirectory, contactIds);
+                if (contactIds.size() < batchSize || !pause()) {
+                    break;
+                }
+            }
+            while (batches++ < maxBatches) {
+                List<ContactAttachment> files = TransactionTemplate.execute("purgeAttachments",
+                        new TransactionCallback<List<ContactAttachment>>() {
+                    @Override
+                    public List<ContactAttachment> doInTransaction() throws Exception {
+                        return getPurgeDao().purgeAttachments(deletedBefore, batchSize);
+                    }
+                });
+                attachments += files.size();
+                deleteAttachmentFiles(attachmentsDirectory, files);
+                if (files.size() < batchSize || !pause()) {
+                    break;
+                }
+            }
+            while (batches++ < maxBatches) {
+                int purged = TransactionTemplate.execute("purgePhones", new TransactionCallback<Integer>() {
+                    @Override
+                    public Integer doInTransaction() throws Exception {
+                        return getPurgeDao().purgePhones(deletedBefore, batchSize);
+                    }
+                });
+                phones += purged;
+                if (purged < batchSize || !pause()) {
+                    break;
+                }
+            }
+        } catch (TransactionException e) {
+            log.error(e);
+            throw new ServiceException("Can't purge deleted contacts.", e);
+        } finally {
+            log.info("Purged contacts={}, attachments={}, phones={}", contacts, attachments, phones);
+        }
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(throttle);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void deleteAttachmentFiles(String attachmentsDirectory, List<ContactAttachment> attachments) {
+        if (StringUtils.isEmpty(attachmentsDirectory)) {
+            return;
+        }
+        for (ContactAttachment attachment : attachments) {
+            if (StringUtils.isNotEmpty(attachment.getRealFileName())) {
+                String name = attachment.getIdAttachment() + "_" + attachment.getRealFileName();
+                File file = new File(attachmentsDirectory, attachment.getIdContact() + "_" + name);
+                // files uploaded before the contact id was part of the name
+                deleteFile(file.exists() ? file : new File(attachmentsDirectory, name));
+            }
+        }
+    }
+
+    // contact images are stored as {idContact}.{extension}
+    private static void deleteImages(String imagesDirectory, List<Long> contactIds) {
+        if (StringUtils.isEmpty(imagesDirectory) || contactIds.isEmpty()) {
+            return;
+        }
+        final Set<String> names = new HashSet<>();
+        for (Long id : contactIds) {
+            names.add(String.valueOf(id));
+        }
+        File[] images = new File(imagesDirectory).listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String name) {
+                int extension = name.lastIndexOf('.');
+                return extension > 0 && names.contains(name.substring(0, extension));
+            }
+        });
+        if (images != null) {
+            for (File image : images) {
+                deleteFile(image);
+            }
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Can't delete file {}", file.getAbsolutePath());
+        }
+    }
+
+    private static ContactPurgeDao getPurgeDao() throws DaoException {
+        DaoFactory daoFactory = DaoFactory.getDaoFactory();
+        return daoFactory.getContactPurgeDao();
+    }
+}
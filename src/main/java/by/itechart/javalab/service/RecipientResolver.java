@@ -0,0 +1,54 @@
+package by.itechart.javalab.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+public class RecipientResolver {
+    private static Logger log = LogManager.getLogger(RecipientResolver.class.getName());
+
+    private RecipientResolver() {}
+
+    public static List<String> resolve(Collection<Long> contactIds) throws ServiceException {
+        log.debug("resolve: {}", contactIds.size());
+        return normalize(FindContactService.getEmails(contactIds));
+    }
+
+    public static List<String> parse(String recipients) {
+        List<String> emails = new ArrayList<>();
+        if (StringUtils.isNotBlank(recipients)) {
+            for (String email : recipients.split("[,;\\s]+")) {
+                emails.add(email);
+            }
+        }
+        return normalize(emails);
+    }
+
+    // the local part may be case-sensitive on the receiving server, only the domain is lowercased; addresses that
+    // differ in case alone are sent once, spelled as they came first
+    private static List<String> normalize(Collection<String> emails) {
+        Map<String, String> recipients = new LinkedHashMap<>();
+        for (String email : emails) {
+            String trimmed = StringUtils.trimToNull(email);
+            if (trimmed == null) {
+                continue;
+            }
+            int at = trimmed.lastIndexOf('@');
+            String normalized = at < 0 ? trimmed
+                    : trimmed.substring(0, at) + trimmed.substring(at).toLowerCase(Locale.ROOT);
+            String key = trimmed.toLowerCase(Locale.ROOT);
+            if (!recipients.containsKey(key)) {
+                recipients.put(key, normalized);
+            }
+        }
+        return new ArrayList<>(recipients.values());
+    }
+}
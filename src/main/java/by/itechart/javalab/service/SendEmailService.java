@@ -7,6 +7,7 @@ import javax.mail.*;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import java.io.IOException;
+import java.util.List;
 import java.util.Properties;
 
 
@@ -14,6 +15,7 @@ public class SendEmailService {
     private static Logger log = LogManager.getLogger(SendEmailService.class.getName());
     private static final String username;
     private static final String password;
+    private static final int recipientsPerMessage;
 
     static {
         Properties properties = new Properties();
@@ -24,6 +26,7 @@ public class SendEmailService {
         }
         username = properties.getProperty("mail.username");
         password = properties.getProperty("mail.password");
+        recipientsPerMessage = Integer.parseInt(properties.getProperty("mail.recipientsPerMessage", "50"));
         log.debug(username, password);
     }
 
@@ -41,14 +44,21 @@ public class SendEmailService {
                         return new PasswordAuthentication(username, password);
                     }
                 });
+        List<String> recipients = emailAttributes.getRecipients();
         try {
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(emailAttributes.getFromEmail()));
-            message.setRecipients(Message.RecipientType.TO,
-                    InternetAddress.parse(emailAttributes.getRecipientEmails()));
-            message.setSubject(emailAttributes.getEmailTitle());
-            message.setContent(emailAttributes.getEmailText(), "text/html; charset=utf-8");
-            Transport.send(message);
+            for (int from = 0; from < recipients.size(); from += recipientsPerMessage) {
+                List<String> chunk = recipients.subList(from, Math.min(from + recipientsPerMessage, recipients.size()));
+                InternetAddress addresses[] = new InternetAddress[chunk.size()];
+                for (int i = 0; i < addresses.length; i++) {
+                    addresses[i] = new InternetAddress(chunk.get(i), true);
+                }
+                Message message = new MimeMessage(session);
+                message.setFrom(new InternetAddress(emailAttributes.getFromEmail()));
+                message.setRecipients(Message.RecipientType.TO, addresses);
+                message.setSubject(emailAttributes.getEmailTitle());
+                message.setContent(emailAttributes.getEmailText(), "text/html; charset=utf-8");
+                Transport.send(message);
+            }
         } catch (MessagingException e) {
             log.error(e);
             throw new ServiceException("Не удалось отправить email.", e);
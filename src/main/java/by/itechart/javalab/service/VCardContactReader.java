@@ -0,0 +1,215 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactAttachment;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.entity.Gender;
+import by.itechart.javalab.entity.PhoneType;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+class VCardContactReader implements ContactReader {
+    private final BufferedReader reader;
+    private String nextLine;
+    private int recordNumber;
+
+    VCardContactReader(Reader reader) throws IOException {
+        this.reader = new BufferedReader(reader);
+        nextLine = this.reader.readLine();
+        if (nextLine != null && nextLine.startsWith("\uFEFF")) {
+            nextLine = nextLine.substring(1);
+        }
+    }
+
+    @Override
+    public Contact read() throws IOException, ImportFormatException {
+        String line = readLine();
+        while (line != null && !"BEGIN:VCARD".equalsIgnoreCase(line.trim())) {
+            line = readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        recordNumber++;
+        List<String> properties = new ArrayList<>();
+        line = readLine();
+        while (line != null && !"END:VCARD".equalsIgnoreCase(line.trim())) {
+            properties.add(line);
+            line = readLine();
+        }
+        // properties are collected first so a broken card never leaves the reader in the middle of it
+        return createContact(properties);
+    }
+
+    @Override
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+
+    private Contact createContact(List<String> properties) throws ImportFormatException {
+        Contact contact = new Contact();
+        Address address = new Address();
+        List<ContactPhone> phones = new ArrayList<>();
+        String formattedName = null;
+        for (String property : properties) {
+            int separator = property.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            String[] parameters = property.substring(0, separator).split(";");
+            String name = parameters[0].toUpperCase();
+            String value = property.substring(separator + 1);
+            switch (name) {
+                case "N":
+                    List<String> names = split(value);
+                    contact.setSurname(getComponent(names, 0));
+                    contact.setName(getComponent(names, 1));
+                    contact.setPatronymic(getComponent(names, 2));
+                    break;
+                case "FN":
+                    formattedName = unescape(value);
+                    break;
+                case "BDAY":
+                    contact.setBirthday(parseDate(value.trim()));
+                    break;
+                case "GENDER":
+                    contact.setGender(value.toUpperCase().startsWith("F") ? Gender.FEMALE
+                            : value.toUpperCase().startsWith("M") ? Gender.MALE : null);
+                    break;
+                case "EMAIL":
+                    if (contact.getEmail() == null) {
+                        contact.setEmail(unescape(value).trim());
+                    }
+                    break;
+                case "ORG":
+                    contact.setCompany(getComponent(split(value), 0));
+                    break;
+                case "URL":
+                    contact.setWebsite(unescape(value).trim());
+                    break;
+                case "ADR":
+                    List<String> components = split(value);
+                    setStreet(address, getComponent(components, 2));
+                    address.setCity(getComponent(components, 3));
+                    address.setZipCode(getComponent(components, 5));
+                    address.setCountry(getComponent(components, 6));
+                    break;
+                case "TEL":
+                    PhoneType type = property.substring(0, separator).toUpperCase().contains("CELL")
+                            ? PhoneType.MOBILE : PhoneType.LANDLINE;
+                    phones.add(PhoneFormatter.parse(unescape(value), type));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (contact.getName() == null && formattedName != null) {
+            String[] parts = formattedName.trim().split("\\s+");
+            contact.setName(parts[0]);
+            contact.setSurname(parts.length > 1 ? parts[parts.length - 1] : null);
+        }
+        contact.setAddress(address);
+        contact.setPhoneList(phones);
+        contact.setAttachmentList(new ArrayList<ContactAttachment>());
+        return contact;
+    }
+
+    // the export writes "street house apartment" into a single component, trailing numbers are split back
+    private void setStreet(Address address, String value) {
+        if (value == null) {
+            return;
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : value.split("\\s+")) {
+            tokens.add(token);
+        }
+        List<String> numbers = new ArrayList<>();
+        while (tokens.size() > 1 && numbers.size() < 2 && tokens.get(tokens.size() - 1).matches(".*\\d.*")) {
+            numbers.add(0, tokens.remove(tokens.size() - 1));
+        }
+        address.setStreet(StringUtils.join(tokens, " "));
+        if (numbers.size() > 0) {
+            address.setHouseNumber(numbers.get(0));
+        }
+        if (numbers.size() > 1) {
+            address.setApartmentNumber(numbers.get(1));
+        }
+    }
+
+    private Date parseDate(String value) throws ImportFormatException {
+        String pattern = value.indexOf('-') > 0 ? "yyyy-MM-dd" : "yyyyMMdd";
+        try {
+            return new SimpleDateFormat(pattern).parse(value);
+        } catch (ParseException e) {
+            throw new ImportFormatException("Invalid birthday: " + value, e);
+        }
+    }
+
+    private String getComponent(List<String> components, int index) {
+        if (index >= components.size()) {
+            return null;
+        }
+        String value = components.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private List<String> split(String value) {
+        List<String> components = new ArrayList<>();
+        StringBuilder component = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                component.append(c).append(value.charAt(++i));
+            } else if (c == ';') {
+                components.add(unescape(component.toString()));
+                component.setLength(0);
+            } else {
+                component.append(c);
+            }
+        }
+        components.add(unescape(component.toString()));
+        return components;
+    }
+
+    private String unescape(String value) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char escaped = value.charAt(++i);
+                result.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    // unfolds continuation lines, which start with a space or a tab
+    private String readLine() throws IOException {
+        String line = nextLine;
+        if (line == null) {
+            return null;
+        }
+        nextLine = reader.readLine();
+        StringBuilder unfolded = null;
+        while (nextLine != null && (nextLine.startsWith(" ") || nextLine.startsWith("\t"))) {
+            if (unfolded == null) {
+                unfolded = new StringBuilder(line);
+            }
+            unfolded.append(nextLine.substring(1));
+            nextLine = reader.readLine();
+        }
+        return unfolded == null ? line : unfolded.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package by.itechart.javalab.service;
+
+import by.itechart.javalab.entity.Address;
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.entity.ContactPhone;
+import by.itechart.javalab.entity.PhoneType;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+
+
+class VCardContactWriter implements ContactRowHandler {
+    private static final String LINE_SEPARATOR = "\r\n";
+    private final Writer writer;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    VCardContactWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void handle(Contact contact) throws IOException {
+        writeLine("BEGIN:VCARD");
+        writeLine("VERSION:3.0");
+        writeLine("N:" + escape(contact.getSurname()) + ";" + escape(contact.getName()) + ";"
+                + escape(contact.getPatronymic()) + ";;");
+        writeLine("FN:" + escape(join(contact.getName(), contact.getPatronymic(), contact.getSurname())));
+        if (contact.getBirthday() != null) {
+            writeLine("BDAY:" + dateFormat.format(contact.getBirthday()));
+        }
+        if (StringUtils.isNotEmpty(contact.getEmail())) {
+            writeLine("EMAIL;TYPE=INTERNET:" + escape(contact.getEmail()));
+        }
+        if (StringUtils.isNotEmpty(contact.getCompany())) {
+            writeLine("ORG:" + escape(contact.getCompany()));
+        }
+        if (StringUtils.isNotEmpty(contact.getWebsite())) {
+            writeLine("URL:" + escape(contact.getWebsite()));
+        }
+        Address address = contact.getAddress();
+        if (address != null) {
+            String street = join(address.getStreet(), address.getHouseNumber(), address.getApartmentNumber());
+            writeLine("ADR;TYPE=HOME:;;" + escape(street) + ";" + escape(address.getCity()) + ";;"
+                    + escape(address.getZipCode()) + ";" + escape(address.getCountry()));
+        }
+        if (contact.getPhoneList() != null) {
+            for (ContactPhone phone : contact.getPhoneList()) {
+                String type = phone.getPhoneType() == PhoneType.MOBILE ? "CELL" : "HOME";
+                writeLine("TEL;TYPE=" + type + ":" + PhoneFormatter.format(phone));
+            }
+        }
+        writeLine("END:VCARD");
+    }
+
+    private String join(String... parts) {
+        StringBuilder result = new StringBuilder();
+        for (String part : parts) {
+            if (StringUtils.isNotEmpty(part)) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(part);
+            }
+        }
+        return result.toString();
+    }
+
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.write(LINE_SEPARATOR);
+    }
+
+    private String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace(",", "\\,").replace(";", "\\;")
+                .replace("\r\n", "\\n").replace("\n", "\\n");
+    }
+}
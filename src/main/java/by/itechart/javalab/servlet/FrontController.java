@@ -3,6 +3,15 @@ package by.itechart.javalab.servlet;
 import by.itechart.javalab.controller.Controller;
 import by.itechart.javalab.controller.ControllerFactory;
 import by.itechart.javalab.controller.impl.BirthdayNotificationController;
+import by.itechart.javalab.controller.impl.DuplicateScanController;
+import by.itechart.javalab.controller.impl.PurgeDeletedContactsController;
+import by.itechart.javalab.dao.DaoException;
+import by.itechart.javalab.dao.DaoFactory;
+import by.itechart.javalab.persistence.PersistenceManager;
+import by.itechart.javalab.service.DuplicateDetector;
+import by.itechart.javalab.service.LookupExecutor;
+import by.itechart.javalab.service.ModificationContactService;
+import by.itechart.javalab.service.PurgeService;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,6 +19,7 @@ import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
 
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -38,16 +48,67 @@ public class FrontController extends HttpServlet {
                                 .withIntervalInHours(24)
                                 .repeatForever())
                 .build();
+        ServletContext servletContext = servletConfig.getServletContext();
+        JobDetail purgeJob = JobBuilder.newJob(PurgeDeletedContactsController.class)
+                .withIdentity("purgeDeletedContacts", "group1")
+                .usingJobData("attachmentsDirectory", servletContext.getInitParameter("attachmentsDirectory"))
+                .usingJobData("imagesDirectory", servletContext.getInitParameter("imagesDirectory"))
+                .build();
+        Trigger purgeTrigger = TriggerBuilder
+                .newTrigger()
+                .withIdentity("purgeDeletedContacts", "group1")
+                .startAt(DateUtils.addHours(todaysMidnight, 3))
+                .withSchedule(
+                        SimpleScheduleBuilder.simpleSchedule()
+                                .withIntervalInHours(PurgeService.getIntervalHours())
+                                .repeatForever())
+                .build();
+        JobDetail duplicateScanJob = JobBuilder.newJob(DuplicateScanController.class)
+                .withIdentity("duplicateScan", "group1").build();
+        Trigger duplicateScanTrigger = TriggerBuilder
+                .newTrigger()
+                .withIdentity("duplicateScan", "group1")
+                .startAt(DateUtils.addHours(todaysMidnight, 4))
+                .withSchedule(
+                        SimpleScheduleBuilder.simpleSchedule()
+                                .withIntervalInHours(DuplicateDetector.getScanIntervalHours())
+                                .repeatForever())
+                .build();
+        // the flags are kept in memory only, a scan right after the start brings them back
+        Trigger duplicateStartupScanTrigger = TriggerBuilder
+                .newTrigger()
+                .withIdentity("duplicateStartupScan", "group1")
+                .forJob(duplicateScanJob)
+                .startNow()
+                .build();
         Scheduler scheduler = null;
         try {
             scheduler = new StdSchedulerFactory().getScheduler();
             scheduler.start();
             scheduler.scheduleJob(job, trigger);
+            scheduler.scheduleJob(purgeJob, purgeTrigger);
+            if (DuplicateDetector.isEnabled()) {
+                scheduler.scheduleJob(duplicateScanJob, duplicateScanTrigger);
+                scheduler.scheduleJob(duplicateStartupScanTrigger);
+            }
         } catch (SchedulerException e) {
             log.error(e);
         }
     }
 
+    @Override
+    public void destroy() {
+        ModificationContactService.shutdown();
+        LookupExecutor.shutdown();
+        try {
+            DaoFactory.getDaoFactory().shutdown();
+        } catch (DaoException e) {
+            log.error(e);
+        }
+        PersistenceManager.shutdown();
+        super.destroy();
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
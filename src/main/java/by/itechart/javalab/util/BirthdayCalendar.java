@@ -0,0 +1,68 @@
+package by.itechart.javalab.util;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+
+public class BirthdayCalendar {
+    private static final int FEBRUARY_28 = 228;
+    private static final int FEBRUARY_29 = 229;
+    private static final int FIRST_DAY = 101;
+    private static final int LAST_DAY = 1231;
+
+    private BirthdayCalendar() {}
+
+    public static int toMonthDay(Date date) {
+        if (date == null) {
+            return 0;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    // Inclusive month * 100 + day ranges; in non-leap years Feb 29 birthdays fall on Feb 28.
+    public static List<int[]> getMonthDayRanges(Date from, int days) {
+        List<int[]> ranges = new ArrayList<>();
+        if (days >= 365) {
+            ranges.add(new int[] {FIRST_DAY, LAST_DAY});
+            return ranges;
+        }
+        GregorianCalendar calendar = new GregorianCalendar();
+        calendar.setTime(from);
+        int start = toMonthDay(calendar.getTime());
+        int startYear = calendar.get(Calendar.YEAR);
+        calendar.add(Calendar.DAY_OF_MONTH, Math.max(days, 0));
+        int end = toMonthDay(calendar.getTime());
+        int endYear = calendar.get(Calendar.YEAR);
+        if (startYear == endYear) {
+            ranges.add(new int[] {start, includeLeapDay(end, calendar)});
+        } else {
+            ranges.add(new int[] {start, LAST_DAY});
+            ranges.add(new int[] {FIRST_DAY, includeLeapDay(end, calendar)});
+        }
+        return ranges;
+    }
+
+    // order of the upcoming birthdays query: from the start day to the end of the year first, then the wrapped part
+    public static int compareUpcoming(Date first, Date second, int start) {
+        int firstDay = toMonthDay(first);
+        int secondDay = toMonthDay(second);
+        boolean firstWrapped = firstDay < start;
+        boolean secondWrapped = secondDay < start;
+        if (firstWrapped != secondWrapped) {
+            return firstWrapped ? 1 : -1;
+        }
+        return firstDay < secondDay ? -1 : (firstDay == secondDay ? 0 : 1);
+    }
+
+    private static int includeLeapDay(int end, GregorianCalendar calendar) {
+        if (end == FEBRUARY_28 && !calendar.isLeapYear(calendar.get(Calendar.YEAR))) {
+            return FEBRUARY_29;
+        }
+        return end;
+    }
+}
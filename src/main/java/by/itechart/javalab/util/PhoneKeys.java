@@ -0,0 +1,49 @@
+package by.itechart.javalab.util;
+
+import by.itechart.javalab.entity.ContactPhone;
+
+
+// A phone key is the number in E.164 form without the plus: country code, operator code and subscriber number
+// as one digit string. Being a string, a key prefix is a range of the phoneKey index like any other prefix.
+public final class PhoneKeys {
+    public static final int MAX_LENGTH = 15;
+
+    private PhoneKeys() {}
+
+    // zero codes are left out like PhoneFormatter leaves them out of the displayed number
+    public static String of(ContactPhone phone) {
+        if (phone.getPhoneNumber() == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(MAX_LENGTH);
+        if (phone.getCountryCode() != null && phone.getCountryCode() != 0) {
+            key.append(phone.getCountryCode());
+        }
+        if (phone.getOperatorCode() != null && phone.getOperatorCode() != 0) {
+            key.append(phone.getOperatorCode());
+        }
+        key.append(phone.getPhoneNumber());
+        return key.length() > MAX_LENGTH ? key.substring(0, MAX_LENGTH) : key.toString();
+    }
+
+    // "+375 (29) 123-45-67" and "00375291234567" both become 375291234567, null when there are no digits
+    public static String normalize(String number) {
+        if (number == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(MAX_LENGTH);
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                key.append(c);
+            }
+        }
+        if (!number.trim().startsWith("+") && key.length() > 2 && key.charAt(0) == '0' && key.charAt(1) == '0') {
+            key.delete(0, 2);
+        }
+        if (key.length() == 0) {
+            return null;
+        }
+        return key.length() > MAX_LENGTH ? key.substring(0, MAX_LENGTH) : key.toString();
+    }
+}
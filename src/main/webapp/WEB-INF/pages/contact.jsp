@@ -23,6 +23,15 @@
         </div>
     </div>
 
+    <c:if test="${not empty duplicates}">
+        <div class="alert alert-warning" role="alert">
+            Возможные дубликаты:
+            <c:forEach items="${duplicates}" var="duplicate">
+                <a href="${pageContext.request.contextPath}/pages/contact/${duplicate.idContact}">#${duplicate.idContact}</a> (${duplicate.keys})
+            </c:forEach>
+        </div>
+    </c:if>
+
     <div class="row">
         <div class="col-md-3">
             <img id="image"
@@ -129,7 +138,7 @@
             <c:forEach items="${contact.attachmentList}" var="attachment">
                 <tr>
                     <td>
-                        <div class="cell-text-alignment"><a href="${pageContext.request.contextPath}/resources/files/${attachment.idAttachment}_${attachment.realFileName}"><c:out value="${attachment.fileName}"/></a></div>
+                        <div class="cell-text-alignment"><a href="${pageContext.request.contextPath}/resources/files/${contact.idContact}_${attachment.idAttachment}_${attachment.realFileName}"><c:out value="${attachment.fileName}"/></a></div>
                     </td>
                     <td>
                         <div class="cell-text-alignment"><c:out value="${attachment.uploadDate}"/></div>
@@ -44,10 +44,67 @@
                         <li class="list-item">
                             <a href="${pageContext.request.contextPath}/pages/email" id="sendEmailButton"><span class="glyphicon glyphicon-envelope"></span> Отправить email</a>
                         </li>
+                        <li class="list-item">
+                            <a href="${pageContext.request.contextPath}/pages/import"><span class="glyphicon glyphicon-upload"></span> Импорт контактов</a>
+                        </li>
+                        <li class="list-item">
+                            <a href="${pageContext.request.contextPath}/pages/export/csv" name="exportButton"><span class="glyphicon glyphicon-download-alt"></span> Экспорт в CSV</a>
+                        </li>
+                        <li class="list-item">
+                            <a href="${pageContext.request.contextPath}/pages/export/vcard" name="exportButton"><span class="glyphicon glyphicon-download-alt"></span> Экспорт в vCard</a>
+                        </li>
                     </ul>
                 </div>
 
                 <div class="col-md-10 col-md-offset-2 left-vertical-divider">
+                    <c:if test="${deletionCounts != null}">
+                        <div class="alert alert-success" role="alert">
+                            Удалено контактов: ${deletionCounts.contacts}, телефонов: ${deletionCounts.phones}, файлов: ${deletionCounts.attachments}
+                        </div>
+                    </c:if>
+                    <c:if test="${deletionProgress != null}">
+                        <div id="deletionProgress" class="alert alert-info" role="alert"
+                             data-url="${pageContext.request.contextPath}/pages/contacts/deletion/${deletionProgress.id}">
+                            Удаление ${deletionProgress.total} контактов выполняется в фоне: <span id="deletionPercent">0</span>%
+                        </div>
+                    </c:if>
+                    <div class="form-inline text-right">
+                        <div class="form-group">
+                            <label for="sortOrder">Сортировка</label>
+                            <select id="sortOrder" name="sortOrder" class="form-control input-sm">
+                                <option value="ID" ${page.pageRequest.sortOrder == 'ID' ? 'selected' : ''}>По умолчанию</option>
+                                <option value="SURNAME" ${page.pageRequest.sortOrder == 'SURNAME' ? 'selected' : ''}>Фамилия</option>
+                                <option value="BIRTHDAY" ${page.pageRequest.sortOrder == 'BIRTHDAY' ? 'selected' : ''}>Дата рождения</option>
+                                <option value="COMPANY" ${page.pageRequest.sortOrder == 'COMPANY' ? 'selected' : ''}>Место работы</option>
+                                <option value="CITY" ${page.pageRequest.sortOrder == 'CITY' ? 'selected' : ''}>Город</option>
+                            </select>
+                        </div>
+                        <div class="form-group">
+                            <label for="pageSize">На странице</label>
+                            <select id="pageSize" name="pageSize" class="form-control input-sm">
+                                <c:forEach items="10,20,50,100" var="size">
+                                    <option value="${size}" ${page.pageRequest.pageSize == size ? 'selected' : ''}>${size}</option>
+                                </c:forEach>
+                            </select>
+                        </div>
+                    </div>
+                    <c:if test="${facets != null}">
+                        <div class="small text-muted">
+                            Найдено: ${facets.total}
+                            <c:if test="${not empty facets.genders}">
+                                | Пол:<c:forEach items="${facets.genders}" var="facet"> ${facet.key} (${facet.value})</c:forEach>
+                            </c:if>
+                            <c:if test="${not empty facets.maritalStatuses}">
+                                | Семейное положение:<c:forEach items="${facets.maritalStatuses}" var="facet"> ${facet.key} (${facet.value})</c:forEach>
+                            </c:if>
+                            <c:if test="${not empty facets.countries}">
+                                | Страна:<c:forEach items="${facets.countries}" var="facet"> <c:out value="${facet.key}"/> (${facet.value})</c:forEach>
+                            </c:if>
+                            <c:if test="${not empty facets.citizenships}">
+                                | Гражданство:<c:forEach items="${facets.citizenships}" var="facet"> <c:out value="${facet.key}"/> (${facet.value})</c:forEach>
+                            </c:if>
+                        </div>
+                    </c:if>
                     <div class="table-responsive">
                         <table id="contactsTable" class="table table-hover">
                             <thead>
@@ -123,27 +180,28 @@
                 <input type="text" name="surname" value="${searchAttributes.surname}"/>
                 <input type="text" name="patronymic" value="${searchAttributes.patronymic}"/>
                 <input type="text" name="citizenship" value="${searchAttributes.citizenship}"/>
-                <input type="text" name="birthdayDateFrom" value="${searchAttributes.birthdayDateFrom}"/>
-                <input type="text" name="birthdayDateTo" value="${searchAttributes.birthdayDateTo}"/>
+                <input type="text" name="lowerBirthday" value="<fmt:formatDate value="${searchAttributes.birthdayDateFrom}" pattern="dd.MM.yyyy"/>"/>
+                <input type="text" name="upperBirthday" value="<fmt:formatDate value="${searchAttributes.birthdayDateTo}" pattern="dd.MM.yyyy"/>"/>
                 <input type="text" name="gender" value="${searchAttributes.gender}"/>
-                <input type="text" name="maritalStatus" value="${searchAttributes.maritalStatus}"/>
+                <input type="text" name="marital" value="${searchAttributes.maritalStatus}"/>
                 <input type="text" name="country" value="${searchAttributes.address.country}"/>
                 <input type="text" name="city" value="${searchAttributes.address.city}"/>
                 <input type="text" name="street" value="${searchAttributes.address.street}"/>
                 <input type="text" name="houseNumber" value="${searchAttributes.address.houseNumber}"/>
                 <input type="text" name="apartmentNumber" value="${searchAttributes.address.apartmentNumber}"/>
                 <input type="text" name="zipCode" value="${searchAttributes.address.zipCode}"/>
+                <input type="text" name="phone" value="${searchAttributes.phone}"/>
+                <input type="text" name="phonePrefix" value="${searchAttributes.phonePrefix}"/>
             </div>
 
             <div name="paginationValues" class="hidden">
-                <input type="text" id="startContactIdForPreviousPage" name="startContactIdForPreviousPage" value="${contacts[0].idContact}"/>
-                <input type="text" id="isLowerIds" name="isLowerIds" value=""/>
-                <c:forEach items="${contacts}" var="contact" varStatus="loop">
-                    <c:if test="${loop.last}">
-                        <input type="text" id="startContactIdForNextPage" name="startContactIdForNextPage" value="${contact.idContact}"/>
-                    </c:if>
-                </c:forEach>
-                <input type="text" id="startContactIdForPage" name="startContactIdForPage" value=""/>
+                <input type="text" id="previousCursorValue" value="${fn:escapeXml(page.previousCursorValue)}"/>
+                <input type="text" id="previousCursorId" value="${page.previousCursorId}"/>
+                <input type="text" id="nextCursorValue" value="${fn:escapeXml(page.nextCursorValue)}"/>
+                <input type="text" id="nextCursorId" value="${page.nextCursorId}"/>
+                <input type="text" id="cursorValue" name="cursorValue" value=""/>
+                <input type="text" id="cursorId" name="cursorId" value=""/>
+                <input type="text" id="backward" name="backward" value=""/>
             </div>
 
             <input type="text" id="deletingContactsId" name="deletingContactsId" class="hidden" value=""/>
@@ -24,6 +24,13 @@
 
         <form id="contactForm" method="post" action="${pageContext.request.contextPath}/pages/editContact/${contact.idContact}" enctype="multipart/form-data" role="form">
 
+            <c:if test="${conflict != null}">
+                <div class="alert alert-warning" role="alert">
+                    <span class="glyphicon glyphicon-exclamation-sign" aria-hidden="true"></span>
+                    Контакт был изменён другим пользователем. Показаны актуальные данные, внесите изменения повторно.
+                </div>
+            </c:if>
+
             <div class="row">
                 <div class="col-md-3">
                     <img id="image"
@@ -388,6 +395,7 @@
                 </c:forEach>
                 <input type="text" id="attachmentsInitialCount" name="attachmentsInitialCount" value="${fn:length(contact.attachmentList)}"/>
                 <input type="text" name="idContact" value="${contact.idContact}">
+                <input type="text" name="version" value="${contact.version}">
             </div>
 
         </form>
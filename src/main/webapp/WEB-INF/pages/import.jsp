@@ -0,0 +1,92 @@
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<html>
+<head>
+    <meta charset="utf-8">
+    <meta http-equiv="X-UA-Compatible" content="IE=edge">
+    <meta name="viewport" content="width=device-width, initial-scale=1">
+
+    <title>Импорт контактов</title>
+
+    <c:url value="/resources/css/bootstrap.min.css" var="bootstrapCss"/>
+    <link href="${bootstrapCss}" rel="stylesheet"/>
+    <c:url value="/resources/css/custom.css" var="customCss"/>
+    <link href="${customCss}" rel="stylesheet"/>
+</head>
+<body>
+
+    <div class="container text-font">
+
+        <h1 class="page-header">Импорт контактов</h1>
+
+        <form method="post" action="${pageContext.request.contextPath}/pages/import" enctype="multipart/form-data" role="form">
+
+            <c:if test="${error != null}">
+                <div class="alert alert-danger" role="alert">
+                    <span class="glyphicon glyphicon-exclamation-sign" aria-hidden="true"></span>
+                    <span class="sr-only">Error:</span>
+                    ${error}
+                </div>
+            </c:if>
+            <c:if test="${report != null}">
+                <div class="alert alert-info" role="alert">
+                    Импортировано: ${report.importedCount}, ошибок: ${report.errorCount}, возможных дубликатов: ${report.duplicateCount}, время: ${report.elapsedMillis} мс
+                </div>
+                <c:if test="${report.errorCount > 0}">
+                    <table class="table table-condensed">
+                        <thead>
+                            <tr>
+                                <th>Запись</th>
+                                <th>Ошибка</th>
+                            </tr>
+                        </thead>
+                        <tbody>
+                            <c:forEach items="${report.errors}" var="rowError">
+                                <tr>
+                                    <td>${rowError.rowNumber}</td>
+                                    <td><c:out value="${rowError.message}"/></td>
+                                </tr>
+                            </c:forEach>
+                        </tbody>
+                    </table>
+                    <c:if test="${report.errorsTruncated}">
+                        <p>Показаны первые ${report.errors.size()} ошибок.</p>
+                    </c:if>
+                </c:if>
+            </c:if>
+
+            <div class="row">
+                <div class="col-md-6">
+                    <div class="form-group">
+                        <label for="format">Формат</label><br/>
+                        <select id="format" name="format">
+                            <option value="csv" selected>CSV</option>
+                            <option value="vcard">vCard</option>
+                        </select>
+                    </div>
+                    <div class="form-group">
+                        <label for="file">Файл</label>
+                        <input type="file" id="file" name="file" accept=".csv,.vcf" required/>
+                    </div>
+                </div>
+            </div>
+
+            <br/><br/><br/>
+
+            <div class="row">
+                <div class="col-md-3 col-md-offset-3 text-center">
+                    <button type="submit" class="btn btn-success btn-lg button-size">Импорт</button>
+                </div>
+                <div class="col-md-1 text-center">
+                    <a href="${pageContext.request.contextPath}/pages/contacts" class="btn btn-info btn-lg button-size">Назад</a>
+                </div>
+            </div>
+
+        </form>
+
+    </div>
+
+    <div class="page-bottom"></div>
+
+</body>
+</html>
@@ -126,6 +126,17 @@
                     </div>
                 </div>
             </div>
+            <div class="row">
+                <div class="col-md-4">
+                    <div class="form-group">
+                        <label for="phone">Телефон</label>
+                        <input type="text" class="form-control" id="phone" name="phone" placeholder="+375 (29) 1234567" maxlength="30">
+                    </div>
+                    <div class="checkbox">
+                        <label><input type="checkbox" name="phonePrefix" value="true"> Начало номера</label>
+                    </div>
+                </div>
+            </div>
 
             <br/><br/><br/>
 
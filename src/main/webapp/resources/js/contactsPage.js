@@ -39,28 +39,42 @@ document.addEventListener('DOMContentLoaded', function() {
     }
 
     document.getElementById("nextPage").onclick = function() {
+        if (this.classList.contains("disabled")) {
+            return false;
+        }
         updateCheckboxes();
-        document.getElementById("isLowerIds").value = false;
-        var form = document.getElementById("contactsForm");
-        form.setAttribute("action", this.getAttribute("data-url"));
-        form.setAttribute("method", "post");
-        var startContactIdForNextPage = document.getElementById("startContactIdForNextPage").value;
-        document.getElementById("startContactIdForPage").value = startContactIdForNextPage;
-        form.submit();
+        submitPage(this.getAttribute("data-url"), document.getElementById("nextCursorValue").value,
+            document.getElementById("nextCursorId").value, false);
         return false;
     };
 
     document.getElementById("previousPage").onclick = function() {
+        if (this.classList.contains("disabled")) {
+            return false;
+        }
         updateCheckboxes();
-        document.getElementById("isLowerIds").value = true;
+        submitPage(this.getAttribute("data-url"), document.getElementById("previousCursorValue").value,
+            document.getElementById("previousCursorId").value, true);
+        return false;
+    };
+
+    document.getElementById("sortOrder").onchange = function() {
+        submitPage(document.getElementById("nextPage").getAttribute("data-url"), "", "", false);
+    };
+
+    document.getElementById("pageSize").onchange = function() {
+        submitPage(document.getElementById("nextPage").getAttribute("data-url"), "", "", false);
+    };
+
+    function submitPage(url, cursorValue, cursorId, backward) {
         var form = document.getElementById("contactsForm");
-        form.setAttribute("action", this.getAttribute("data-url"));
+        form.setAttribute("action", url);
         form.setAttribute("method", "post");
-        var startContactIdForPreviousPage = document.getElementById("startContactIdForPreviousPage").value;
-        document.getElementById("startContactIdForPage").value = startContactIdForPreviousPage;
+        document.getElementById("cursorValue").value = cursorValue;
+        document.getElementById("cursorId").value = cursorId;
+        document.getElementById("backward").value = backward;
         form.submit();
-        return false;
-    };
+    }
 
     function updateCheckboxes() {
         var checkedContacts = sessionStorage.getItem("checkedContacts");
@@ -90,6 +104,47 @@ document.addEventListener('DOMContentLoaded', function() {
         return false;
     };
 
+    var exportButtons = document.getElementsByName("exportButton");
+    for (var k = 0; k < exportButtons.length; k++) {
+        exportButtons[k].onclick = function() {
+            var form = document.getElementById("contactsForm");
+            form.setAttribute("action", this.getAttribute("href"));
+            form.setAttribute("method", "post");
+            form.submit();
+            return false;
+        };
+    }
+
+    var deletionProgress = document.getElementById("deletionProgress");
+    if (deletionProgress) {
+        pollDeletionProgress(deletionProgress);
+    }
+
+    function pollDeletionProgress(block) {
+        var xhr = new XMLHttpRequest();
+        xhr.open("GET", block.getAttribute("data-url"), true);
+        xhr.onreadystatechange = function() {
+            if (xhr.readyState != 4 || xhr.status != 200) {
+                return;
+            }
+            var progress = JSON.parse(xhr.responseText);
+            if (progress.status == "RUNNING") {
+                document.getElementById("deletionPercent").innerHTML = progress.percent;
+                setTimeout(function() {
+                    pollDeletionProgress(block);
+                }, 1000);
+            } else if (progress.status == "COMPLETED") {
+                block.className = "alert alert-success";
+                block.innerHTML = "Удалено контактов: " + progress.contacts + ", телефонов: " + progress.phones +
+                    ", файлов: " + progress.attachments;
+            } else {
+                block.className = "alert alert-danger";
+                block.innerHTML = "Удаление прервано, удалено контактов: " + progress.contacts;
+            }
+        };
+        xhr.send();
+    }
+
     function createCheckboxListeners() {
         var contacts = document.getElementsByName("contact");
         for (var i = 0; i < contacts.length; i++) {
@@ -0,0 +1,148 @@
+package by.itechart.javalab.dao.sharded;
+
+import by.itechart.javalab.entity.Contact;
+import by.itechart.javalab.service.ContactPage;
+import by.itechart.javalab.service.ContactSortOrder;
+import by.itechart.javalab.service.PageRequest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class ShardPageMergerTest {
+
+    @Test
+    public void forwardMergeTakesTheFirstRowsOfAllShards() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 3);
+        ContactPage first = page(request, false, contact(1, "Adams"), contact(3, "Clark"));
+        ContactPage second = page(request, false, contact(2, "Baker"), contact(4, "Davis"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(merged));
+        assertTrue(merged.isHasNext());
+        assertFalse(merged.isHasPrevious());
+    }
+
+    @Test
+    public void forwardMergeOfExhaustedShardsHasNoNextPage() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 3, "A", 9L, false);
+        ContactPage first = page(request, false, contact(1, "Baker"));
+        ContactPage second = page(request, false, contact(2, "Clark"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(1L, 2L), ids(merged));
+        assertFalse(merged.isHasNext());
+        assertTrue(merged.isHasPrevious());
+    }
+
+    @Test
+    public void backwardMergeTakesTheRowsNearestToTheCursorInPageOrder() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 2, "Evans", 9L, true);
+        ContactPage first = page(request, false, contact(1, "Adams"), contact(3, "Clark"));
+        ContactPage second = page(request, false, contact(2, "Baker"), contact(4, "Davis"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(3L, 4L), ids(merged));
+        assertTrue(merged.isHasPrevious());
+        assertTrue(merged.isHasNext());
+    }
+
+    @Test
+    public void backwardMergeReportsPreviousRowsLeftOnAShard() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 2, "Evans", 9L, true);
+        ContactPage first = page(request, true, contact(3, "Clark"));
+        ContactPage second = page(request, false, contact(4, "Davis"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(3L, 4L), ids(merged));
+        assertTrue(merged.isHasPrevious());
+    }
+
+    @Test
+    public void backwardMergeOfExhaustedShardsHasNoPreviousPage() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 3, "Evans", 9L, true);
+        ContactPage first = page(request, false, contact(3, "Clark"));
+        ContactPage second = page(request, false, contact(4, "Davis"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(3L, 4L), ids(merged));
+        assertFalse(merged.isHasPrevious());
+    }
+
+    @Test
+    public void mergeOrdersCyrillicLikeTheGeneralCollation() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 10);
+        ContactPage first = page(request, false, contact(1, "Ежов"), contact(5, "Жуков"));
+        ContactPage second = page(request, false, contact(2, "Ёлкин"));
+        ContactPage third = page(request, false, contact(3, "ЕЛКИН  "));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second, third), request);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 5L), ids(merged));
+    }
+
+    @Test
+    public void mergeIgnoresCaseAccentsAndTrailingSpaces() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 10);
+        ContactPage first = page(request, false, contact(2, "jose"), contact(5, "Zeta"));
+        ContactPage second = page(request, false, contact(3, "Émile"), contact(1, "José "));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(3L, 1L, 2L, 5L), ids(merged));
+    }
+
+    @Test
+    public void nullSortValuesComeFirst() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 10);
+        ContactPage first = page(request, false, contact(2, "Adams"));
+        ContactPage second = page(request, false, contact(3, null), contact(4, "Baker"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(3L, 2L, 4L), ids(merged));
+    }
+
+    @Test
+    public void equalSortValuesAreOrderedById() {
+        PageRequest request = new PageRequest(ContactSortOrder.SURNAME, 10);
+        ContactPage first = page(request, false, contact(7, "Smith"));
+        ContactPage second = page(request, false, contact(6, "smith"));
+
+        ContactPage merged = ShardPageMerger.merge(Arrays.asList(first, second), request);
+
+        assertEquals(Arrays.asList(6L, 7L), ids(merged));
+    }
+
+    private static ContactPage page(PageRequest request, boolean hasMore, Contact... contacts) {
+        List<Contact> list = Arrays.asList(contacts);
+        return request.isBackward() ? new ContactPage(list, request, true, hasMore)
+                : new ContactPage(list, request, hasMore, request.hasCursor());
+    }
+
+    private static Contact contact(long id, String surname) {
+        Contact contact = new Contact();
+        contact.setIdContact(id);
+        contact.setSurname(surname);
+        return contact;
+    }
+
+    private static List<Long> ids(ContactPage page) {
+        List<Long> ids = new ArrayList<>();
+        for (Contact contact : page.getContacts()) {
+            ids.add(contact.getIdContact());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,207 @@
+package by.itechart.javalab.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class CompressedBitmapTest {
+    private static final int ARRAY_LIMIT = 4096;
+
+    @Test
+    public void addAndRemoveReportChanges() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertFalse(bitmap.contains(5));
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void valuesAroundChunkBoundariesAreKeptApart() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        int[] values = {0, 65535, 65536, 131071, Integer.MAX_VALUE};
+        for (int value : values) {
+            bitmap.add(value);
+        }
+
+        assertEquals(values.length, bitmap.cardinality());
+        for (int value : values) {
+            assertTrue(bitmap.contains(value));
+        }
+        assertFalse(bitmap.contains(1));
+        assertFalse(bitmap.contains(65537));
+        assertFalse(bitmap.contains(-1));
+    }
+
+    @Test
+    public void negativeValuesAreRejected() {
+        try {
+            new CompressedBitmap().add(-1);
+            fail("negative value accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void denseChunkKeepsEveryValue() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i <= ARRAY_LIMIT; i++) {
+            bitmap.add(i * 2);
+        }
+
+        assertEquals(ARRAY_LIMIT + 1, bitmap.cardinality());
+        for (int i = 0; i <= ARRAY_LIMIT; i++) {
+            assertTrue(bitmap.contains(i * 2));
+            assertFalse(bitmap.contains(i * 2 + 1));
+        }
+        assertFalse(bitmap.add(0));
+    }
+
+    @Test
+    public void chunkShrunkBelowTheLimitKeepsTheRest() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < ARRAY_LIMIT + 10; i++) {
+            bitmap.add(i);
+        }
+        for (int i = 0; i < ARRAY_LIMIT + 10; i += 2) {
+            assertTrue(bitmap.remove(i));
+        }
+
+        assertEquals((ARRAY_LIMIT + 10) / 2, bitmap.cardinality());
+        for (int i = 0; i < ARRAY_LIMIT + 10; i++) {
+            assertEquals(i % 2 == 1, bitmap.contains(i));
+        }
+        assertTrue(bitmap.add(0));
+        assertTrue(bitmap.contains(0));
+    }
+
+    @Test
+    public void removingTheLastValueDropsTheChunk() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(70000);
+        bitmap.add(3);
+
+        assertTrue(bitmap.remove(70000));
+        assertEquals(1, bitmap.cardinality());
+        assertTrue(bitmap.remove(3));
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void intersectionOfSparseAndDenseChunks() {
+        CompressedBitmap dense = new CompressedBitmap();
+        for (int i = 0; i < 10000; i++) {
+            dense.add(i);
+        }
+        CompressedBitmap sparse = new CompressedBitmap();
+        sparse.add(10);
+        sparse.add(9999);
+        sparse.add(10000);
+        sparse.add(70000);
+
+        CompressedBitmap result = sparse.and(dense);
+
+        assertEquals(2, result.cardinality());
+        assertTrue(result.contains(10));
+        assertTrue(result.contains(9999));
+        assertEquals(2, dense.and(sparse).cardinality());
+        assertEquals(2, sparse.andCardinality(dense));
+        assertEquals(2, dense.andCardinality(sparse));
+    }
+
+    @Test
+    public void intersectionOfDenseChunksMayBeSparse() {
+        CompressedBitmap even = new CompressedBitmap();
+        CompressedBitmap low = new CompressedBitmap();
+        for (int i = 0; i < 20000; i++) {
+            even.add(i * 2);
+            low.add(i);
+        }
+
+        CompressedBitmap result = even.and(low);
+
+        assertEquals(10000, result.cardinality());
+        assertEquals(10000, even.andCardinality(low));
+        assertTrue(result.contains(19998));
+        assertFalse(result.contains(19999));
+        assertFalse(result.contains(20000));
+    }
+
+    @Test
+    public void disjointIntersectionIsEmpty() {
+        CompressedBitmap first = new CompressedBitmap();
+        CompressedBitmap second = new CompressedBitmap();
+        first.add(1);
+        second.add(65537);
+
+        assertTrue(first.and(second).isEmpty());
+        assertEquals(0, first.andCardinality(second));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < ARRAY_LIMIT * 2; i++) {
+            bitmap.add(i);
+        }
+        bitmap.add(100000);
+
+        CompressedBitmap copy = bitmap.copy();
+        copy.remove(1);
+        copy.remove(100000);
+        copy.add(200000);
+
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(100000));
+        assertFalse(bitmap.contains(200000));
+        assertEquals(ARRAY_LIMIT * 2 + 1, bitmap.cardinality());
+        assertEquals(ARRAY_LIMIT * 2, copy.cardinality());
+    }
+
+    @Test
+    public void matchesASetUnderRandomChanges() {
+        Random random = new Random(42);
+        CompressedBitmap first = new CompressedBitmap();
+        CompressedBitmap second = new CompressedBitmap();
+        TreeSet<Integer> firstValues = new TreeSet<>();
+        TreeSet<Integer> secondValues = new TreeSet<>();
+        for (int step = 0; step < 200000; step++) {
+            // a narrow range fills chunks past the limit, a wide one keeps others sparse
+            int value = random.nextBoolean() ? random.nextInt(12000) : random.nextInt(1 << 20);
+            boolean toFirst = random.nextBoolean();
+            CompressedBitmap bitmap = toFirst ? first : second;
+            TreeSet<Integer> values = toFirst ? firstValues : secondValues;
+            if (random.nextInt(3) == 0) {
+                assertEquals(values.remove(value), bitmap.remove(value));
+            } else {
+                assertEquals(values.add(value), bitmap.add(value));
+            }
+        }
+
+        assertEquals(firstValues.size(), first.cardinality());
+        TreeSet<Integer> common = new TreeSet<>(firstValues);
+        common.retainAll(secondValues);
+        CompressedBitmap intersection = first.and(second);
+        assertEquals(common.size(), intersection.cardinality());
+        assertEquals(common.size(), first.andCardinality(second));
+        for (int value = 0; value < 12000; value++) {
+            assertEquals(firstValues.contains(value), first.contains(value));
+            assertEquals(common.contains(value), intersection.contains(value));
+        }
+        for (int value : common) {
+            assertTrue(intersection.contains(value));
+        }
+    }
+}